@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import org.eclipse.jetty.websocket.WebSocket.Connection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.TearDown;
+import org.structr.benchmark.entity.BenchmarkUser;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.entity.Principal;
+import org.structr.websocket.StructrWebSocket;
+import org.structr.websocket.SynchronizationController;
+import org.structr.websocket.WebSocketDataGSONAdapter;
+import org.structr.websocket.message.WebSocketMessage;
+
+/**
+ * Measures {@link SynchronizationController#broadcast} of an UPDATE message
+ * to {@link #clients} simulated websocket clients, including the delivery
+ * to all clients. The clients are either anonymous or authenticated as one
+ * of {@link #users} principals, which determines the number of distinct
+ * serializations per broadcast.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BroadcastBenchmark extends StructrBenchmark {
+
+	@Param({ "500" })
+	public int clients = 500;
+
+	@Param({ "0", "20" })
+	public int users = 0;
+
+	private SynchronizationController controller = null;
+
+	@Override
+	protected void populate() throws FrameworkException {
+
+		final Gson gson                  = new GsonBuilder().setPrettyPrinting().registerTypeAdapter(WebSocketMessage.class, new WebSocketDataGSONAdapter(GraphObject.id, 3)).create();
+		final List<Principal> principals = createUsers();
+
+		controller = new SynchronizationController(gson, 10000, SynchronizationController.DEFAULT_THREAD_COUNT);
+
+		for (int i = 0; i < clients; i++) {
+
+			final StructrWebSocket socket = new StructrWebSocket(controller, proxy(HttpServletRequest.class), gson, GraphObject.id, null);
+
+			socket.onOpen(proxy(Connection.class));
+
+			// every other client is authenticated
+			if (!principals.isEmpty() && i % 2 == 1) {
+				socket.setAuthenticated("token" + i, principals.get(i % principals.size()));
+			}
+		}
+	}
+
+	@TearDown
+	public void stopController() {
+		controller.shutdown();
+	}
+
+	@Benchmark
+	public void broadcast() {
+
+		final WebSocketMessage message = new WebSocketMessage();
+		final GraphObject node         = nextNode();
+
+		message.setCommand("UPDATE");
+		message.setId(node.getUuid());
+		message.setGraphObject(node);
+		message.setResult(Arrays.asList(new GraphObject[] { node }));
+
+		controller.broadcast(message);
+
+		// wait until the message has been delivered to all clients
+		while (controller.getMetrics().getQueueDepth() > 0) {
+			Thread.yield();
+		}
+	}
+
+	private List<Principal> createUsers() throws FrameworkException {
+
+		final List<Principal> principals = new ArrayList<>();
+
+		try {
+			app.beginTx();
+
+			for (int i = 0; i < users; i++) {
+				principals.add(app.create(BenchmarkUser.class, "user" + i));
+			}
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+
+		return principals;
+	}
+
+	/**
+	 * Creates a no-op implementation of the given interface, which
+	 * simulates a client that receives messages instantly.
+	 */
+	private static <T> T proxy(final Class<T> type) {
+
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, new InvocationHandler() {
+
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+
+				final Class returnType = method.getReturnType();
+
+				if (boolean.class.equals(returnType)) {
+					return "isOpen".equals(method.getName());
+				}
+
+				if (int.class.equals(returnType)) {
+					return 0;
+				}
+
+				if (long.class.equals(returnType)) {
+					return 0L;
+				}
+
+				return null;
+			}
+		}));
+	}
+}
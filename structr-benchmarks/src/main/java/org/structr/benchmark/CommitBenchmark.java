@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Measures {@link org.structr.core.graph.TransactionCommand#commitTx} for a
+ * single modification and for a large transaction that modifies
+ * {@link #BATCH_SIZE} nodes, which exercises the bookkeeping in
+ * {@link org.structr.core.graph.ModificationQueue}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CommitBenchmark extends StructrBenchmark {
+
+	private int counter = 0;
+
+	@Benchmark
+	public void commitSingleModification() throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			nextNode().setProperty(BenchmarkNode.count, counter++);
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+
+	@Benchmark
+	public void commitLargeTransaction() throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				nextNode().setProperty(BenchmarkNode.count, counter++);
+			}
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+}
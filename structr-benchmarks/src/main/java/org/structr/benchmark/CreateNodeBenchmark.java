@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Measures node creation through {@link org.structr.core.graph.CreateNodeCommand},
+ * including indexing and the commit of the enclosing transaction. Note that
+ * the store grows by one node per invocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CreateNodeBenchmark extends StructrBenchmark {
+
+	private int counter = 0;
+
+	@Benchmark
+	public BenchmarkNode createNode() throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			final BenchmarkNode node = createNode(size + counter++);
+
+			app.commitTx();
+
+			return node;
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+
+	@Benchmark
+	public BenchmarkNode createNodeWithoutCommit() throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			return createNode(size + counter++);
+
+		} finally {
+
+			// roll back so that only instantiation and indexing are measured
+			app.finishTx();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.structr.web.common.FileHelper;
+
+/**
+ * Measures the throughput of file delivery for large files, comparing the
+ * stream copy that HtmlServlet used before with {@link FileHelper#transferTo},
+ * which HtmlServlet falls back to if the response is not a Jetty connection.
+ * The memory-mapped path of {@link FileHelper#sendFile} needs a connection
+ * and is not covered here.
+ * Does not need the service layer, so it does not extend {@link StructrBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FileStreamingBenchmark {
+
+	@Param({ "1", "16", "256" })
+	public int megabytes = 1;
+
+	private File file = null;
+
+	@Setup(Level.Trial)
+	public void createFile() throws IOException {
+
+		final byte[] buffer = new byte[1024 * 1024];
+		final Random random = new Random(42);
+
+		file = File.createTempFile("structr-benchmark-", ".bin");
+
+		try (final OutputStream out = new FileOutputStream(file)) {
+
+			for (int i = 0; i < megabytes; i++) {
+
+				random.nextBytes(buffer);
+				out.write(buffer);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Benchmark
+	public long streamCopy() throws IOException {
+
+		try (final InputStream in = new FileInputStream(file)) {
+
+			return IOUtils.copyLarge(in, new NullOutputStream());
+		}
+	}
+
+	@Benchmark
+	public long transferTo() throws IOException {
+
+		return FileHelper.transferTo(file, 0, file.length(), new NullOutputStream());
+	}
+
+	@Benchmark
+	public long transferRange() throws IOException {
+
+		// a typical media player request for the middle of the file
+		final long count = file.length() / 4;
+
+		return FileHelper.transferTo(file, file.length() / 2, count, new NullOutputStream());
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.neo4j.graphdb.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.NodeFactory;
+
+/**
+ * Measures the wrapping of raw database nodes in {@link NodeFactory}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InstantiationBenchmark extends StructrBenchmark {
+
+	private final List<Node> dbNodes          = new ArrayList<>();
+	private NodeFactory<BenchmarkNode> factory = null;
+	private int counter                        = 0;
+
+	@Override
+	protected void populate() throws FrameworkException {
+
+		dbNodes.clear();
+
+		for (final BenchmarkNode node : nodes) {
+			dbNodes.add(node.getNode());
+		}
+
+		factory = new NodeFactory<>(securityContext);
+	}
+
+	@Benchmark
+	public BenchmarkNode instantiateWithType() throws FrameworkException {
+
+		return factory.instantiateWithType(nextDbNode(), BenchmarkNode.class, false);
+	}
+
+	@Benchmark
+	public BenchmarkNode instantiate() throws FrameworkException {
+
+		return factory.instantiate(nextDbNode());
+	}
+
+	private Node nextDbNode() {
+
+		if (counter >= dbNodes.size()) {
+			counter = 0;
+		}
+
+		return dbNodes.get(counter++);
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.structr.benchmark.entity.BenchmarkUser;
+import org.structr.common.AccessMode;
+import org.structr.common.Permission;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.Security;
+import org.structr.core.graph.NodeInterface;
+
+/**
+ * Measures {@link SecurityContext#isReadable} for a non-privileged user
+ * who has been granted read access to every other node of the dataset.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PermissionBenchmark extends StructrBenchmark {
+
+	private SecurityContext userContext = null;
+
+	@Override
+	protected void populate() throws FrameworkException {
+
+		final Principal user = createUser();
+
+		for (int i = 0; i < nodes.size(); i += BATCH_SIZE) {
+			grantRead(user, i, Math.min(nodes.size(), i + BATCH_SIZE));
+		}
+
+		userContext = SecurityContext.getInstance(user, AccessMode.Backend);
+	}
+
+	@Benchmark
+	public boolean isReadable() {
+
+		return userContext.isReadable(nextNode(), false, false);
+	}
+
+	private Principal createUser() throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			final Principal user = app.create(BenchmarkUser.class, "benchmark");
+
+			app.commitTx();
+
+			return user;
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+
+	private void grantRead(final Principal user, final int from, final int to) throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			for (int i = from; i < to; i += 2) {
+
+				final NodeInterface node = nodes.get(i);
+				final Security security  = app.create(user, node, Security.class);
+
+				security.setAllowed(new Permission[] { Permission.read });
+			}
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+}
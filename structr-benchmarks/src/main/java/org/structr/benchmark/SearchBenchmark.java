@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Measures {@link org.structr.core.graph.search.SearchCommand} for an exact
+ * lookup, a sorted and paged attribute search and a paged type search.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark extends StructrBenchmark {
+
+	public static final int PAGE_SIZE = 20;
+
+	private int counter = 0;
+
+	@Benchmark
+	public BenchmarkNode searchExact() throws FrameworkException {
+
+		return app.nodeQuery(BenchmarkNode.class).and(BenchmarkNode.key, "key" + (counter++ % size)).getFirst();
+	}
+
+	@Benchmark
+	public List<BenchmarkNode> searchSortedAndPaged() throws FrameworkException {
+
+		return app.nodeQuery(BenchmarkNode.class)
+			.and(BenchmarkNode.bucket, "bucket" + (counter++ % BUCKET_COUNT))
+			.sortDescending(BenchmarkNode.count)
+			.pageSize(PAGE_SIZE)
+			.page(1)
+			.getAsList();
+	}
+
+	@Benchmark
+	public List<BenchmarkNode> searchByType() throws FrameworkException {
+
+		return app.nodeQuery(BenchmarkNode.class).pageSize(PAGE_SIZE).page(1).getAsList();
+	}
+}
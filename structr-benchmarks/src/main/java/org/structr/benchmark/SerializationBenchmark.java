@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.common.PropertyView;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Result;
+import org.structr.core.StaticValue;
+import org.structr.rest.serialization.StreamingJsonWriter;
+import org.structr.rest.serialization.StreamingWriter;
+
+/**
+ * Measures {@link StreamingJsonWriter} for a result of up to {@link #RESULT_SIZE}
+ * nodes, with and without compiled serialization plans.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark extends StructrBenchmark {
+
+	public static final int RESULT_SIZE = 1000;
+
+	@Param({ "true", "false" })
+	public boolean compiled = true;
+
+	private StreamingWriter streamingWriter = null;
+	private Result result                   = null;
+
+	@Override
+	protected void populate() throws FrameworkException {
+
+		streamingWriter = new StreamingJsonWriter(new StaticValue<>(PropertyView.Public), false, 3);
+		result          = new Result(nodes.subList(0, Math.min(RESULT_SIZE, nodes.size())), RESULT_SIZE, true, false);
+
+		streamingWriter.setCompiled(compiled);
+	}
+
+	@Benchmark
+	public void serializeResult() throws IOException {
+
+		streamingWriter.stream(new NullWriter(), result, "");
+	}
+}
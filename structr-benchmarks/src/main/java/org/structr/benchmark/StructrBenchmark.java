@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.common.SecurityContext;
+import org.structr.common.StructrConf;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.property.PropertyMap;
+import org.structr.module.JarConfigurationProvider;
+
+/**
+ * Base state for all benchmarks. Starts the service layer on a temporary
+ * embedded database, populates it with <code>size</code> instances of
+ * {@link BenchmarkNode} and removes the database after the trial.
+ */
+@State(Scope.Benchmark)
+public abstract class StructrBenchmark {
+
+	private static final Logger logger = Logger.getLogger(StructrBenchmark.class.getName());
+
+	public static final int BATCH_SIZE   = 1000;
+	public static final int BUCKET_COUNT = 100;
+
+	@Param({ "1000", "10000", "100000" })
+	public int size = 0;
+
+	protected final List<BenchmarkNode> nodes = new ArrayList<>();
+	protected SecurityContext securityContext = null;
+	protected String basePath                 = null;
+	protected App app                         = null;
+	protected int position                    = 0;
+
+	@Setup(Level.Trial)
+	public void startup() throws Exception {
+
+		final StructrConf config = Services.getBaseConfiguration();
+
+		basePath = "/tmp/structr-benchmark-" + System.currentTimeMillis();
+
+		config.setProperty(Services.CONFIGURED_SERVICES, "NodeService");
+		config.setProperty(Services.CONFIGURATION, JarConfigurationProvider.class.getName());
+		config.setProperty(Services.TMP_PATH, "/tmp/");
+		config.setProperty(Services.BASE_PATH, basePath);
+		config.setProperty(Services.DATABASE_PATH, basePath + "/db");
+		config.setProperty(Services.FILES_PATH, basePath + "/files");
+		config.setProperty(Services.TCP_PORT, "13475");
+		config.setProperty(Services.UDP_PORT, "13476");
+		config.setProperty(Services.SUPERUSER_USERNAME, "superadmin");
+		config.setProperty(Services.SUPERUSER_PASSWORD, "sehrgeheim");
+
+		final Services services = Services.getInstance(config);
+
+		// wait for service layer to be initialized
+		while (!services.isInitialized()) {
+			try { Thread.sleep(100); } catch (Throwable t) {}
+		}
+
+		securityContext = SecurityContext.getSuperUserInstance();
+		app             = StructrApp.getInstance(securityContext);
+
+		logger.info("Creating " + size + " benchmark nodes in " + basePath);
+
+		for (int i = 0; i < size; i += BATCH_SIZE) {
+			createNodes(i, Math.min(size, i + BATCH_SIZE));
+		}
+
+		populate();
+	}
+
+	@TearDown(Level.Trial)
+	public void shutdown() throws Exception {
+
+		nodes.clear();
+
+		Services.getInstance().shutdown();
+
+		final File dir = new File(basePath);
+		if (dir.isDirectory()) {
+
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
+	/**
+	 * Override this method to add benchmark-specific data after the
+	 * dataset has been created.
+	 *
+	 * @throws FrameworkException
+	 */
+	protected void populate() throws FrameworkException {
+	}
+
+	/**
+	 * Returns the next node of the dataset, wrapping around at the end.
+	 * Benchmarks are run single-threaded, so no synchronization is needed.
+	 *
+	 * @return the next node
+	 */
+	protected BenchmarkNode nextNode() {
+
+		if (position >= nodes.size()) {
+			position = 0;
+		}
+
+		return nodes.get(position++);
+	}
+
+	protected BenchmarkNode createNode(final int index) throws FrameworkException {
+
+		final PropertyMap properties = new PropertyMap();
+
+		properties.put(BenchmarkNode.name,   "node" + index);
+		properties.put(BenchmarkNode.key,    "key" + index);
+		properties.put(BenchmarkNode.bucket, "bucket" + (index % BUCKET_COUNT));
+		properties.put(BenchmarkNode.count,  index);
+
+		return app.create(BenchmarkNode.class, properties);
+	}
+
+	private void createNodes(final int from, final int to) throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			for (int i = from; i < to; i++) {
+				nodes.add(createNode(i));
+			}
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.structr.benchmark.entity.BenchmarkHub;
+import org.structr.benchmark.entity.BenchmarkNode;
+import org.structr.benchmark.entity.BenchmarkUser;
+import org.structr.benchmark.entity.HubNodes;
+import org.structr.benchmark.entity.HubUsers;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Measures relationship traversal through {@link org.structr.core.entity.AbstractEndpoint}
+ * for a node that is connected to all nodes of the dataset and to one user
+ * per {@link #BUCKET_COUNT} nodes, using the same relationship type for both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TraversalBenchmark extends StructrBenchmark {
+
+	private BenchmarkHub hub = null;
+
+	@Override
+	protected void populate() throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			hub = app.create(BenchmarkHub.class, "hub");
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+
+		for (int i = 0; i < nodes.size(); i += BATCH_SIZE) {
+			connect(i, Math.min(nodes.size(), i + BATCH_SIZE));
+		}
+	}
+
+	@Benchmark
+	public List<BenchmarkNode> getEndNodes() {
+
+		return hub.getProperty(BenchmarkHub.nodes);
+	}
+
+	@Benchmark
+	public List<BenchmarkUser> getFilteredEndNodes() {
+
+		return hub.getProperty(BenchmarkHub.users);
+	}
+
+	private void connect(final int from, final int to) throws FrameworkException {
+
+		try {
+			app.beginTx();
+
+			for (int i = from; i < to; i++) {
+
+				app.create(hub, nodes.get(i), HubNodes.class);
+
+				if (i % BUCKET_COUNT == 0) {
+					app.create(hub, app.create(BenchmarkUser.class, "user" + i), HubUsers.class);
+				}
+			}
+
+			app.commitTx();
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark.entity;
+
+import java.util.List;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.EndNodes;
+import org.structr.core.property.Property;
+
+/**
+ * A node with thousands of relationships of the same type to neighbours
+ * of different types, used for the traversal benchmarks.
+ */
+public class BenchmarkHub extends AbstractNode {
+
+	public static final Property<List<BenchmarkNode>> nodes = new EndNodes<>("nodes", HubNodes.class);
+	public static final Property<List<BenchmarkUser>> users = new EndNodes<>("users", HubUsers.class);
+}
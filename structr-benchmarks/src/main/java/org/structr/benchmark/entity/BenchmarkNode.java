@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.benchmark.entity;
+
+import org.structr.common.PropertyView;
+import org.structr.common.View;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.Property;
+import org.structr.core.property.StringProperty;
+
+/**
+ * A simple entity with a unique and a shared indexed value, used as the
+ * dataset for all benchmarks.
+ */
+public class BenchmarkNode extends AbstractNode {
+
+	public static final Property<String>  key    = new StringProperty("key").indexed();
+	public static final Property<String>  bucket = new StringProperty("bucket").indexed();
+	public static final Property<Integer> count  = new IntProperty("count").indexed();
+
+	public static final View publicView = new View(BenchmarkNode.class, PropertyView.Public,
+		name, key, bucket, count
+	);
+}
@@ -30,6 +30,7 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
 import org.structr.core.entity.GenericNode;
 import org.structr.core.entity.GenericRelationship;
+import org.structr.core.graph.EntityCache;
 
 /**
  * The default factory for unknown types in structr. When structr needs to
@@ -134,8 +135,8 @@ public class DefaultFactoryDefinition implements FactoryDefinition {
 		final String type = GraphObject.type.dbName();
 		
 		// first try: duck-typing
-		final String sourceType = relationship.getStartNode().hasProperty(type) ? relationship.getStartNode().getProperty(type).toString() : null;
-		final String targetType = relationship.getEndNode().hasProperty(type) ? relationship.getEndNode().getProperty(type).toString() : null;
+		final String sourceType = getTypeName(relationship.getStartNode(), type);
+		final String targetType = getTypeName(relationship.getEndNode(), type);
 		final String relType    = relationship.getType().name();
 		final Class entityType  = getClassForCombinedType(sourceType, relType, targetType);
 		
@@ -183,6 +184,27 @@ public class DefaultFactoryDefinition implements FactoryDefinition {
 		return getGenericRelationshipType();
 	}
 
+	/**
+	 * Returns the value of the type property of the given node, using the
+	 * shared {@link EntityCache} to avoid repeated property reads.
+	 */
+	private String getTypeName(final Node node, final String typeKey) {
+
+		final EntityCache entityCache = EntityCache.getInstance();
+		final long id                 = node.getId();
+		String typeName               = entityCache.getTypeName(id);
+
+		if (typeName == null) {
+
+			final long generation = entityCache.getGeneration(id);
+
+			typeName = node.hasProperty(typeKey) ? node.getProperty(typeKey).toString() : EntityCache.NO_TYPE_NAME;
+			entityCache.putTypeName(id, typeName, generation);
+		}
+
+		return EntityCache.NO_TYPE_NAME.equals(typeName) ? null : typeName;
+	}
+
 	private Class getClassForCombinedType(final String combinedType) {
 		
 		final String[] parts = StringUtils.split(combinedType, COMBINED_RELATIONSHIP_KEY_SEP);
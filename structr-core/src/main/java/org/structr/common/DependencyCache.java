@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.core.GraphObject;
+import org.structr.core.SynchronousTransactionListener;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.Relation;
+import org.structr.core.graph.ModificationEvent;
+
+/**
+ * Base class for bounded caches of rendered output that depends on
+ * entities and entity types.
+ *
+ * Entries are evicted in least recently used order once the cache is
+ * full. After every commit, all entries that depend on one of the
+ * modified entities or types are removed, see {@link #dependsOn}.
+ * Changes to principals, which can change the visibility of arbitrary
+ * entities, clear the whole cache. Entries that were computed before an
+ * invalidation are not stored, see {@link #put}.
+ */
+public abstract class DependencyCache<V> implements SynchronousTransactionListener {
+
+	private final AtomicLong generation = new AtomicLong();
+	private final AtomicLong hits       = new AtomicLong();
+	private final AtomicLong misses     = new AtomicLong();
+	private Map<String, V> cache        = null;
+
+	public DependencyCache(final int size) {
+
+		this.cache = new LinkedHashMap<String, V>(size, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+				return size() > size;
+			}
+		};
+	}
+
+	/**
+	 * Indicates whether the given entry must be evicted because one of
+	 * the given entities or types was modified.
+	 *
+	 * @param entry the cache entry
+	 * @param modifiedIds the UUIDs of the modified entities
+	 * @param modifiedTypes the modified types
+	 * @return whether the entry depends on one of the modifications
+	 */
+	protected abstract boolean dependsOn(final V entry, final Set<String> modifiedIds, final Set<Class> modifiedTypes);
+
+	/**
+	 * Stores the given entry, unless the cache was invalidated after
+	 * the given generation, because the entry might be stale then.
+	 *
+	 * @param key
+	 * @param entry
+	 * @param generationAtStart the generation before the entry was computed
+	 */
+	public synchronized void put(final String key, final V entry, final long generationAtStart) {
+
+		if (generation.get() == generationAtStart) {
+			cache.put(key, entry);
+		}
+	}
+
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public synchronized void clear() {
+
+		generation.incrementAndGet();
+		cache.clear();
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// ----- interface SynchronousTransactionListener -----
+	@Override
+	public void transactionCommited(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+
+		final Set<String> modifiedIds  = new LinkedHashSet<>();
+		final Set<Class> modifiedTypes = new LinkedHashSet<>();
+
+		try {
+
+			for (final ModificationEvent event : modificationEvents) {
+
+				final GraphObject obj = event.getGraphObject();
+				if (obj == null) {
+
+					// unknown modification, be safe
+					clear();
+					return;
+				}
+
+				modifiedIds.add(event.getUuid());
+				modifiedTypes.add(obj.getClass());
+
+				if (obj instanceof Relation) {
+
+					final Relation relation = (Relation)obj;
+
+					// a new or removed relationship changes the output of both nodes
+					modifiedIds.add(relation.getSourceNodeId());
+					modifiedIds.add(relation.getTargetNodeId());
+					modifiedTypes.add(relation.getSourceType());
+					modifiedTypes.add(relation.getTargetType());
+				}
+			}
+
+		} catch (Throwable t) {
+
+			// nodes of deleted relationships may not be accessible anymore
+			clear();
+			return;
+		}
+
+		for (final Class type : modifiedTypes) {
+
+			if (type != null && Principal.class.isAssignableFrom(type)) {
+
+				// permissions and ownership may have changed for any entity
+				clear();
+				return;
+			}
+		}
+
+		if (!modifiedTypes.isEmpty()) {
+			invalidate(modifiedIds, modifiedTypes);
+		}
+	}
+
+	// ----- protected methods -----
+	/**
+	 * Returns the entry for the given key without counting a hit or
+	 * a miss, see {@link #count}.
+	 *
+	 * @param key
+	 * @return the entry or null
+	 */
+	protected synchronized V getEntry(final String key) {
+		return cache.get(key);
+	}
+
+	/**
+	 * Counts a hit if the given entry is not null, a miss otherwise.
+	 *
+	 * @param entry
+	 * @return the given entry
+	 */
+	protected V count(final V entry) {
+
+		if (entry != null) {
+
+			hits.incrementAndGet();
+
+		} else {
+
+			misses.incrementAndGet();
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Indicates whether one of the given types is a sub- or supertype
+	 * of one of the modified types.
+	 *
+	 * @param types
+	 * @param modifiedTypes
+	 * @return whether the types are affected by the modified types
+	 */
+	protected static boolean dependsOnTypes(final Set<Class> types, final Set<Class> modifiedTypes) {
+
+		for (final Class modifiedType : modifiedTypes) {
+
+			if (modifiedType == null) {
+				continue;
+			}
+
+			for (final Class type : types) {
+
+				if (type.isAssignableFrom(modifiedType) || modifiedType.isAssignableFrom(type)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	// ----- private methods -----
+	private synchronized void invalidate(final Set<String> modifiedIds, final Set<Class> modifiedTypes) {
+
+		generation.incrementAndGet();
+
+		for (final Iterator<V> it = cache.values().iterator(); it.hasNext();) {
+
+			if (dependsOn(it.next(), modifiedIds, modifiedTypes)) {
+				it.remove();
+			}
+		}
+	}
+}
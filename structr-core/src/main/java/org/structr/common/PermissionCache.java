@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.core.GraphObject;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.AbstractRelationship;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.Security;
+import org.structr.core.entity.relationship.Groups;
+import org.structr.core.graph.GraphObjectModificationState;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.TransactionCommand;
+
+/**
+ * Caches the resolved group closure of every principal and the effective
+ * permission bits of (principal, node) pairs, so that permission checks
+ * on large result sets do not need to walk the security and group
+ * relationships for every node.
+ *
+ * The cache is invalidated incrementally for all nodes whose security
+ * or ownership was modified in a committed transaction, and completely
+ * when group memberships change or a principal is deleted. Nodes and
+ * principals that are modified in the current transaction bypass the
+ * cache.
+ *
+ * Both maps are striped, so concurrent permission checks only contend
+ * when they hit the same segment. Values are resolved outside of the
+ * segment locks and are only stored if the affected segment was not
+ * invalidated in the meantime.
+ */
+public class PermissionCache {
+
+	private static final int MAX_NODES                = 100000;
+	private static final int MAX_PRINCIPALS           = 10000;
+	private static final int ALL_PERMISSIONS          = (1 << Permission.values().length) - 1;
+	private static final long NO_OWNER                = -1L;
+	private static final int SECURITY_OR_OWNER        = GraphObjectModificationState.STATE_SECURITY_MODIFIED | GraphObjectModificationState.STATE_OWNER_MODIFIED | GraphObjectModificationState.STATE_DELETED;
+
+	private static final PermissionCache instance     = new PermissionCache();
+
+	private final StripedLruMap<Long, NodeEntry> nodes           = new StripedLruMap<>(MAX_NODES);
+	private final StripedLruMap<Long, PrincipalEntry> principals = new StripedLruMap<>(MAX_PRINCIPALS);
+	private final AtomicLong hits                                = new AtomicLong(0);
+	private final AtomicLong misses                              = new AtomicLong(0);
+
+	private PermissionCache() {}
+
+	public static PermissionCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Indicates whether the given principal or one of its (transitive)
+	 * parents has been granted the given permission on the given node.
+	 *
+	 * @param node
+	 * @param principal
+	 * @param permission
+	 * @return whether the permission is granted
+	 */
+	public boolean isGranted(final AbstractNode node, final Principal principal, final Permission permission) {
+
+		final int bit = 1 << permission.ordinal();
+
+		if (isModifiedInTransaction(node) || isModifiedInTransaction(principal)) {
+
+			return (resolvePermissions(node, resolvePrincipal(principal)) & bit) == bit;
+		}
+
+		final long nodeId      = node.getId();
+		final long principalId = principal.getId();
+		final long gen         = nodes.getGeneration(nodeId);
+		final NodeEntry entry  = nodes.get(nodeId);
+
+		if (entry != null) {
+
+			final Integer bits = entry.permissions.get(principalId);
+			if (bits != null) {
+
+				hits.incrementAndGet();
+				return (bits & bit) == bit;
+			}
+		}
+
+		misses.incrementAndGet();
+
+		final int bits = resolvePermissions(node, getPrincipal(principal));
+
+		// do not store results that may have been invalidated in the meantime
+		final NodeEntry stored = nodes.putIfAbsent(nodeId, new NodeEntry(), gen);
+		if (stored != null) {
+
+			stored.permissions.put(principalId, bits);
+		}
+
+		return (bits & bit) == bit;
+	}
+
+	/**
+	 * Indicates whether the given user is the given node, owns the node
+	 * or is a direct member of the group that owns the node.
+	 *
+	 * @param node
+	 * @param user
+	 * @return whether the user or one of its groups owns the node
+	 */
+	public boolean isOwnedBy(final NodeInterface node, final Principal user) {
+
+		if (user.equals(node)) {
+			return true;
+		}
+
+		if (isModifiedInTransaction(node) || isModifiedInTransaction(user)) {
+
+			final Principal owner = node.getOwnerNode();
+			return user.equals(owner) || user.getParents().contains(owner);
+		}
+
+		final long nodeId     = node.getId();
+		final long gen        = nodes.getGeneration(nodeId);
+		final NodeEntry entry = nodes.get(nodeId);
+		Long ownerId          = entry != null ? entry.ownerId : null;
+
+		if (ownerId == null) {
+
+			misses.incrementAndGet();
+
+			final Principal owner = node.getOwnerNode();
+			ownerId               = owner != null ? owner.getId() : NO_OWNER;
+
+			final NodeEntry stored = nodes.putIfAbsent(nodeId, new NodeEntry(), gen);
+			if (stored != null) {
+
+				stored.ownerId = ownerId;
+			}
+
+		} else {
+
+			hits.incrementAndGet();
+		}
+
+		if (ownerId == NO_OWNER) {
+			return false;
+		}
+
+		if (ownerId == user.getId()) {
+			return true;
+		}
+
+		return getPrincipal(user).parents.contains(ownerId);
+	}
+
+	/**
+	 * Removes all entries affected by the given modification events.
+	 *
+	 * @param modificationEvents
+	 */
+	public void invalidate(final Iterable<ModificationEvent> modificationEvents) {
+
+		if (nodes.isEmpty() && principals.isEmpty()) {
+			return;
+		}
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			final GraphObject obj = event.getGraphObject();
+
+			if (event.isNode()) {
+
+				if (obj instanceof Principal && (event.isDeleted() || event.isCreated())) {
+
+					clear();
+					return;
+				}
+
+				if ((event.getStatus() & SECURITY_OR_OWNER) != 0) {
+
+					// removal increments the generation of the segment
+					nodes.remove(((NodeInterface)obj).getId());
+				}
+
+			} else {
+
+				if (obj instanceof Groups) {
+
+					// group membership changed, group closures are invalid
+					clear();
+					return;
+				}
+
+				if (obj instanceof Security && event.isModified() && !event.isDeleted()) {
+
+					try {
+						nodes.remove(((AbstractRelationship)obj).getRelationship().getEndNode().getId());
+
+					} catch (Throwable t) {
+
+						clear();
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	public void invalidate(final long nodeId) {
+		nodes.remove(nodeId);
+	}
+
+	public void clear() {
+
+		nodes.clear();
+		principals.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// ----- private methods -----
+	private PrincipalEntry getPrincipal(final Principal principal) {
+
+		final long principalId = principal.getId();
+		final long gen         = principals.getGeneration(principalId);
+		PrincipalEntry entry   = principals.get(principalId);
+
+		if (entry == null) {
+
+			entry = resolvePrincipal(principal);
+			principals.put(principalId, entry, gen);
+		}
+
+		return entry;
+	}
+
+	private PrincipalEntry resolvePrincipal(final Principal principal) {
+
+		final PrincipalEntry entry          = new PrincipalEntry();
+		final LinkedList<Principal> queue   = new LinkedList<>();
+
+		entry.closure.add(principal.getId());
+
+		for (final Principal parent : principal.getParents()) {
+
+			entry.parents.add(parent.getId());
+			queue.add(parent);
+		}
+
+		// resolve transitive parents, guard against cycles
+		while (!queue.isEmpty()) {
+
+			final Principal current = queue.removeFirst();
+			if (entry.closure.add(current.getId())) {
+
+				queue.addAll(current.getParents());
+			}
+		}
+
+		return entry;
+	}
+
+	private int resolvePermissions(final AbstractNode node, final PrincipalEntry principal) {
+
+		// a principal has full control over itself and all of its groups
+		if (principal.closure.contains(node.getId())) {
+			return ALL_PERMISSIONS;
+		}
+
+		int bits = 0;
+
+		for (final Security security : node.getIncomingRelationships(Security.class)) {
+
+			if (principal.closure.contains(security.getRelationship().getStartNode().getId())) {
+
+				for (final Permission permission : Permission.values()) {
+
+					if (security.isAllowed(permission)) {
+
+						bits |= 1 << permission.ordinal();
+					}
+				}
+			}
+		}
+
+		return bits;
+	}
+
+	private boolean isModifiedInTransaction(final GraphObject obj) {
+		return TransactionCommand.inTransaction() && TransactionCommand.getModificationEvent(obj) != null;
+	}
+
+	// ----- nested classes -----
+	private static class NodeEntry {
+
+		private final Map<Long, Integer> permissions = new ConcurrentHashMap<>();
+		private volatile Long ownerId                = null;
+	}
+
+	private static class PrincipalEntry {
+
+		private final Set<Long> parents = new LinkedHashSet<>();
+		private final Set<Long> closure = new LinkedHashSet<>();
+	}
+}
@@ -54,6 +54,7 @@ public class SecurityContext {
 	private static final Logger logger                   = Logger.getLogger(SecurityContext.class.getName());
 	private static final Map<String, Long> resourceFlags = new LinkedHashMap<>();
 	private static final Pattern customViewPattern       = Pattern.compile(".*properties=([a-zA-Z_,]+)");
+	private static final int MAX_CACHED_NODES            = 10000;
 
 	//~--- fields ---------------------------------------------------------
 
@@ -86,15 +87,11 @@ public class SecurityContext {
 		this.cachedUser = user;
 		this.accessMode = accessMode;
 		this.request    = request;
-
-		initRequestBasedCache(request);
 	}
 
 	private SecurityContext(HttpServletRequest request) {
 
 		this.request    = request;
-
-		initRequestBasedCache(request);
 		
 		// check for custom view attributes
 		if (request != null) {
@@ -127,24 +124,6 @@ public class SecurityContext {
 
 	//~--- methods --------------------------------------------------------
 
-	private void initRequestBasedCache(HttpServletRequest request) {
-
-		// request-based caching
-		if (request != null && request.getServletContext() != null) {
-			cache = (Map<Long, NodeInterface>)request.getServletContext().getAttribute("NODE_CACHE");
-		}
-		
-		if (cache == null) {
-
-			cache = new ConcurrentHashMap<>();
-			
-			if (request != null && request.getServletContext() != null) {
-				request.getServletContext().setAttribute("NODE_CACHE", cache);
-			}
-		}
-
-	}
-	
 	/**
 	 * Call this method after the request this context was
 	 * created for is finished and the resources can be freed.
@@ -156,6 +135,14 @@ public class SecurityContext {
 		}
 	}
 	
+	/**
+	 * Returns the node instance that was created for this security
+	 * context, if any. Node instances are bound to the security context
+	 * they were created for, so they are never shared between contexts.
+	 * 
+	 * @param id
+	 * @return the cached node or null
+	 */
 	public NodeInterface lookup(final long id) {
 		return cache.get(id);
 	}
@@ -164,6 +151,11 @@ public class SecurityContext {
 		
 		Node dbNode = node.getNode();
 		if (dbNode != null) {
+
+			// long-lived contexts (e.g. websocket) must not grow without bounds
+			if (cache.size() >= MAX_CACHED_NODES) {
+				cache.clear();
+			}
 			
 			cache.put(id, node);
 		}
@@ -363,10 +355,8 @@ public class SecurityContext {
 			return false;
 		}
 		
-		Principal owner = node.getOwnerNode();
-		
 		// owner is always allowed to do anything with its nodes
-		if (user.equals(node) || user.equals(owner) || user.getParents().contains(owner)) {
+		if (isOwnedBy(node, user)) {
 
 			return true;
 		}
@@ -517,10 +507,8 @@ public class SecurityContext {
 		
 		if (user != null) {
 
-			Principal owner = node.getOwnerNode();
-
 			// owner is always allowed to do anything with its nodes
-			if (user.equals(node) || user.equals(owner) || user.getParents().contains(owner)) {
+			if (isOwnedBy(node, user)) {
 
 				return true;
 			}
@@ -551,6 +539,18 @@ public class SecurityContext {
 
 	}
 
+	private boolean isOwnedBy(final AccessControllable node, final Principal user) {
+
+		if (node instanceof NodeInterface) {
+
+			return PermissionCache.getInstance().isOwnedBy((NodeInterface)node, user);
+		}
+
+		final Principal owner = node.getOwnerNode();
+
+		return user.equals(node) || user.equals(owner) || user.getParents().contains(owner);
+	}
+
 	private boolean isAllowedInBackend(AccessControllable node, Permission permission) {
 
 		Principal user = getUser(false);
@@ -0,0 +1,303 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe map that evicts the least recently used entries.
+ *
+ * The map is split into a power-of-two number of segments. Each segment is
+ * an access-ordered LinkedHashMap with its own lock and its own share of the
+ * maximum size, so concurrent readers of different keys do not contend for
+ * a single monitor. Eviction is therefore least recently used per segment,
+ * not globally. Small maps use a single segment and behave like an exact
+ * LRU map.
+ *
+ * Every segment has a generation counter that is incremented when an entry
+ * is removed or the segment is cleared. A value that was computed outside
+ * of the lock can be stored with {@link #put(Object, Object, long)}, which
+ * drops the value if the key was invalidated since {@link #getGeneration}
+ * was read.
+ */
+public class StripedLruMap<K, V> {
+
+	public static final int MAX_SEGMENTS         = 16;
+	public static final int MIN_SEGMENT_SIZE     = 1024;
+
+	private final AtomicLong evictions           = new AtomicLong(0);
+	private volatile Segment<K, V>[] segments    = null;
+	private volatile int maxSize                 = 0;
+
+	public StripedLruMap(final int maxSize) {
+		setMaxSize(maxSize);
+	}
+
+	/**
+	 * Sets the maximum number of entries. The existing entries are kept
+	 * as far as they fit. Must not be called concurrently with writes.
+	 *
+	 * @param maxSize
+	 */
+	public synchronized void setMaxSize(final int maxSize) {
+
+		final Segment<K, V>[] oldSegments = segments;
+		final int segmentCount            = getSegmentCount(maxSize);
+		final int segmentSize             = Math.max(1, (maxSize + segmentCount - 1) / segmentCount);
+		final Segment<K, V>[] newSegments = new Segment[segmentCount];
+
+		for (int i = 0; i < segmentCount; i++) {
+			newSegments[i] = new Segment<>(segmentSize, evictions);
+		}
+
+		this.maxSize  = maxSize;
+		this.segments = newSegments;
+
+		if (oldSegments != null) {
+
+			for (final Segment<K, V> segment : oldSegments) {
+
+				final List<Map.Entry<K, V>> entries;
+
+				synchronized (segment) {
+
+					entries = new ArrayList<>(segment.entrySet());
+					segment.clear();
+					segment.generation++;
+				}
+
+				// least recently used entries first, so the most recent ones survive
+				for (final Map.Entry<K, V> entry : entries) {
+					put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public V get(final K key) {
+
+		final Segment<K, V> segment = getSegment(key);
+
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	public void put(final K key, final V value) {
+
+		final Segment<K, V> segment = getSegment(key);
+
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Returns the generation of the segment of the given key. Read this
+	 * before computing a value that is stored with {@link #put(Object, Object, long)}.
+	 *
+	 * @param key
+	 * @return the current generation
+	 */
+	public long getGeneration(final K key) {
+
+		final Segment<K, V> segment = getSegment(key);
+
+		synchronized (segment) {
+			return segment.generation;
+		}
+	}
+
+	/**
+	 * Stores the given value unless the segment of the key was modified
+	 * by a removal since the given generation was read.
+	 *
+	 * @param key
+	 * @param value
+	 * @param generation
+	 * @return whether the value was stored
+	 */
+	public boolean put(final K key, final V value, final long generation) {
+
+		final Segment<K, V> segment = getSegment(key);
+
+		synchronized (segment) {
+
+			if (segment.generation == generation) {
+
+				segment.put(key, value);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the value that is mapped to the given key, or stores and
+	 * returns the given value if there is none. Returns null if the
+	 * segment of the key was modified by a removal since the given
+	 * generation was read.
+	 *
+	 * @param key
+	 * @param value
+	 * @param generation
+	 * @return the mapped value or null
+	 */
+	public V putIfAbsent(final K key, final V value, final long generation) {
+
+		final Segment<K, V> segment = getSegment(key);
+
+		synchronized (segment) {
+
+			if (segment.generation == generation) {
+
+				final V existing = segment.get(key);
+				if (existing != null) {
+
+					return existing;
+				}
+
+				segment.put(key, value);
+				return value;
+			}
+		}
+
+		return null;
+	}
+
+	public V remove(final K key) {
+
+		final Segment<K, V> segment = getSegment(key);
+
+		synchronized (segment) {
+
+			segment.generation++;
+			return segment.remove(key);
+		}
+	}
+
+	public void clear() {
+
+		for (final Segment<K, V> segment : segments) {
+
+			synchronized (segment) {
+
+				segment.clear();
+				segment.generation++;
+			}
+		}
+	}
+
+	public int size() {
+
+		int size = 0;
+
+		for (final Segment<K, V> segment : segments) {
+
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+
+		for (final Segment<K, V> segment : segments) {
+
+			synchronized (segment) {
+
+				if (!segment.isEmpty()) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the number of entries that were evicted because a segment was full
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	// ----- private methods -----
+	private Segment<K, V> getSegment(final K key) {
+
+		final Segment<K, V>[] current = segments;
+		int hash                      = key.hashCode();
+
+		// spread the bits, node ids are sequential
+		hash ^= (hash >>> 16);
+		hash ^= (hash >>> 8);
+
+		return current[hash & (current.length - 1)];
+	}
+
+	private static int getSegmentCount(final int maxSize) {
+
+		int count = 1;
+
+		while (count < MAX_SEGMENTS && (count * 2) * MIN_SEGMENT_SIZE <= maxSize) {
+			count *= 2;
+		}
+
+		return count;
+	}
+
+	// ----- nested classes -----
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private final AtomicLong evictions;
+		private final int maxSize;
+		private long generation = 0L;
+
+		public Segment(final int maxSize, final AtomicLong evictions) {
+
+			super(16, 0.75f, true);
+
+			this.maxSize   = maxSize;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+
+			if (size() > maxSize) {
+
+				evictions.incrementAndGet();
+				return true;
+			}
+
+			return false;
+		}
+	}
+}
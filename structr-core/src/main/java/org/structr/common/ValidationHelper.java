@@ -30,6 +30,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 
 /**
  * Defines helper methods for property validation.
@@ -508,6 +509,14 @@ public class ValidationHelper {
 			boolean exists             = false;
 			String id                  = null;
 
+			// make sure that no concurrent transaction commits the same value
+			if (!TransactionCommand.reserveUniqueValue(object.getClass(), key, value)) {
+
+				errorBuffer.add(object.getType(), new ReservedValueToken(key, value));
+
+				return true;
+			}
+
 			try {
 
 				if (object instanceof NodeInterface) {
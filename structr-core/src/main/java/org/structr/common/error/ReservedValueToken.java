@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common.error;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * Indicates that a specific property value is reserved by a concurrent
+ * transaction and could not be validated within the reservation timeout.
+ * 
+ */
+public class ReservedValueToken extends SemanticErrorToken {
+
+	private Object value = null;
+
+	public ReservedValueToken(PropertyKey propertyKey, Object value) {
+
+		super(propertyKey);
+		this.value = value;
+	}
+
+	@Override
+	public JsonElement getContent() {
+
+		JsonObject obj = new JsonObject();
+
+		obj.add(getErrorToken(), new JsonPrimitive(value.toString()));
+
+		return obj;
+	}
+
+	@Override
+	public String getErrorToken() {
+		return "reserved_by_concurrent_transaction";
+	}
+}
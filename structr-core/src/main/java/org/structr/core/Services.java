@@ -78,13 +78,18 @@ public class Services {
 	public static final String BASE_PATH                     = "base.path";
 	public static final String CONFIGURED_SERVICES           = "configured.services";
 	public static final String CONFIG_FILE_PATH              = "configfile.path";
+	public static final String CYPHER_RESULT_CACHE_SIZE      = "cypher.result.cache.size";
 	public static final String DATABASE_PATH                 = "database.path";
+	public static final String ENTITY_CACHE_SIZE             = "entity.cache.size";
+	public static final String ENTITY_CACHE_MAX_AGE          = "entity.cache.maxage";
 	public static final String FILES_PATH                    = "files.path";
 	public static final String LOG_DATABASE_PATH             = "log.database.path";
 	public static final String FOREIGN_TYPE                  = "foreign.type.key";
 	public static final String NEO4J_SHELL_ENABLED           = "neo4j.shell.enabled";
 	public static final String LOG_SERVICE_INTERVAL          = "structr.logging.interval";
 	public static final String LOG_SERVICE_THRESHOLD         = "structr.logging.threshold";
+	public static final String LISTENER_QUEUE_SIZE           = "transaction.listener.queue.size";
+	public static final String LISTENER_BATCH_SIZE           = "transaction.listener.batch.size";
 	public static final String SERVER_IP                     = "server.ip";
 	public static final String SMTP_HOST                     = "smtp.host";
 	public static final String SMTP_PORT                     = "smtp.port";
@@ -94,6 +99,8 @@ public class Services {
 	public static final String SUPERUSER_PASSWORD            = "superuser.password";
 	public static final String TCP_PORT                      = "tcp.port";
 	public static final String TMP_PATH                      = "tmp.path";
+	public static final String TRANSACTION_COMMIT_MODE       = "transaction.commit.mode";
+	public static final String RESERVATION_TIMEOUT           = "transaction.reservation.timeout";
 	public static final String UDP_PORT                      = "udp.port";
 	public static final String JSON_INDENTATION              = "json.indentation";
 	public static final String GEOCODING_PROVIDER            = "geocoding.provider";
@@ -23,15 +23,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
-import org.neo4j.graphdb.GraphDatabaseService;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
-import org.structr.core.app.StructrApp;
 import org.structr.core.cypher.CypherQueryHandler;
 import org.structr.core.entity.AbstractNode;
-import org.structr.core.graph.GraphDatabaseCommand;
+import org.structr.core.graph.CypherExecutor;
 
 /**
  * Executes the given {@link CypherQueryConverter} on the current node and
@@ -43,24 +40,13 @@ public class CypherQueryConverter extends PropertyConverter {
 
 	private static final Logger logger = Logger.getLogger(CypherQueryConverter.class.getName());
 	
-	private GraphDatabaseService graphDb    = null;
-	private ExecutionEngine engine          = null;
-	private CypherQueryHandler handler      = null;
+	private CypherQueryHandler handler = null;
 
 	public CypherQueryConverter(SecurityContext securityContext, GraphObject entity, CypherQueryHandler handler) {
 		
 		super(securityContext, entity);
 		
 		this.handler = handler;
-		
-		try {
-			graphDb = (GraphDatabaseService)StructrApp.getInstance().command(GraphDatabaseCommand.class).execute();
-			engine  = new ExecutionEngine(graphDb);
-
-		} catch(Throwable t) {
-			
-			logger.log(Level.WARNING, "Unable to create cypher execution engine.");
-		}
 	}
 	
 	@Override
@@ -88,7 +74,7 @@ public class CypherQueryConverter extends PropertyConverter {
 
 			try {
 
-				List<AbstractNode> nodes = (List<AbstractNode>)handler.handleQueryResults(engine.execute(query, parameters));
+				List<AbstractNode> nodes = (List<AbstractNode>)handler.handleQueryResults(CypherExecutor.getInstance().execute(query, parameters, uuid));
 
 				return nodes;
 
@@ -18,9 +18,14 @@
  */
 package org.structr.core.entity;
 
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
@@ -30,8 +35,15 @@ import org.neo4j.helpers.Predicate;
 import org.neo4j.helpers.collection.Iterables;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeFactory;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.RelationshipFactory;
+import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 
@@ -61,6 +73,89 @@ public abstract class AbstractEndpoint {
 	}
 	
 	// ----- protected methods -----
+	/**
+	 * Groups the given relationships by the database ID of the node on the
+	 * other side of each relationship. Relationships to nodes that are not
+	 * readable in the given security context are left out, so that they
+	 * are neither deleted nor modified by the caller.
+	 *
+	 * @param securityContext the security context
+	 * @param dbNode the node the relationships are attached to
+	 * @param rels the relationships
+	 *
+	 * @return a map of other node ID to the relationships that lead to that node
+	 */
+	protected Map<Long, List<Relationship>> getRelationshipsByOtherNodeId(final SecurityContext securityContext, final Node dbNode, final Iterable<Relationship> rels) {
+
+		final Map<Long, List<Relationship>> map = new LinkedHashMap<>();
+		final NodeFactory<NodeInterface> factory = new NodeFactory<>(securityContext);
+		final boolean checkReadable              = !securityContext.isSuperUser();
+		final Set<Long> notReadable              = new HashSet<>();
+
+		for (final Relationship rel : rels) {
+
+			final Node otherNode             = rel.getOtherNode(dbNode);
+			final Long otherNodeId           = otherNode.getId();
+			List<Relationship> otherNodeRels = map.get(otherNodeId);
+
+			if (otherNodeRels == null) {
+
+				if (checkReadable && (notReadable.contains(otherNodeId) || !isReadable(factory, otherNode))) {
+
+					notReadable.add(otherNodeId);
+					continue;
+				}
+
+				otherNodeRels = new LinkedList<>();
+				map.put(otherNodeId, otherNodeRels);
+			}
+
+			otherNodeRels.add(rel);
+		}
+
+		return map;
+	}
+
+	/**
+	 * Deletes all relationships in the given map.
+	 *
+	 * @param securityContext the security context
+	 * @param rels the relationships to delete, as returned by {@link #getRelationshipsByOtherNodeId}
+	 *
+	 * @throws FrameworkException
+	 */
+	protected void deleteRelationships(final SecurityContext securityContext, final Map<Long, List<Relationship>> rels) throws FrameworkException {
+
+		final RelationshipFactory<RelationshipInterface> factory = new RelationshipFactory<>(securityContext);
+		final App app                                            = StructrApp.getInstance(securityContext);
+
+		for (final List<Relationship> otherNodeRels : rels.values()) {
+
+			for (final Relationship rel : otherNodeRels) {
+
+				final RelationshipInterface relationship = factory.instantiate(rel);
+				if (relationship != null) {
+
+					app.delete(relationship);
+				}
+			}
+		}
+	}
+
+	private boolean isReadable(final NodeFactory<NodeInterface> factory, final Node node) {
+
+		try {
+			// the factory returns null for nodes that are not readable
+			return factory.instantiate(node) != null;
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "Unable to instantiate node {0}: {1}", new Object[] { node.getId(), fex.getMessage() });
+		}
+
+		return false;
+	}
+
 	/**
 	 * Loads a PropertyMap from the current security context that was previously stored
 	 * there by one of the Notions that was executed before this relationship creation.
@@ -56,8 +56,11 @@ import org.structr.core.IterableAdapter;
 import org.structr.core.Ownership;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.relationship.PrincipalOwnsNode;
+import org.structr.core.graph.IndexAccess;
+import org.structr.core.graph.ModificationEvent;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeService;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.graph.RelationshipFactory;
 import org.structr.core.property.EntityIdProperty;
 import org.structr.core.property.StartNode;
@@ -837,25 +840,8 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 			return true;
 		}
 
-		Security r = getSecurityRelationship(principal);
-
-		if ((r != null) && r.isAllowed(permission)) {
-
-			return true;
-		}
-
-		// Now check possible parent principals
-		for (Principal parent : principal.getParents()) {
-
-			if (isGranted(permission, parent)) {
-
-				return true;
-			}
-
-		}
-
-		return false;
-
+		// check security relationships of the principal and all its parents
+		return PermissionCache.getInstance().isGranted(this, principal, permission);
 	}
 
 	@Override
@@ -1107,9 +1093,34 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 	
 	@Override
 	public void updateInIndex() {
-		
-		removeFromIndex();
-		addToIndex();
+
+		final ModificationEvent modificationEvent = TransactionCommand.getModificationEvent(this);
+		if (modificationEvent != null && !modificationEvent.isCreated() && !modificationEvent.isDeleted()) {
+
+			// entity is known to the current transaction, so we
+			// only need to update the keys that actually changed
+			final PropertyMap previousValues = modificationEvent.getRemovedProperties();
+			final PropertyMap newValues      = modificationEvent.getModifiedProperties();
+
+			for (final PropertyKey key : newValues.keySet()) {
+
+				if (key.isIndexed() && !key.isPassivelyIndexed()) {
+
+					final Object previousValue = previousValues.get(key);
+					final Object newValue      = newValues.get(key);
+
+					if (previousValue != null ? !previousValue.equals(newValue) : newValue != null) {
+
+						key.index(this, this.getPropertyForIndexing(key));
+					}
+				}
+			}
+
+		} else {
+
+			removeFromIndex();
+			addToIndex();
+		}
 	}
 	
 	@Override
@@ -1117,10 +1128,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 		
 		for (Index<Node> index : Services.getInstance().getService(NodeService.class).getNodeIndices()) {
 			
-			synchronized (index) {
-				
-				index.remove(dbNode);
-			}
+			IndexAccess.remove(index, dbNode);
 		}
 	}
 	
@@ -1128,10 +1136,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 		
 		for (Index<Node> index : Services.getInstance().getService(NodeService.class).getNodeIndices()) {
 			
-			synchronized (index) {
-				
-				index.remove(dbNode, key.dbName());
-			}
+			IndexAccess.remove(index, dbNode, key.dbName());
 		}
 	}
 	
@@ -49,8 +49,11 @@ import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.graph.NodeFactory;
+import org.structr.core.graph.IndexAccess;
+import org.structr.core.graph.ModificationEvent;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeService;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.Property;
@@ -626,9 +629,34 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 	
 	@Override
 	public void updateInIndex() {
-		
-		removeFromIndex();
-		addToIndex();
+
+		final ModificationEvent modificationEvent = TransactionCommand.getModificationEvent(this);
+		if (modificationEvent != null && !modificationEvent.isCreated() && !modificationEvent.isDeleted()) {
+
+			// entity is known to the current transaction, so we
+			// only need to update the keys that actually changed
+			final PropertyMap previousValues = modificationEvent.getRemovedProperties();
+			final PropertyMap newValues      = modificationEvent.getModifiedProperties();
+
+			for (final PropertyKey key : newValues.keySet()) {
+
+				if (key.isIndexed() && !key.isPassivelyIndexed()) {
+
+					final Object previousValue = previousValues.get(key);
+					final Object newValue      = newValues.get(key);
+
+					if (previousValue != null ? !previousValue.equals(newValue) : newValue != null) {
+
+						key.index(this, this.getPropertyForIndexing(key));
+					}
+				}
+			}
+
+		} else {
+
+			removeFromIndex();
+			addToIndex();
+		}
 	}
 	
 	@Override
@@ -636,10 +664,7 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 		
 		for (Index<Relationship> index : Services.getInstance().getService(NodeService.class).getRelationshipIndices()) {
 			
-			synchronized (index) {
-				
-				index.remove(dbRelationship);
-			}
+			IndexAccess.remove(index, dbRelationship);
 		}
 	}
 	
@@ -647,10 +672,7 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 		
 		for (Index<Relationship> index : Services.getInstance().getService(NodeService.class).getRelationshipIndices()) {
 			
-			synchronized (index) {
-				
-				index.remove(dbRelationship, key.dbName());
-			}
+			IndexAccess.remove(index, dbRelationship, key.dbName());
 		}
 	}
 	
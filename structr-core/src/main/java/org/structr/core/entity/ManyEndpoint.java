@@ -18,7 +18,10 @@
  */
 package org.structr.core.entity;
 
-import java.util.LinkedHashSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
@@ -70,40 +73,50 @@ public class ManyEndpoint<T extends NodeInterface> extends AbstractEndpoint impl
 	@Override
 	public void set(final SecurityContext securityContext, final NodeInterface sourceNode, final Iterable<T> collection) throws FrameworkException {
 
-		final App app            = StructrApp.getInstance(securityContext);
-		final Set<T> toBeDeleted = new LinkedHashSet<>(Iterables.toList(get(securityContext, sourceNode, null)));
-		final Set<T> toBeCreated = new LinkedHashSet<>();
+		final App app                                   = StructrApp.getInstance(securityContext);
+		final Node dbNode                               = sourceNode.getNode();
+		final Map<Long, List<Relationship>> toBeDeleted = getRelationshipsByOtherNodeId(securityContext, dbNode, getRawSource(securityContext, dbNode, null));
+		final Map<Long, T> toBeCreated                  = new LinkedHashMap<>();
+		final Set<Long> unchanged                       = new HashSet<>();
 
 		if (collection != null) {
-			Iterables.addAll(toBeCreated, collection);
-		}
 
-		// create intersection of both sets
-		final Set<T> intersection = new LinkedHashSet<>(toBeCreated);
-		intersection.retainAll(toBeDeleted);
+			for (final T targetNode : collection) {
 
-		// intersection needs no change
-		toBeCreated.removeAll(intersection);
-		toBeDeleted.removeAll(intersection);
-		
-		// remove existing relationships
-		for (T targetNode : toBeDeleted) {
+				if (targetNode != null) {
 
-			for (AbstractRelationship rel : sourceNode.getOutgoingRelationships()) {
+					final Long id = targetNode.getNode().getId();
 
-				if (rel.getRelType().equals(relation) && rel.getTargetNode().equals(targetNode)) {
+					if (toBeDeleted.containsKey(id)) {
 
-					app.delete(rel);
-				}
+						// existing relationship, no change needed
+						unchanged.add(id);
 
+					} else {
+
+						toBeCreated.put(id, targetNode);
+					}
+				}
 			}
 		}
-		
-		// test: obtain properties from notion
+
+		toBeDeleted.keySet().removeAll(unchanged);
+
+		// remove existing relationships
+		deleteRelationships(securityContext, toBeDeleted);
+
+		// duplicates are impossible here because only nodes without an existing
+		// relationship are in the create set, so only the other side needs a check
+		final boolean ensureCardinality = Relation.Multiplicity.One.equals(relation.getSourceMultiplicity());
+
 		// create new relationships
-		for (T targetNode : toBeCreated) {
+		for (final T targetNode : toBeCreated.values()) {
+
+			if (ensureCardinality) {
 
-			relation.ensureCardinality(securityContext, sourceNode, targetNode);
+				// target nodes with a single source must be detached from their previous source
+				relation.ensureCardinality(securityContext, sourceNode, targetNode);
+			}
 
 			app.create(sourceNode, targetNode, relation.getClass(), getNotionProperties(securityContext, relation.getClass(), targetNode.getUuid()));
 		}
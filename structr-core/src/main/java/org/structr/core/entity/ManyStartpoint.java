@@ -18,7 +18,10 @@
  */
 package org.structr.core.entity;
 
-import java.util.LinkedHashSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
@@ -70,40 +73,51 @@ public class ManyStartpoint<S extends NodeInterface> extends AbstractEndpoint im
 	@Override
 	public void set(final SecurityContext securityContext, final NodeInterface targetNode, final Iterable<S> collection) throws FrameworkException {
 
-		final App app            = StructrApp.getInstance(securityContext);
-		final Set<S> toBeDeleted = new LinkedHashSet<>(Iterables.toList(get(securityContext, targetNode, null)));
-		final Set<S> toBeCreated = new LinkedHashSet<>();
+		final App app                                   = StructrApp.getInstance(securityContext);
+		final Node dbNode                               = targetNode.getNode();
+		final Map<Long, List<Relationship>> toBeDeleted = getRelationshipsByOtherNodeId(securityContext, dbNode, getRawSource(securityContext, dbNode, null));
+		final Map<Long, S> toBeCreated                  = new LinkedHashMap<>();
+		final Set<Long> unchanged                       = new HashSet<>();
 
 		if (collection != null) {
-			Iterables.addAll(toBeCreated, collection);
-		}
 
-		// create intersection of both sets
-		final Set<S> intersection = new LinkedHashSet<>(toBeCreated);
-		intersection.retainAll(toBeDeleted);
+			for (final S sourceNode : collection) {
 
-		// intersection needs no change
-		toBeCreated.removeAll(intersection);
-		toBeDeleted.removeAll(intersection);
-		
-		// remove existing relationships
-		for (S sourceNode : toBeDeleted) {
+				if (sourceNode != null) {
 
-			for (AbstractRelationship rel : targetNode.getIncomingRelationships()) {
+					final Long id = sourceNode.getNode().getId();
 
-				if (rel.getRelType().equals(relation) && rel.getSourceNode().equals(sourceNode)) {
+					if (toBeDeleted.containsKey(id)) {
 
-					app.delete(rel);
-				}
+						// existing relationship, no change needed
+						unchanged.add(id);
 
+					} else {
+
+						toBeCreated.put(id, sourceNode);
+					}
+				}
 			}
 		}
-		
+
+		toBeDeleted.keySet().removeAll(unchanged);
+
+		// remove existing relationships
+		deleteRelationships(securityContext, toBeDeleted);
+
+		// duplicates are impossible here because only nodes without an existing
+		// relationship are in the create set, so only the other side needs a check
+		final boolean ensureCardinality = Relation.Multiplicity.One.equals(relation.getTargetMultiplicity());
+
 		// create new relationships
-		for (S sourceNode : toBeCreated) {
+		for (final S sourceNode : toBeCreated.values()) {
+
+			if (ensureCardinality) {
+
+				// source nodes with a single target must be detached from their previous target
+				relation.ensureCardinality(securityContext, sourceNode, targetNode);
+			}
 
-			relation.ensureCardinality(securityContext, sourceNode, targetNode);
-			
 			app.create(sourceNode, targetNode, relation.getClass(), getNotionProperties(securityContext, relation.getClass(), sourceNode.getUuid()));
 		}
 	}
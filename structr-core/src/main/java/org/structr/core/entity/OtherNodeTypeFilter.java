@@ -28,6 +28,9 @@ import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 
 /**
+ * Accepts relationships whose other node is of the desired type. The type
+ * of the other node is resolved without instantiating it, so that only
+ * nodes of the desired type are instantiated to evaluate the predicate.
  *
  * @author Christian Morgner
  */
@@ -37,6 +40,7 @@ public class OtherNodeTypeFilter implements Predicate<Relationship> {
 	private NodeFactory nodeFactory              = null;
 	private Node thisNode                        = null;
 	private Class desiredType                    = null;
+	private boolean acceptsAllTypes              = false;
 
 	public OtherNodeTypeFilter(final SecurityContext securityContext, final Node thisNode, final Class desiredType) {
 		this(securityContext, thisNode, desiredType, null);
@@ -44,25 +48,34 @@ public class OtherNodeTypeFilter implements Predicate<Relationship> {
 	
 	public OtherNodeTypeFilter(final SecurityContext securityContext, final Node thisNode, final Class desiredType, final Predicate<GraphObject> nodePredicate) {
 
-		this.nodePredicate = nodePredicate;
-		this.nodeFactory   = new NodeFactory(SecurityContext.getSuperUserInstance());
-		this.desiredType   = desiredType;
-		this.thisNode      = thisNode;
+		this.nodePredicate   = nodePredicate;
+		this.nodeFactory     = new NodeFactory(SecurityContext.getSuperUserInstance());
+		this.desiredType     = desiredType;
+		this.thisNode        = thisNode;
+
+		// every node type is assignable to these, no need to look at the other node
+		this.acceptsAllTypes = NodeInterface.class.equals(desiredType) || AbstractNode.class.equals(desiredType);
 	}
 
 	@Override
 	public boolean accept(final Relationship item) {
 
-		try {
-			final NodeInterface otherNode = nodeFactory.instantiate(item.getOtherNode(thisNode));
+		final Node otherDbNode = item.getOtherNode(thisNode);
 
-			// check predicate if exists
-			if (nodePredicate == null || nodePredicate.accept(otherNode)) {
-				
-				final Class otherNodeType = otherNode.getClass();
+		// check type first, only nodes of the desired type need to be instantiated
+		if (!acceptsAllTypes && !isDesiredType(nodeFactory.determineNodeType(otherDbNode))) {
+			return false;
+		}
 
-				return desiredType.isAssignableFrom(otherNodeType) || otherNodeType.isAssignableFrom(desiredType);
-			}
+		if (nodePredicate == null) {
+			return true;
+		}
+
+		try {
+			final NodeInterface otherNode = nodeFactory.instantiate(otherDbNode);
+
+			// check predicate
+			return otherNode != null && nodePredicate.accept(otherNode);
 
 		} catch (FrameworkException fex) {
 			fex.printStackTrace();
@@ -70,4 +83,9 @@ public class OtherNodeTypeFilter implements Predicate<Relationship> {
 
 		return false;
 	}
+
+	// ----- private methods -----
+	private boolean isDesiredType(final Class otherNodeType) {
+		return otherNodeType != null && (desiredType.isAssignableFrom(otherNodeType) || otherNodeType.isAssignableFrom(desiredType));
+	}
 }
@@ -30,6 +30,7 @@ import java.util.logging.Logger;
 import org.apache.commons.lang.ArrayUtils;
 import org.neo4j.graphdb.Relationship;
 import org.structr.common.Permission;
+import org.structr.common.PermissionCache;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -41,6 +42,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.ArrayProperty;
 import org.structr.core.property.SourceId;
 import org.structr.core.property.TargetId;
@@ -160,6 +162,15 @@ public class Security extends ManyToMany<Principal, NodeInterface> {
 
 		dbRelationship.setProperty(Security.allowed.dbName(), allowed);
 
+		// make sure that cached permissions of the target node are updated
+		if (TransactionCommand.inTransaction()) {
+
+			TransactionCommand.relationshipModified(this, Security.allowed, null, allowed);
+
+		} else {
+
+			PermissionCache.getInstance().invalidate(dbRelationship.getEndNode().getId());
+		}
 	}
 	
 	public String[] getPermissions() {
@@ -111,7 +111,9 @@ public class BulkChangeNodePropertyKeyCommand extends NodeServiceCommand impleme
 
 							}
 
-							node.updateInIndex();
+							// full rebuild, the key was renamed in the database directly
+							node.removeFromIndex();
+							node.addToIndex();
 
 						}
 
@@ -98,7 +98,9 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 				@Override
 				public void handleGraphObject(SecurityContext securityContext, AbstractNode node) {
 
-					node.updateInIndex();
+					// full rebuild of all indices
+					node.removeFromIndex();
+					node.addToIndex();
 
 				}
 
@@ -152,7 +154,9 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 				@Override
 				public void handleGraphObject(SecurityContext securityContext, AbstractRelationship rel) {
 
-					rel.updateInIndex();
+					// full rebuild of all indices
+					rel.removeFromIndex();
+					rel.addToIndex();
 
 				}
 
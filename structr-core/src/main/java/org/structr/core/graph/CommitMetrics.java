@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects commit throughput statistics per entity type: the number of
+ * successful and failed commits, the time spent in validation and
+ * indexing, and the number of conflicts on reserved values.
+ */
+public class CommitMetrics {
+
+	private static final CommitMetrics instance = new CommitMetrics();
+
+	private final ConcurrentMap<String, TypeMetrics> metrics = new ConcurrentHashMap<>();
+
+	private CommitMetrics() {}
+
+	public static CommitMetrics getInstance() {
+		return instance;
+	}
+
+	public void commit(final Iterable<String> types, final long nanos, final boolean success) {
+
+		for (final String type : types) {
+
+			final TypeMetrics typeMetrics = getMetrics(type);
+
+			if (success) {
+
+				typeMetrics.commits.incrementAndGet();
+
+			} else {
+
+				typeMetrics.failures.incrementAndGet();
+			}
+
+			typeMetrics.nanos.addAndGet(nanos);
+		}
+	}
+
+	public void conflict(final String type, final long waitNanos) {
+
+		final TypeMetrics typeMetrics = getMetrics(type);
+
+		typeMetrics.conflicts.incrementAndGet();
+		typeMetrics.waitNanos.addAndGet(waitNanos);
+	}
+
+	public TypeMetrics get(final String type) {
+		return metrics.get(type);
+	}
+
+	/**
+	 * @return a sorted snapshot of the metrics of all types
+	 */
+	public Map<String, TypeMetrics> getAll() {
+		return Collections.unmodifiableMap(new TreeMap<>(metrics));
+	}
+
+	public void clear() {
+		metrics.clear();
+	}
+
+	private TypeMetrics getMetrics(final String type) {
+
+		TypeMetrics typeMetrics = metrics.get(type);
+		if (typeMetrics == null) {
+
+			typeMetrics = new TypeMetrics();
+
+			final TypeMetrics existing = metrics.putIfAbsent(type, typeMetrics);
+			if (existing != null) {
+
+				typeMetrics = existing;
+			}
+		}
+
+		return typeMetrics;
+	}
+
+	// ----- nested classes -----
+	public static class TypeMetrics {
+
+		private final AtomicLong commits   = new AtomicLong();
+		private final AtomicLong failures  = new AtomicLong();
+		private final AtomicLong conflicts = new AtomicLong();
+		private final AtomicLong nanos     = new AtomicLong();
+		private final AtomicLong waitNanos = new AtomicLong();
+
+		public long getCommits() {
+			return commits.get();
+		}
+
+		public long getFailures() {
+			return failures.get();
+		}
+
+		public long getConflicts() {
+			return conflicts.get();
+		}
+
+		/**
+		 * @return the average validation and indexing time per commit in milliseconds
+		 */
+		public double getAverageCommitTime() {
+
+			final long count = commits.get() + failures.get();
+
+			return count > 0 ? (nanos.get() / 1000000.0) / count : 0.0;
+		}
+
+		/**
+		 * @return the total time spent waiting for conflicting reservations in milliseconds
+		 */
+		public double getWaitTime() {
+			return waitNanos.get() / 1000000.0;
+		}
+
+		@Override
+		public String toString() {
+			return getCommits() + " commits, " + getFailures() + " failures, " + getConflicts() + " conflicts, " + getAverageCommitTime() + " ms/commit";
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.neo4j.cypher.javacompat.ExecutionEngine;
+import org.neo4j.cypher.javacompat.ExecutionResult;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * Shared Cypher execution service. Holds the single {@link ExecutionEngine}
+ * of the database, so that parsed execution plans are cached across all
+ * callers, keyed by query text.
+ *
+ * Results can optionally be memoized per query, parameters and entity.
+ * Queries with parameters other than strings, numbers and booleans are
+ * not memoized, because their values cannot be compared. Memoized rows
+ * contain raw database nodes and relationships only, so they can be shared
+ * between security contexts, and they are discarded after every successful
+ * commit. Queries executed inside a transaction are never memoized, because
+ * their results may contain uncommitted data.
+ */
+public class CypherExecutor {
+
+	public static final int DEFAULT_PLAN_CACHE_SIZE       = 100;
+	public static final int DEFAULT_RESULT_CACHE_SIZE     = 0;
+
+	private static final CypherExecutor instance          = new CypherExecutor();
+
+	private final AtomicLong executions                   = new AtomicLong(0);
+	private final AtomicLong executionNanos               = new AtomicLong(0);
+	private final AtomicLong resultHits                   = new AtomicLong(0);
+	private final AtomicLong resultMisses                 = new AtomicLong(0);
+	private final Map<String, QueryStatistics> statistics;
+	private final Map<String, List<Map<String, Object>>> results;
+	private volatile ExecutionEngine engine               = null;
+	private volatile int resultCacheSize                  = DEFAULT_RESULT_CACHE_SIZE;
+	private long generation                               = 0L;
+
+	private CypherExecutor() {
+
+		// execution statistics of the most recently used query texts
+		this.statistics = new LinkedHashMap<String, QueryStatistics>(DEFAULT_PLAN_CACHE_SIZE, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, QueryStatistics> eldest) {
+				return size() > DEFAULT_PLAN_CACHE_SIZE;
+			}
+		};
+
+		this.results = new LinkedHashMap<String, List<Map<String, Object>>>(256, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, List<Map<String, Object>>> eldest) {
+				return size() > resultCacheSize;
+			}
+		};
+	}
+
+	public static CypherExecutor getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Creates the execution engine for the given database. Must be called
+	 * before any query can be executed.
+	 *
+	 * @param graphDb
+	 */
+	public synchronized void initialize(final GraphDatabaseService graphDb) {
+
+		this.engine = new ExecutionEngine(graphDb);
+
+		statistics.clear();
+		results.clear();
+	}
+
+	/**
+	 * Sets the maximum number of memoized results, 0 disables
+	 * result memoization.
+	 *
+	 * @param resultCacheSize
+	 */
+	public synchronized void configure(final int resultCacheSize) {
+
+		this.resultCacheSize = Math.max(0, resultCacheSize);
+
+		if (this.resultCacheSize == 0) {
+			results.clear();
+		}
+	}
+
+	public synchronized void shutdown() {
+
+		engine = null;
+
+		statistics.clear();
+		results.clear();
+	}
+
+	/**
+	 * Executes the given query and returns the materialized result rows.
+	 *
+	 * @param query
+	 * @param parameters the query parameters, may be null
+	 * @return the result rows
+	 */
+	public List<Map<String, Object>> execute(final String query, final Map<String, Object> parameters) {
+		return execute(query, parameters, null);
+	}
+
+	/**
+	 * Executes the given query on behalf of the entity with the given UUID
+	 * and returns the materialized result rows. If result memoization is
+	 * enabled, the rows are cached for the given query, parameters and
+	 * entity until the next successful commit.
+	 *
+	 * @param query
+	 * @param parameters the query parameters, may be null
+	 * @param uuid the UUID of the entity, or null to disable memoization
+	 * @return the result rows
+	 */
+	public List<Map<String, Object>> execute(final String query, final Map<String, Object> parameters, final String uuid) {
+
+		final ExecutionEngine currentEngine = engine;
+		if (currentEngine == null) {
+
+			throw new IllegalStateException("Cypher execution engine is not initialized.");
+		}
+
+		final String resultKey = uuid != null && resultCacheSize > 0 && !TransactionCommand.inTransaction() ? getResultKey(query, parameters, uuid) : null;
+		final boolean memoize  = resultKey != null;
+		long currentGeneration = 0L;
+
+		if (memoize) {
+
+			synchronized (this) {
+
+				final List<Map<String, Object>> cached = results.get(resultKey);
+				if (cached != null) {
+
+					resultHits.incrementAndGet();
+					return cached;
+				}
+
+				currentGeneration = generation;
+			}
+
+			resultMisses.incrementAndGet();
+		}
+
+		final long t0                          = System.nanoTime();
+		final ExecutionResult result           = parameters != null ? currentEngine.execute(query, parameters) : currentEngine.execute(query);
+		final List<Map<String, Object>> rows   = new ArrayList<>();
+
+		for (final Map<String, Object> row : result) {
+			rows.add(row);
+		}
+
+		final List<Map<String, Object>> unmodifiableRows = Collections.unmodifiableList(rows);
+		final long nanos                                 = System.nanoTime() - t0;
+
+		executions.incrementAndGet();
+		executionNanos.addAndGet(nanos);
+
+		synchronized (this) {
+
+			QueryStatistics stats = statistics.get(query);
+			if (stats == null) {
+
+				stats = new QueryStatistics();
+				statistics.put(query, stats);
+			}
+
+			stats.executions++;
+			stats.nanos += nanos;
+
+			// do not store results that were computed before the last commit
+			if (memoize && currentGeneration == generation) {
+
+				results.put(resultKey, unmodifiableRows);
+			}
+		}
+
+		return unmodifiableRows;
+	}
+
+	/**
+	 * Discards all memoized results. Called after every successful commit,
+	 * because any modification can change the result of any query.
+	 */
+	public synchronized void invalidate() {
+
+		generation++;
+		results.clear();
+	}
+
+	public long getExecutions() {
+		return executions.get();
+	}
+
+	public long getExecutionNanos() {
+		return executionNanos.get();
+	}
+
+	public long getResultCacheHits() {
+		return resultHits.get();
+	}
+
+	public long getResultCacheMisses() {
+		return resultMisses.get();
+	}
+
+	public synchronized int getResultCacheSize() {
+		return results.size();
+	}
+
+	/**
+	 * Returns a snapshot of the execution statistics of the most recently
+	 * used queries, keyed by query text.
+	 *
+	 * @return the query statistics
+	 */
+	public synchronized Map<String, QueryStatistics> getQueryStatistics() {
+
+		final Map<String, QueryStatistics> snapshot = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, QueryStatistics> entry : statistics.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().copy());
+		}
+
+		return snapshot;
+	}
+
+	@Override
+	public String toString() {
+		return "CypherExecutor(executions: " + executions.get() + ", result hits: " + resultHits.get() + ", result misses: " + resultMisses.get() + ")";
+	}
+
+	// ----- private methods -----
+	private String getResultKey(final String query, final Map<String, Object> parameters, final String uuid) {
+
+		final StringBuilder buf = new StringBuilder(query).append('\u0000').append(uuid);
+
+		if (parameters != null) {
+
+			// sorted, so that the key does not depend on the order of the parameters
+			for (final Map.Entry<String, Object> entry : new TreeMap<>(parameters).entrySet()) {
+
+				final Object value = entry.getValue();
+				if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+
+					// cannot compare this value, do not memoize
+					return null;
+				}
+
+				buf.append('\u0000').append(entry.getKey()).append('=');
+
+				if (value != null) {
+					buf.append(value.getClass().getSimpleName()).append(':').append(value);
+				}
+			}
+		}
+
+		return buf.toString();
+	}
+
+	// ----- nested classes -----
+	public static class QueryStatistics {
+
+		private long executions = 0L;
+		private long nanos      = 0L;
+
+		public long getExecutions() {
+			return executions;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		public long getAverageNanos() {
+			return executions > 0 ? nanos / executions : 0L;
+		}
+
+		private QueryStatistics copy() {
+
+			final QueryStatistics copy = new QueryStatistics();
+
+			copy.executions = executions;
+			copy.nanos      = nanos;
+
+			return copy;
+		}
+	}
+}
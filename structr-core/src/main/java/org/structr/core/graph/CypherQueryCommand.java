@@ -18,8 +18,6 @@
  */
 package org.structr.core.graph;
 
-import org.neo4j.cypher.javacompat.ExecutionEngine;
-import org.neo4j.cypher.javacompat.ExecutionResult;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 
@@ -48,8 +46,6 @@ public class CypherQueryCommand extends NodeServiceCommand {
 
 	private static final Logger logger = Logger.getLogger(CypherQueryCommand.class.getName());
 	
-	//protected static final ThreadLocalExecutionEngine engine = new ThreadLocalExecutionEngine();
-	
 	//~--- methods --------------------------------------------------------
 
 	public List<GraphObject> execute(String query) throws FrameworkException {
@@ -66,23 +62,12 @@ public class CypherQueryCommand extends NodeServiceCommand {
 	
 	public List<GraphObject> execute(String query, Map<String, Object> parameters, boolean includeHiddenAndDeleted, boolean publicOnly) throws FrameworkException {
 
-		ExecutionEngine     engine      = (ExecutionEngine) arguments.get("cypherExecutionEngine");
 		RelationshipFactory relFactory  = new RelationshipFactory(securityContext);
 		NodeFactory nodeFactory         = new NodeFactory(securityContext);
 
 		List<GraphObject> resultList = new LinkedList<>();
-		ExecutionResult result       = null;
-
-		if (parameters != null) {
-
-			result = engine.execute(query, parameters);
-			
-		} else {
-			
-			result = engine.execute(query);
-		}
 
-		for (Map<String, Object> row : result) {
+		for (Map<String, Object> row : CypherExecutor.getInstance().execute(query, parameters)) {
 
 			GraphObjectMap dummyObject = null;
 			
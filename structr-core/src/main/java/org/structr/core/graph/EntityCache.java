@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.common.StripedLruMap;
+
+/**
+ * Bounded, cross-request cache for the security-neutral part of node
+ * instantiation, i.e. the entity type that is resolved from the type
+ * property of a database node, and the raw value of that property,
+ * which is needed to resolve the type of relationships.
+ *
+ * Entity instances themselves are bound to the security context they
+ * were created for, so they are only cached per {@link org.structr.common.SecurityContext},
+ * never across requests. This cache evicts entries by size (least
+ * recently used first) and by age, and is invalidated for all nodes
+ * modified in a successful transaction.
+ *
+ * Values are resolved outside of the cache, so callers must read
+ * {@link #getGeneration(long)} before reading the database node and
+ * pass it to the put methods. A value is dropped if the node was
+ * invalidated in the meantime, so a slow reader cannot re-insert a
+ * stale type after a commit.
+ */
+public class EntityCache {
+
+	public static final int DEFAULT_MAX_SIZE     = 100000;
+	public static final long DEFAULT_MAX_AGE     = 600;
+	public static final String NO_TYPE_NAME      = "";
+
+	private static final EntityCache instance    = new EntityCache();
+
+	private final AtomicLong hits                = new AtomicLong(0);
+	private final AtomicLong misses              = new AtomicLong(0);
+	private final AtomicLong expirations         = new AtomicLong(0);
+	private final StripedLruMap<Long, Entry> entries;
+	private volatile int maxSize                 = DEFAULT_MAX_SIZE;
+	private volatile long maxAge                 = DEFAULT_MAX_AGE * 1000L;
+
+	private EntityCache() {
+		this.entries = new StripedLruMap<>(DEFAULT_MAX_SIZE);
+	}
+
+	public static EntityCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the maximum number of entries and the maximum age
+	 * of an entry in seconds.
+	 *
+	 * @param maxSize
+	 * @param maxAgeSeconds
+	 */
+	public synchronized void configure(final int maxSize, final long maxAgeSeconds) {
+
+		this.maxSize = maxSize;
+		this.maxAge  = maxAgeSeconds * 1000L;
+
+		entries.setMaxSize(Math.max(1, maxSize));
+	}
+
+	/**
+	 * Returns the invalidation generation of the given node. Read this
+	 * before resolving a value that is passed to {@link #putType} or
+	 * {@link #putTypeName}.
+	 *
+	 * @param nodeId
+	 * @return the current generation
+	 */
+	public long getGeneration(final long nodeId) {
+		return entries.getGeneration(nodeId);
+	}
+
+	public Class getType(final long nodeId) {
+
+		if (maxSize <= 0) {
+			return null;
+		}
+
+		final Entry entry = getEntry(nodeId);
+		if (entry != null && entry.type != null) {
+
+			hits.incrementAndGet();
+			return entry.type;
+		}
+
+		misses.incrementAndGet();
+
+		return null;
+	}
+
+	public void putType(final long nodeId, final Class type, final long generation) {
+
+		if (maxSize > 0 && type != null) {
+
+			final Entry existing = entries.get(nodeId);
+			entries.put(nodeId, new Entry(type, existing != null ? existing.typeName : null), generation);
+		}
+	}
+
+	/**
+	 * Returns the cached value of the type property of the given node,
+	 * {@link #NO_TYPE_NAME} if the node has no type property, or null
+	 * if the value is not cached.
+	 *
+	 * @param nodeId
+	 * @return the cached type name or null
+	 */
+	public String getTypeName(final long nodeId) {
+
+		if (maxSize <= 0) {
+			return null;
+		}
+
+		final Entry entry = getEntry(nodeId);
+		if (entry != null && entry.typeName != null) {
+
+			hits.incrementAndGet();
+			return entry.typeName;
+		}
+
+		misses.incrementAndGet();
+
+		return null;
+	}
+
+	public void putTypeName(final long nodeId, final String typeName, final long generation) {
+
+		if (maxSize > 0 && typeName != null) {
+
+			// type names are shared by many nodes
+			final Entry existing = entries.get(nodeId);
+			entries.put(nodeId, new Entry(existing != null ? existing.type : null, typeName.intern()), generation);
+		}
+	}
+
+	public void invalidate(final long nodeId) {
+		entries.remove(nodeId);
+	}
+
+	/**
+	 * Removes all nodes contained in the given modification events
+	 * from this cache.
+	 *
+	 * @param modificationEvents
+	 */
+	public void invalidate(final Iterable<ModificationEvent> modificationEvents) {
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			if (event.isNode()) {
+
+				entries.remove(((NodeInterface)event.getGraphObject()).getId());
+			}
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return entries.getEvictions() + expirations.get();
+	}
+
+	public double getHitRatio() {
+
+		final long h = hits.get();
+		final long m = misses.get();
+
+		return (h + m) > 0 ? (double)h / (double)(h + m) : 0.0;
+	}
+
+	@Override
+	public String toString() {
+		return "EntityCache(size: " + size() + ", hits: " + hits.get() + ", misses: " + misses.get() + ", evictions: " + getEvictions() + ")";
+	}
+
+	// ----- private methods -----
+	private Entry getEntry(final long nodeId) {
+
+		final Entry entry = entries.get(nodeId);
+		if (entry != null && System.currentTimeMillis() - entry.timestamp > maxAge) {
+
+			// expired
+			entries.remove(nodeId);
+			expirations.incrementAndGet();
+
+			return null;
+		}
+
+		return entry;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Immutable, entries are replaced on update. Two concurrent puts
+	 * for the same node may lose one of the values, which only causes
+	 * another cache miss.
+	 */
+	private static class Entry {
+
+		private final Class type;
+		private final String typeName;
+		private final long timestamp;
+
+		public Entry(final Class type, final String typeName) {
+
+			this.type      = type;
+			this.typeName  = typeName;
+			this.timestamp = System.currentTimeMillis();
+		}
+	}
+}
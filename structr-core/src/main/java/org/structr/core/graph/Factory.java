@@ -18,8 +18,12 @@
  */
 package org.structr.core.graph;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.neo4j.graphdb.index.IndexHits;
@@ -141,7 +145,7 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	 */
 	public List<T> bulkInstantiate(final Iterable<S> input) throws FrameworkException {
 
-		List<T> nodes = new LinkedList<>();
+		List<T> nodes = new ArrayList<>();
 
 		if ((input != null) && input.iterator().hasNext()) {
 
@@ -158,6 +162,63 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 		return nodes;
 	}
 
+	/**
+	 * Create structr nodes lazily from the given underlying database nodes.
+	 * Each element is instantiated and security-checked only when the
+	 * consumer advances the returned iterator, elements that are not
+	 * visible in the current security context are skipped.
+	 *
+	 * No paging, and no intermediate list is built, so this method can
+	 * be used to process very large inputs in constant memory.
+	 *
+	 * @param input
+	 * @return
+	 */
+	public Iterable<T> instantiateLazily(final Iterable<S> input) {
+
+		return new Iterable<T>() {
+
+			@Override
+			public Iterator<T> iterator() {
+
+				final Iterator<S> source = input != null ? input.iterator() : Collections.<S>emptyIterator();
+
+				return new Iterator<T>() {
+
+					private T next = null;
+
+					@Override
+					public boolean hasNext() {
+
+						while (next == null && source.hasNext()) {
+							next = adapt(source.next());
+						}
+
+						return next != null;
+					}
+
+					@Override
+					public T next() {
+
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+
+						final T current = next;
+						next = null;
+
+						return current;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException("Removal not supported.");
+					}
+				};
+			}
+		};
+	}
+
 	@Override
 	public T adapt(S s) {
 
@@ -182,17 +243,15 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	}
 
 	// <editor-fold defaultstate="collapsed" desc="private methods">
-	protected List<S> read(final Iterable<S> it) {
-
-		List<S> nodes = new LinkedList();
-
-		while (it.iterator().hasNext()) {
-
-			nodes.add(it.iterator().next());
-		}
+	/**
+	 * Returns the number of elements in the given range of a page, or -1
+	 * if the window exceeds the integer range (i.e. is unbounded).
+	 */
+	private static int windowSize(final int page, final int pageSize) {
 
-		return nodes;
+		final long window = -1L * page * pageSize;
 
+		return window > Integer.MAX_VALUE ? -1 : (int)window;
 	}
 
 	protected Result resultWithOffsetId(final IndexHits<S> input) throws FrameworkException {
@@ -201,16 +260,15 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 		final int pageSize       = Math.min(size, factoryProfile.getPageSize());
 		final int page           = factoryProfile.getPage();
 		final String offsetId    = factoryProfile.getOffsetId();
-		List<T> elements         = new LinkedList<>();
-		int position             = 0;
-		int count                = 0;
-		int offset               = 0;
-
-		// We have an offsetId, so first we need to
-		// find the node with this uuid to get the offset
-		List<T> nodesUpToOffset = new LinkedList();
-		int i                   = 0;
+		final int window         = windowSize(page, pageSize);
+		final List<T> elements   = new ArrayList<>(Math.min(pageSize, 1000));
 		boolean gotOffset        = false;
+		boolean gotNodes         = false;
+
+		// We have an offsetId, so first we need to find the node with this
+		// uuid. For negative pages, only the nodes that can end up on the
+		// requested page are kept, everything before them is discarded.
+		final ArrayDeque<T> preceding = new ArrayDeque<>();
 
 		for (S node : input) {
 
@@ -221,82 +279,61 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 				continue;
 				
 			}
-			
-			nodesUpToOffset.add(n);
+
+			gotNodes = true;
 
 			if (!gotOffset) {
 
 				if (!offsetId.equals(n.getUuid())) {
 
-					i++;
+					if (page < 0) {
+
+						preceding.addLast(n);
+
+						if (window >= 0 && preceding.size() > window) {
+							preceding.removeFirst();
+						}
+					}
 
 					continue;
 
 				}
 
 				gotOffset = true;
-				offset    = page > 0
-					    ? i
-					    : i + (page * pageSize);
-
-				break;
-
-			}
 
-		}
+				if (page < 0) {
 
-		if (!nodesUpToOffset.isEmpty() && !gotOffset) {
+					if (window < 0 || preceding.size() < window) {
 
-			throw new FrameworkException("offsetId", new IdNotFoundToken(offsetId));
-		}
-		
-		if (offset < 0) {
-			
-			// Remove last item
-			nodesUpToOffset.remove(nodesUpToOffset.size()-1);
-			
-			return new Result(nodesUpToOffset, size, true, false);
-		}
-
-		for (T node : nodesUpToOffset) {
-
-			if (node != null) {
+						// not enough nodes before the offset, return all of them
+						return new Result(new ArrayList<>(preceding), size, true, false);
+					}
 
-				if (++position > offset) {
+					for (T precedingNode : preceding) {
 
-					// stop if we got enough nodes
-					if (++count > pageSize) {
+						if (elements.size() >= pageSize) {
+							break;
+						}
 
-						return new Result(elements, size, true, false);
+						elements.add(precedingNode);
 					}
 
-					elements.add(node);
+					// negative pages never extend beyond the offset node
+					break;
 				}
+			}
 
+			// stop if we got enough nodes
+			if (elements.size() >= pageSize) {
+				break;
 			}
 
+			elements.add(n);
 		}
 
-		// If we get here, the result was not complete, so we need to iterate
-		// through the index result (input) to get more items.
-		for (S node : input) {
-
-			T n = instantiate(node);
-			if (n != null) {
-
-				if (++position > offset) {
-
-					// stop if we got enough nodes
-					if (++count > pageSize) {
-
-						return new Result(elements, size, true, false);
-					}
-
-					elements.add(n);
-				}
-
-			}
+		if (gotNodes && !gotOffset) {
 
+			throw new FrameworkException("offsetId", new IdNotFoundToken(offsetId));
 		}
 
 		return new Result(elements, size, true, false);
@@ -311,17 +348,35 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 		if (page < 0) {
 
-			List<S> rawNodes = read(input);
-			int size         = rawNodes.size();
+			// Keep only the trailing window of raw hits that contains the
+			// requested page, the rest is counted and discarded.
+			final int window          = windowSize(page, pageSize);
+			final ArrayDeque<S> tail  = new ArrayDeque<>();
+			int size                  = 0;
+
+			for (S raw : input) {
+
+				tail.addLast(raw);
+				size++;
 
-			fromIndex = Math.max(0, size + (page * pageSize));
+				if (window >= 0 && tail.size() > window) {
+					tail.removeFirst();
+				}
+			}
 
-			final List<T> nodes = new LinkedList<>();
-			int toIndex         = Math.min(size, fromIndex + pageSize);
+			final List<T> nodes = new ArrayList<>(Math.min(pageSize, tail.size()));
 
-			for (S n : rawNodes.subList(fromIndex, toIndex)) {
+			for (S raw : tail) {
 
-				nodes.add(instantiate(n));
+				if (nodes.size() >= pageSize) {
+					break;
+				}
+
+				T n = instantiate(raw);
+				if (n != null) {
+
+					nodes.add(n);
+				}
 			}
 
 			// We've run completely through the iterator,
@@ -344,7 +399,7 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 	protected Result page(final IndexHits<S> input, final int overallResultCount, final int offset, final int pageSize) throws FrameworkException {
 
-		final List<T> nodes = new LinkedList<>();
+		final List<T> nodes = new ArrayList<>();
 		int position	    = 0;
 		int count	    = 0;
 		int overallCount    = 0;
@@ -139,15 +139,18 @@ public class GraphObjectModificationState implements ModificationEvent {
 		
 		status |= STATE_MODIFIED | STATE_PROPAGATING_MODIFICATION;
 
-		// store previous value
 		if (key != null) {
-			removedProperties.put(key, previousValue);
+
+			// store the value the key had at the start of
+			// the transaction, and the most recent value
+			if (!removedProperties.containsKey(key)) {
+				removedProperties.put(key, previousValue);
+			}
+
+			modifiedProperties.put(key, newValue);
 		}
 		
 		if (status != statusBefore) {
-			if (key != null) {
-				modifiedProperties.put(key, newValue);
-			}
 			modified = true;
 		}
 	}
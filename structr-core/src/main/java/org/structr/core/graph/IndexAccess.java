@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.neo4j.gis.spatial.indexprovider.LayerNodeIndex;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.graphdb.index.IndexHits;
+
+/**
+ * Concurrency-safe access layer for the node and relationship indices
+ * of {@link NodeService}.
+ *
+ * The Lucene-backed indices are safe for concurrent reads, and writes
+ * are transaction-local until commit, so queries are executed without
+ * any locking. Index writes are serialized per entity using a fixed
+ * set of lock stripes, so that concurrent updates of different entities
+ * do not block each other. The spatial layer index is the only index
+ * that is not safe for concurrent modification, it is guarded by a
+ * read/write lock that still allows parallel spatial queries.
+ */
+public class IndexAccess {
+
+	private static final int STRIPE_COUNT                     = 64;
+	private static final ReentrantLock[] stripes              = new ReentrantLock[STRIPE_COUNT];
+	private static final ReentrantReadWriteLock spatialLock   = new ReentrantReadWriteLock();
+	private static final ThreadLocal<IndexingCost> costs      = new ThreadLocal<>();
+
+	static {
+
+		for (int i=0; i<STRIPE_COUNT; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	// ----- read access -----
+	public static <T extends PropertyContainer> IndexHits<T> query(final Index<T> index, final Object queryOrQueryObject) {
+
+		if (index instanceof LayerNodeIndex) {
+
+			spatialLock.readLock().lock();
+			try {
+
+				return index.query(queryOrQueryObject);
+
+			} finally {
+
+				spatialLock.readLock().unlock();
+			}
+		}
+
+		return index.query(queryOrQueryObject);
+	}
+
+	public static <T extends PropertyContainer> IndexHits<T> query(final Index<T> index, final String key, final Object queryOrQueryObject) {
+
+		if (index instanceof LayerNodeIndex) {
+
+			spatialLock.readLock().lock();
+			try {
+
+				return index.query(key, queryOrQueryObject);
+
+			} finally {
+
+				spatialLock.readLock().unlock();
+			}
+		}
+
+		return index.query(key, queryOrQueryObject);
+	}
+
+	public static <T extends PropertyContainer> IndexHits<T> get(final Index<T> index, final String key, final Object value) {
+		return index.get(key, value);
+	}
+
+	public static IndexHits<Node> querySpatial(final LayerNodeIndex index, final String key, final Map<String, Object> params) {
+
+		spatialLock.readLock().lock();
+		try {
+
+			return index.query(key, params);
+
+		} finally {
+
+			spatialLock.readLock().unlock();
+		}
+	}
+
+	// ----- write access -----
+	public static <T extends PropertyContainer> void add(final Index<T> index, final T entity, final String key, final Object value) {
+
+		final ReentrantLock lock = lockFor(entity);
+		final boolean spatial    = index instanceof LayerNodeIndex;
+
+		lock.lock();
+		if (spatial) {
+			spatialLock.writeLock().lock();
+		}
+
+		try {
+
+			final long t0 = System.nanoTime();
+
+			index.add(entity, key, value);
+
+			addition(System.nanoTime() - t0);
+
+		} finally {
+
+			if (spatial) {
+				spatialLock.writeLock().unlock();
+			}
+			lock.unlock();
+		}
+	}
+
+	public static <T extends PropertyContainer> void remove(final Index<T> index, final T entity, final String key) {
+
+		final ReentrantLock lock = lockFor(entity);
+		final boolean spatial    = index instanceof LayerNodeIndex;
+
+		lock.lock();
+		if (spatial) {
+			spatialLock.writeLock().lock();
+		}
+
+		try {
+
+			final long t0 = System.nanoTime();
+
+			index.remove(entity, key);
+
+			removal(System.nanoTime() - t0);
+
+		} finally {
+
+			if (spatial) {
+				spatialLock.writeLock().unlock();
+			}
+			lock.unlock();
+		}
+	}
+
+	public static <T extends PropertyContainer> void remove(final Index<T> index, final T entity) {
+
+		final ReentrantLock lock = lockFor(entity);
+		final boolean spatial    = index instanceof LayerNodeIndex;
+
+		lock.lock();
+		if (spatial) {
+			spatialLock.writeLock().lock();
+		}
+
+		try {
+
+			final long t0 = System.nanoTime();
+
+			index.remove(entity);
+
+			removal(System.nanoTime() - t0);
+
+		} finally {
+
+			if (spatial) {
+				spatialLock.writeLock().unlock();
+			}
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Replaces the indexed value for the given key with a single
+	 * acquisition of the entity lock. A null value removes the key
+	 * only.
+	 */
+	public static <T extends PropertyContainer> void replace(final Index<T> index, final T entity, final String key, final Object value) {
+
+		final ReentrantLock lock = lockFor(entity);
+		final boolean spatial    = index instanceof LayerNodeIndex;
+
+		lock.lock();
+		if (spatial) {
+			spatialLock.writeLock().lock();
+		}
+
+		try {
+
+			long t0 = System.nanoTime();
+
+			index.remove(entity, key);
+
+			removal(System.nanoTime() - t0);
+
+			if (value != null) {
+
+				t0 = System.nanoTime();
+
+				index.add(entity, key, value);
+
+				addition(System.nanoTime() - t0);
+			}
+
+		} finally {
+
+			if (spatial) {
+				spatialLock.writeLock().unlock();
+			}
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sets the cost collector for index writes of the current thread,
+	 * or removes it if the given collector is null.
+	 */
+	public static void trackCost(final IndexingCost cost) {
+
+		if (cost != null) {
+
+			costs.set(cost);
+
+		} else {
+
+			costs.remove();
+		}
+	}
+
+	// ----- private methods -----
+	private static void addition(final long duration) {
+
+		final IndexingCost cost = costs.get();
+		if (cost != null) {
+
+			cost.addition(duration);
+		}
+	}
+
+	private static void removal(final long duration) {
+
+		final IndexingCost cost = costs.get();
+		if (cost != null) {
+
+			cost.removal(duration);
+		}
+	}
+
+	private static ReentrantLock lockFor(final PropertyContainer entity) {
+
+		long id = 0;
+
+		if (entity instanceof Node) {
+
+			id = ((Node)entity).getId() << 1;
+
+		} else if (entity instanceof Relationship) {
+
+			id = (((Relationship)entity).getId() << 1) + 1;
+		}
+
+		// spread ids over stripes
+		final int hash = (int)(id ^ (id >>> 32)) * 0x9E3779B9;
+
+		return stripes[(hash >>> 16) & (STRIPE_COUNT - 1)];
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+/**
+ * Collects the number of index operations and the time spent
+ * in index maintenance for a single transaction.
+ */
+public class IndexingCost {
+
+	private int additions = 0;
+	private int removals  = 0;
+	private long nanos    = 0L;
+
+	public void addition(final long duration) {
+		additions++;
+		nanos += duration;
+	}
+
+	public void removal(final long duration) {
+		removals++;
+		nanos += duration;
+	}
+
+	public int getAdditions() {
+		return additions;
+	}
+
+	public int getRemovals() {
+		return removals;
+	}
+
+	public int getOperations() {
+		return additions + removals;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public String toString() {
+		return additions + " additions, " + removals + " removals in " + (nanos / 1000000.0) + " ms";
+	}
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A map with primitive long keys that keeps its values in insertion order.
+ * Values can be iterated by position, so that new entries can be added
+ * while the map is being iterated. Entries cannot be removed, only the
+ * whole map can be cleared.
+ *
+ * This class is not thread-safe.
+ */
+public class LongObjectMap<V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final List<V> values = new ArrayList<>();
+	private long[] keys          = null;
+	private int[] positions      = null;
+	private int mask             = 0;
+
+	public LongObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public LongObjectMap(final int expectedSize) {
+		allocate(tableSize(expectedSize));
+	}
+
+	public V get(final long key) {
+
+		final int slot = find(key);
+
+		return slot >= 0 ? values.get(positions[slot] - 1) : null;
+	}
+
+	public boolean containsKey(final long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Associates the given value with the given key. If the key already
+	 * exists, its value is replaced and keeps its position.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	public void put(final long key, final V value) {
+
+		int slot = mix(key) & mask;
+
+		while (positions[slot] != 0) {
+
+			if (keys[slot] == key) {
+
+				values.set(positions[slot] - 1, value);
+				return;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		values.add(value);
+
+		keys[slot]      = key;
+		positions[slot] = values.size();
+
+		// keep load factor below 0.5
+		if (values.size() * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * @param position the position in insertion order
+	 * @return the value at the given position
+	 */
+	public V valueAt(final int position) {
+		return values.get(position);
+	}
+
+	/**
+	 * @return a live view of the values in insertion order
+	 */
+	public List<V> values() {
+		return values;
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	public void clear() {
+
+		values.clear();
+
+		Arrays.fill(positions, 0);
+	}
+
+	// ----- private methods -----
+	private int find(final long key) {
+
+		int slot = mix(key) & mask;
+
+		while (positions[slot] != 0) {
+
+			if (keys[slot] == key) {
+				return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	private void rehash(final int newSize) {
+
+		final long[] oldKeys     = keys;
+		final int[] oldPositions = positions;
+
+		allocate(newSize);
+
+		for (int i=0; i<oldKeys.length; i++) {
+
+			if (oldPositions[i] != 0) {
+
+				int slot = mix(oldKeys[i]) & mask;
+
+				while (positions[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+
+				keys[slot]      = oldKeys[i];
+				positions[slot] = oldPositions[i];
+			}
+		}
+	}
+
+	private void allocate(final int size) {
+
+		keys      = new long[size];
+		positions = new int[size];
+		mask      = size - 1;
+	}
+
+	private static int tableSize(final int expectedSize) {
+
+		int size = DEFAULT_CAPACITY;
+
+		while (size < expectedSize * 2 && size < (1 << 30)) {
+			size <<= 1;
+		}
+
+		return size;
+	}
+
+	private static int mix(final long key) {
+
+		final long hash = key * 0x9E3779B97F4A7C15L;
+
+		return (int)(hash ^ (hash >>> 32));
+	}
+}
@@ -18,15 +18,15 @@
  */
 package org.structr.core.graph;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.neo4j.graphdb.RelationshipType;
@@ -34,6 +34,7 @@ import org.structr.common.RelType;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
 import org.structr.core.property.PropertyKey;
 
 /**
@@ -45,10 +46,15 @@ public class ModificationQueue {
 
 	private static final Logger logger = Logger.getLogger(ModificationQueue.class.getName());
 	
-	private ConcurrentSkipListMap<String, GraphObjectModificationState> modifications = new ConcurrentSkipListMap<>();
-	private Map<String, TransactionPostProcess> postProcesses                         = new LinkedHashMap<>();
-	private Set<String> alreadyPropagated                                             = new LinkedHashSet<>();
-	private Set<String> synchronizationKeys                                           = new TreeSet<>();
+	private static final ConcurrentMap<Class, ConcurrentMap<String, String>> synchronizationKeyCache = new ConcurrentHashMap<>();
+
+	private LongObjectMap<GraphObjectModificationState> nodeModifications = new LongObjectMap<>();
+	private LongObjectMap<GraphObjectModificationState> relModifications  = new LongObjectMap<>();
+	private LongObjectMap<Boolean> alreadyPropagated                      = new LongObjectMap<>();
+	private Map<String, TransactionPostProcess> postProcesses             = new LinkedHashMap<>();
+	private Set<String> synchronizationKeys                               = new TreeSet<>();
+	private Set<String> reservations                                      = new LinkedHashSet<>();
+	private IndexingCost indexingCost                                     = new IndexingCost();
 	
 	/**
 	 * Returns a set containing the different entity types of
@@ -71,7 +77,11 @@ public class ModificationQueue {
 
 			hasModifications = false;
 
-			for (GraphObjectModificationState state : modifications.values()) {
+			// callbacks may add new entries, so we iterate by position
+			final StateCursor cursor = new StateCursor();
+			GraphObjectModificationState state = null;
+
+			while ((state = cursor.next()) != null) {
 
 				if (state.wasModified()) {
 
@@ -96,10 +106,13 @@ public class ModificationQueue {
 		boolean valid = true;
 		
 		// do validation and indexing
-		for (Entry<String, GraphObjectModificationState> entry : modifications.entrySet()) {
+		final StateCursor cursor = new StateCursor();
+		GraphObjectModificationState state = null;
+
+		while ((state = cursor.next()) != null) {
 
 			// do callback according to entry state
-			valid &= entry.getValue().doValidationAndIndexing(this, securityContext, errorBuffer, doValidation);
+			valid &= state.doValidationAndIndexing(this, securityContext, errorBuffer, doValidation);
 		}
 
 		long t = System.currentTimeMillis() - t0;
@@ -127,7 +140,10 @@ public class ModificationQueue {
 		long t0 = System.currentTimeMillis();
 		
 		// copy modifications, do after transaction callbacks
-		for (GraphObjectModificationState state : modifications.values()) {
+		final StateCursor cursor = new StateCursor();
+		GraphObjectModificationState state = null;
+
+		while ((state = cursor.next()) != null) {
 
 //			if (!state.isDeleted()) {
 				
@@ -145,7 +161,8 @@ public class ModificationQueue {
 		
 		// clear collections afterwards
 		alreadyPropagated.clear();
-		modifications.clear();
+		nodeModifications.clear();
+		relModifications.clear();
 	}
 
 	public void create(NodeInterface node) {
@@ -182,8 +199,8 @@ public class ModificationQueue {
 	public void modify(NodeInterface node, PropertyKey key, Object previousValue, Object newValue) {
 		getState(node).modify(key, previousValue, newValue);
 		
-		if (key != null&& key.requiresSynchronization()) {
-			synchronizationKeys.add(node.getClass().getSimpleName().concat(".").concat(key.getSynchronizationKey()));
+		if (key != null && key.requiresSynchronization()) {
+			synchronizationKeys.add(getSynchronizationKey(node.getClass(), key));
 		}
 	}
 
@@ -191,7 +208,7 @@ public class ModificationQueue {
 		getState(relationship).modify(key, previousValue, newValue);
 		
 		if (key != null && key.requiresSynchronization()) {
-			synchronizationKeys.add(relationship.getClass().getSimpleName().concat(".").concat(key.getSynchronizationKey()));
+			synchronizationKeys.add(getSynchronizationKey(relationship.getClass(), key));
 		}
 	}
 	
@@ -205,7 +222,7 @@ public class ModificationQueue {
 				state.propagatedModification();
 
 				// save hash to avoid repeated propagation
-				alreadyPropagated.add(hash(node));
+				alreadyPropagated.put(node.getId(), Boolean.TRUE);
 			}
 	}
 	}
@@ -223,15 +240,77 @@ public class ModificationQueue {
 	
 	public List<ModificationEvent> getModificationEvents() {
 		
-		final List<ModificationEvent> modificationEvents = new LinkedList<>();
-		for (final GraphObjectModificationState state : modifications.values()) {
-			
-			modificationEvents.add(state);
-		}
+		final List<ModificationEvent> modificationEvents = new ArrayList<>(size());
+
+		modificationEvents.addAll(nodeModifications.values());
+		modificationEvents.addAll(relModifications.values());
 		
 		return modificationEvents;
 	}
 	
+	/**
+	 * Returns the modification state recorded for the given entity in
+	 * this queue, or null if the entity was not touched yet.
+	 * 
+	 * @param obj
+	 * @return the modification event or null
+	 */
+	public ModificationEvent getModificationEvent(final GraphObject obj) {
+
+		if (obj instanceof NodeInterface) {
+			return nodeModifications.get(((NodeInterface)obj).getId());
+		}
+
+		if (obj instanceof RelationshipInterface) {
+			return relModifications.get(((RelationshipInterface)obj).getId());
+		}
+
+		return null;
+	}
+
+	public IndexingCost getIndexingCost() {
+		return indexingCost;
+	}
+
+	/**
+	 * Returns the simple class names of all entities
+	 * modified in this queue.
+	 * 
+	 * @return the types
+	 */
+	public Set<String> getModifiedTypes() {
+
+		final Set<String> types = new TreeSet<>();
+
+		final StateCursor cursor = new StateCursor();
+		GraphObjectModificationState state = null;
+
+		while ((state = cursor.next()) != null) {
+
+			final GraphObject obj = state.getGraphObject();
+			if (obj != null) {
+
+				types.add(obj.getClass().getSimpleName());
+			}
+		}
+
+		return types;
+	}
+
+	public void addReservation(final String value) {
+		reservations.add(value);
+	}
+
+	/**
+	 * Returns the values that were reserved by uniqueness
+	 * validators in this transaction.
+	 * 
+	 * @return the reserved values
+	 */
+	public Set<String> getReservations() {
+		return reservations;
+	}
+
 	public void postProcess(final String key, final TransactionPostProcess process) {
 		
 		if (!postProcesses.containsKey(key)) {
@@ -276,13 +355,13 @@ public class ModificationQueue {
 	
 	private GraphObjectModificationState getState(NodeInterface node, boolean checkPropagation) {
 
-		String hash = hash(node);
-		GraphObjectModificationState state = modifications.get(hash);
+		final long id                      = node.getId();
+		GraphObjectModificationState state = nodeModifications.get(id);
 
-		if (state == null && !(checkPropagation && alreadyPropagated.contains(hash))) {
+		if (state == null && !(checkPropagation && alreadyPropagated.containsKey(id))) {
 
 			state = new GraphObjectModificationState(node);
-			modifications.put(hash, state);
+			nodeModifications.put(id, state);
 		}
 
 		return state;
@@ -290,23 +369,74 @@ public class ModificationQueue {
 
 	private GraphObjectModificationState getState(RelationshipInterface rel) {
 
-		String hash = hash(rel);
-		GraphObjectModificationState state = modifications.get(hash);
+		final long id                      = rel.getId();
+		GraphObjectModificationState state = relModifications.get(id);
 
 		if (state == null) {
 
 			state = new GraphObjectModificationState(rel);
-			modifications.put(hash, state);
+			relModifications.put(id, state);
 		}
 
 		return state;
 	}
 
-	private String hash(NodeInterface node) {
-		return "N" + node.getId();
+	/**
+	 * @return the number of entities in this queue
+	 */
+	private int size() {
+		return nodeModifications.size() + relModifications.size();
+	}
+
+	private static String getSynchronizationKey(final Class type, final PropertyKey key) {
+
+		ConcurrentMap<String, String> keys = synchronizationKeyCache.get(type);
+		if (keys == null) {
+
+			final ConcurrentMap<String, String> newKeys = new ConcurrentHashMap<>();
+
+			keys = synchronizationKeyCache.putIfAbsent(type, newKeys);
+			if (keys == null) {
+
+				keys = newKeys;
+			}
+		}
+
+		final String synchronizationKey = key.getSynchronizationKey();
+		String combinedKey              = keys.get(synchronizationKey);
+
+		if (combinedKey == null) {
+
+			combinedKey = type.getSimpleName().concat(".").concat(synchronizationKey);
+			keys.put(synchronizationKey, combinedKey);
+		}
+
+		return combinedKey;
 	}
 
-	private String hash(RelationshipInterface rel) {
-		return "R" + rel.getId();
+	// ----- nested classes -----
+	/**
+	 * Iterates the modification states by position, nodes first, then
+	 * relationships, in insertion order. Entries can be added during
+	 * iteration: a node that is added while relationships are visited
+	 * is visited before the next relationship.
+	 */
+	private class StateCursor {
+
+		private int nodePosition = 0;
+		private int relPosition  = 0;
+
+		public GraphObjectModificationState next() {
+
+			if (nodePosition < nodeModifications.size()) {
+				return nodeModifications.valueAt(nodePosition++);
+			}
+
+			if (relPosition < relModifications.size()) {
+				return relModifications.valueAt(relPosition++);
+			}
+
+			return null;
+		}
 	}
 }
@@ -19,9 +19,11 @@
 package org.structr.core.graph;
 
 import java.util.LinkedHashSet;
-import java.util.Map;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
 
@@ -32,7 +34,7 @@ public class MultiSemaphore {
 
 	private static final Logger logger = Logger.getLogger(MultiSemaphore.class.getName());
 	
-	private Map<String, Semaphore> semaphoreMap = new ConcurrentHashMap<String, Semaphore>();
+	private ConcurrentMap<String, Semaphore> semaphoreMap = new ConcurrentHashMap<String, Semaphore>();
 	
 	public void acquire(final Set<String> types) throws InterruptedException {
 	
@@ -40,8 +42,24 @@ public class MultiSemaphore {
 			
 //			logger.log(Level.INFO, "Acquiring permit(s) for {0}", types);
 
-			for (Semaphore semaphore : getSemaphores(types)) {
-				semaphore.acquire();
+			final List<Semaphore> acquired = new LinkedList<Semaphore>();
+
+			try {
+
+				for (Semaphore semaphore : getSemaphores(types)) {
+
+					semaphore.acquire();
+					acquired.add(semaphore);
+				}
+
+			} catch (InterruptedException iex) {
+
+				// do not leak the permits acquired so far
+				for (Semaphore semaphore : acquired) {
+					semaphore.release();
+				}
+
+				throw iex;
 			}
 		}
 	}
@@ -71,8 +89,15 @@ public class MultiSemaphore {
 					Semaphore semaphore = semaphoreMap.get(type);
 					if (semaphore == null) {
 
-						semaphore = new Semaphore(1, true);
-						semaphoreMap.put(type, semaphore);
+						// two threads may get here at the same time, make
+						// sure both of them use the same semaphore
+						final Semaphore newSemaphore = new Semaphore(1, true);
+
+						semaphore = semaphoreMap.putIfAbsent(type, newSemaphore);
+						if (semaphore == null) {
+
+							semaphore = newSemaphore;
+						}
 					}
 
 					semaphores.add(semaphore);
@@ -69,7 +69,31 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 
 	@Override
 	public T instantiate(final Node node) throws FrameworkException {
-		return (T) instantiateWithType(node, factoryDefinition.determineNodeType(node), false);
+		return (T) instantiateWithType(node, determineNodeType(node), false);
+	}
+
+	/**
+	 * Resolves the entity type of the given node without instantiating
+	 * it, using the shared {@link EntityCache}.
+	 *
+	 * @param node
+	 * @return the entity type of the given node
+	 */
+	public Class determineNodeType(final Node node) {
+
+		final EntityCache entityCache = EntityCache.getInstance();
+		final long id                 = node.getId();
+		Class nodeType                = entityCache.getType(id);
+
+		if (nodeType == null) {
+
+			final long generation = entityCache.getGeneration(id);
+
+			nodeType = factoryDefinition.determineNodeType(node);
+			entityCache.putType(id, nodeType, generation);
+		}
+
+		return nodeType;
 	}
 
 	@Override
@@ -109,7 +133,7 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 			newNode.init(factoryProfile.getSecurityContext(), node);
 			newNode.onNodeInstantiation();
 			
-			// cache node for this request
+			// cache node for this security context
 			securityContext.store(id, newNode);
 		}
 		
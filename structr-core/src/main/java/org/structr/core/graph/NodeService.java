@@ -44,7 +44,6 @@ import java.io.File;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.shell.ShellSettings;
 import org.structr.common.StructrConf;
 
@@ -76,8 +75,6 @@ public class NodeService implements SingletonService {
 	private Index<Relationship> relKeywordIndex     = null;
 	private Index<Relationship> relUuidIndex        = null;
 
-	private ExecutionEngine cypherExecutionEngine   = null;
-	
 	// indices
 	private Map<RelationshipIndex, Index<Relationship>> relIndices = new EnumMap<>(RelationshipIndex.class);
 	private Map<NodeIndex, Index<Node>> nodeIndices                = new EnumMap<>(NodeIndex.class);
@@ -124,8 +121,6 @@ public class NodeService implements SingletonService {
 			
 			command.setArgument("indices", NodeIndex.values());
 			command.setArgument("relationshipIndices", RelationshipIndex.values());
-			
-			command.setArgument("cypherExecutionEngine", cypherExecutionEngine);
 		}
 	}
 
@@ -248,9 +243,29 @@ public class NodeService implements SingletonService {
 		logger.log(Level.FINE, "Initializing relationship factory...");
 
 		logger.log(Level.FINE, "Relationship factory ready.");
-		cypherExecutionEngine = new ExecutionEngine(graphDb);
-		
+		CypherExecutor.getInstance().initialize(graphDb);
+		CypherExecutor.getInstance().configure(getIntegerValue(config, Services.CYPHER_RESULT_CACHE_SIZE, CypherExecutor.DEFAULT_RESULT_CACHE_SIZE));
+
 		logger.log(Level.FINE, "Cypher execution engine ready.");
+
+		EntityCache.getInstance().configure(
+			getIntegerValue(config, Services.ENTITY_CACHE_SIZE, EntityCache.DEFAULT_MAX_SIZE),
+			getIntegerValue(config, Services.ENTITY_CACHE_MAX_AGE, (int)EntityCache.DEFAULT_MAX_AGE)
+		);
+
+		logger.log(Level.FINE, "Entity cache ready.");
+
+		TransactionCommand.configure(
+			"optimistic".equalsIgnoreCase(config.getProperty(Services.TRANSACTION_COMMIT_MODE, "pessimistic").trim()),
+			getIntegerValue(config, Services.RESERVATION_TIMEOUT, (int)TransactionCommand.DEFAULT_RESERVATION_TIMEOUT)
+		);
+
+		logger.log(Level.FINE, "Transaction commit mode: {0}", TransactionCommand.isOptimisticCommit() ? "optimistic" : "pessimistic");
+
+		TransactionCommand.getTransactionListenerDispatcher().configure(
+			getIntegerValue(config, Services.LISTENER_QUEUE_SIZE, TransactionListenerDispatcher.DEFAULT_QUEUE_SIZE),
+			getIntegerValue(config, Services.LISTENER_BATCH_SIZE, TransactionListenerDispatcher.DEFAULT_BATCH_SIZE)
+		);
 		
 		isInitialized = true;
 	}
@@ -269,6 +284,10 @@ public class NodeService implements SingletonService {
 			waitFor(registeredServices.isEmpty());
 			graphDb.shutdown();
 
+			EntityCache.getInstance().clear();
+			CypherExecutor.getInstance().shutdown();
+			TransactionCommand.getTransactionListenerDispatcher().shutdown();
+
 			graphDb       = null;
 			isInitialized = false;
 
@@ -314,6 +333,23 @@ public class NodeService implements SingletonService {
 
 	}
 
+	private int getIntegerValue(final StructrConf config, final String key, final int defaultValue) {
+
+		final String value = config.getProperty(key);
+		if (value != null) {
+
+			try {
+				return Integer.parseInt(value.trim());
+
+			} catch (NumberFormatException nfex) {
+
+				logger.log(Level.WARNING, "Invalid value {0} for {1}, using default of {2}", new Object[] { value, key, defaultValue });
+			}
+		}
+
+		return defaultValue;
+	}
+
 	//~--- get methods ----------------------------------------------------
 
 	@Override
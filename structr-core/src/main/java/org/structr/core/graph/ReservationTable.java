@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A table of value reservations that allows uniqueness validators to
+ * claim a value for the duration of a transaction. A transaction that
+ * tries to reserve a value that is held by another transaction waits
+ * until the other transaction is finished, so only transactions that
+ * actually conflict on the same value are serialized.
+ */
+public class ReservationTable {
+
+	private final ConcurrentMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+	/**
+	 * Reserves the given value for the given owner, waiting at most the
+	 * given time for a conflicting reservation to be released.
+	 *
+	 * @param owner the owner of the reservation (e.g. a transaction)
+	 * @param value the value to reserve
+	 * @param timeout the maximum time to wait
+	 * @param unit the time unit of the timeout
+	 * @return the time spent waiting for other owners in nanoseconds, or -1 if the timeout elapsed
+	 * @throws InterruptedException
+	 */
+	public long reserve(final Object owner, final String value, final long timeout, final TimeUnit unit) throws InterruptedException {
+
+		final Reservation reservation = new Reservation(owner);
+		final long start              = System.nanoTime();
+		final long deadline           = start + unit.toNanos(timeout);
+		long waited                   = 0L;
+
+		while (true) {
+
+			final Reservation existing = reservations.putIfAbsent(value, reservation);
+			if (existing == null || existing.owner == owner) {
+
+				return waited;
+			}
+
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0 || !existing.await(remaining)) {
+
+				return -1L;
+			}
+
+			waited = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Releases all reservations of the given owner for the given values
+	 * and wakes up the transactions that wait for them.
+	 *
+	 * @param owner
+	 * @param values
+	 */
+	public void release(final Object owner, final Collection<String> values) {
+
+		for (final String value : values) {
+
+			final Reservation reservation = reservations.get(value);
+			if (reservation != null && reservation.owner == owner && reservations.remove(value, reservation)) {
+
+				reservation.release();
+			}
+		}
+	}
+
+	public boolean isReserved(final String value) {
+		return reservations.containsKey(value);
+	}
+
+	public int size() {
+		return reservations.size();
+	}
+
+	// ----- nested classes -----
+	private static class Reservation {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private final Object owner;
+
+		public Reservation(final Object owner) {
+			this.owner = owner;
+		}
+
+		public boolean await(final long nanos) throws InterruptedException {
+			return latch.await(nanos, TimeUnit.NANOSECONDS);
+		}
+
+		public void release() {
+			latch.countDown();
+		}
+	}
+}
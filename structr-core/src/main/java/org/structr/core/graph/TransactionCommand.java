@@ -19,17 +19,19 @@
 package org.structr.core.graph;
 
 
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import org.neo4j.graphdb.GraphDatabaseService;
 
 //~--- JDK imports ------------------------------------------------------------
 
 import java.util.logging.Logger;
+import org.structr.common.PermissionCache;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
 import org.structr.core.StructrTransactionListener;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.property.PropertyKey;
@@ -55,12 +57,39 @@ import org.structr.core.property.PropertyKey;
 public class TransactionCommand extends NodeServiceCommand {
 
 	private static final Logger logger                                  = Logger.getLogger(TransactionCommand.class.getName());
-	private static final Set<StructrTransactionListener> listeners      = new LinkedHashSet<>();
+	private static final TransactionListenerDispatcher listeners        = new TransactionListenerDispatcher();
 	private static final ThreadLocal<ModificationQueue> queues          = new ThreadLocal<>();
 	private static final ThreadLocal<ErrorBuffer> buffers               = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionCommand> currentCommand = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionReference> transactions = new ThreadLocal<>();
+	private static final ThreadLocal<IndexingCost> lastIndexingCost     = new ThreadLocal<>();
 	private static final MultiSemaphore                    semaphore    = new MultiSemaphore();
+	private static final ReservationTable                  reservations = new ReservationTable();
+
+	public static final long DEFAULT_RESERVATION_TIMEOUT = 30000L;
+
+	private static volatile boolean optimisticCommit = false;
+	private static volatile long reservationTimeout  = DEFAULT_RESERVATION_TIMEOUT;
+
+	/**
+	 * Configures the commit mode. In optimistic mode, the validation and
+	 * indexing part of a transaction is not serialized per modified type,
+	 * uniqueness validators reserve the values they check instead, so
+	 * only transactions that conflict on the same value wait for each
+	 * other.
+	 * 
+	 * @param optimistic whether to use optimistic commits
+	 * @param timeout the maximum time in milliseconds to wait for a conflicting reservation
+	 */
+	public static void configure(final boolean optimistic, final long timeout) {
+
+		optimisticCommit   = optimistic;
+		reservationTimeout = timeout;
+	}
+
+	public static boolean isOptimisticCommit() {
+		return optimisticCommit;
+	}
 
 	public void beginTx() {
 		
@@ -71,11 +100,16 @@ public class TransactionCommand extends NodeServiceCommand {
 		
 			// start new transaction
 			tx = new TransactionReference(graphDb.beginTx());
+
+			final ModificationQueue modificationQueue = new ModificationQueue();
 			
-			queues.set(new ModificationQueue());
+			queues.set(modificationQueue);
 			buffers.set(new ErrorBuffer());
 			transactions.set(tx);
 			currentCommand.set(this);
+
+			// collect index maintenance cost of this transaction
+			IndexAccess.trackCost(modificationQueue.getIndexingCost());
 		}
 		
 		// increase depth
@@ -115,21 +149,32 @@ public class TransactionCommand extends NodeServiceCommand {
 			}
 
 			// 2. fetch all types of entities modified in this tx
-			Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
+			final Set<String> synchronizationKeys = optimisticCommit ? null : modificationQueue.getSynchronizationKeys();
+			final long t0                         = System.nanoTime();
+			boolean valid                         = false;
 
-			// we need to protect the validation and indexing part of every transaction
-			// from being entered multiple times in the presence of validators
+			// in pessimistic mode, we need to protect the validation and indexing part of
+			// every transaction from being entered multiple times in the presence of validators,
+			// in optimistic mode, the uniqueness validators reserve the values they check
 			// 3. acquire semaphores for each modified type
 			try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
 
-			// finally, do validation under the protection of the semaphores for each type
-			if (!modificationQueue.doValidation(securityContext, errorBuffer, doValidation)) {
+			try {
+				// finally, do validation under the protection of the semaphores for each type
+				valid = modificationQueue.doValidation(securityContext, errorBuffer, doValidation);
 
-				tx.failure();
+			} finally {
 
 				// release semaphores as the transaction is now finished
 				semaphore.release(synchronizationKeys);	// careful: this can be null
 
+				CommitMetrics.getInstance().commit(modificationQueue.getModifiedTypes(), System.nanoTime() - t0, valid);
+			}
+
+			if (!valid) {
+
+				tx.failure();
+
 				// create error
 				throw new FrameworkException(422, errorBuffer);
 			}
@@ -140,9 +185,6 @@ public class TransactionCommand extends NodeServiceCommand {
 			} catch (Throwable t) {
 				t.printStackTrace();
 			}
-
-			// release semaphores as the transaction is now finished
-			semaphore.release(synchronizationKeys);	// careful: this can be null
 		}
 	}
 	
@@ -165,6 +207,16 @@ public class TransactionCommand extends NodeServiceCommand {
 				currentCommand.remove();
 				transactions.remove();
 
+				IndexAccess.trackCost(null);
+
+				if (modificationQueue != null) {
+
+					final IndexingCost indexingCost = modificationQueue.getIndexingCost();
+
+					lastIndexingCost.set(indexingCost);
+					logger.log(Level.FINE, "Index maintenance: {0}", indexingCost);
+				}
+
 				try {
 					tx.finish();
 					
@@ -172,14 +224,31 @@ public class TransactionCommand extends NodeServiceCommand {
 					t.printStackTrace();
 				}
 
-				if (doCallbacks && modificationQueue != null && tx.isSuccessful()) {
-					
-					modificationQueue.doOuterCallbacks(securityContext);
+				// release reserved values after the transaction was committed,
+				// so that waiting transactions will find the new values
+				if (modificationQueue != null) {
+					reservations.release(modificationQueue, modificationQueue.getReservations());
+				}
+
+				if (modificationQueue != null && tx.isSuccessful()) {
 
-					// notify listeners
 					final List<ModificationEvent> modificationEvents = modificationQueue.getModificationEvents();
-					for (StructrTransactionListener listener : listeners) {
-						listener.transactionCommited(securityContext, modificationEvents);
+
+					// invalidate cached node types and permissions before any callback can read them
+					EntityCache.getInstance().invalidate(modificationEvents);
+					PermissionCache.getInstance().invalidate(modificationEvents);
+
+					if (!modificationEvents.isEmpty()) {
+						CypherExecutor.getInstance().invalidate();
+					}
+
+					if (doCallbacks) {
+
+						modificationQueue.doOuterCallbacks(securityContext);
+
+						// notify listeners, asynchronous listeners will
+						// be notified after this method has returned
+						listeners.dispatch(securityContext, modificationEvents);
 					}
 				}
 
@@ -342,14 +411,118 @@ public class TransactionCommand extends NodeServiceCommand {
 		}
 	}
 	
+	/**
+	 * Registers the given listener. Listeners are notified asynchronously
+	 * in batches unless they implement {@link org.structr.core.SynchronousTransactionListener}.
+	 * 
+	 * @param listener 
+	 */
 	public static void registerTransactionListener(final StructrTransactionListener listener) {
-		listeners.add(listener);
+		listeners.register(listener);
 	}
 	
 	public static void removeTransactionListener(final StructrTransactionListener listener) {
 		listeners.remove(listener);
 	}
+
+	public static TransactionListenerDispatcher getTransactionListenerDispatcher() {
+		return listeners;
+	}
 	
+	/**
+	 * Returns the modification state of the given entity in the current
+	 * transaction, or null if there is no transaction or the entity was
+	 * not modified.
+	 * 
+	 * @param obj
+	 * @return the modification event or null
+	 */
+	public static ModificationEvent getModificationEvent(final GraphObject obj) {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			return modificationQueue.getModificationEvent(obj);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the index maintenance cost of the current transaction, or
+	 * of the last transaction of this thread if called outside of a
+	 * transaction.
+	 * 
+	 * @return the indexing cost or null
+	 */
+	public static IndexingCost getIndexingCost() {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			return modificationQueue.getIndexingCost();
+		}
+
+		return lastIndexingCost.get();
+	}
+
+	/**
+	 * Reserves the given value of the given key in the given type for
+	 * the current transaction, so that no other transaction can commit
+	 * the same value before this transaction is finished. If another
+	 * transaction holds the value, this method waits until that
+	 * transaction is finished. Uniqueness validators should call this
+	 * method before they check the index.
+	 * 
+	 * Reservations are only taken in optimistic mode. In pessimistic
+	 * mode, the validation of conflicting transactions is already
+	 * serialized by the per-type semaphores, so this method returns
+	 * true immediately instead of adding a second wait.
+	 * 
+	 * @param type the type in which the value must be unique
+	 * @param key the property key
+	 * @param value the value
+	 * @return true if the value was reserved, false if the reservation timed out
+	 */
+	public static boolean reserveUniqueValue(final Class type, final PropertyKey key, final Object value) {
+
+		if (!optimisticCommit) {
+			return true;
+		}
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue == null || key == null || value == null) {
+
+			// nothing to protect outside of a transaction
+			return true;
+		}
+
+		final String reservation = type.getName().concat(".").concat(key.dbName()).concat("=").concat(value.toString());
+
+		try {
+			final long waited = reservations.reserve(modificationQueue, reservation, reservationTimeout, TimeUnit.MILLISECONDS);
+			if (waited != 0L) {
+
+				CommitMetrics.getInstance().conflict(type.getSimpleName(), Math.max(0L, waited));
+			}
+
+			if (waited >= 0L) {
+
+				modificationQueue.addReservation(reservation);
+
+				return true;
+			}
+
+			logger.log(Level.WARNING, "Timeout while waiting for reservation of {0}", reservation);
+
+		} catch (InterruptedException iex) {
+
+			logger.log(Level.WARNING, "Interrupted while waiting for reservation of {0}", reservation);
+		}
+
+		return false;
+	}
+
 	public static boolean inTransaction() {
 		return currentCommand.get() != null;
 	}
@@ -0,0 +1,392 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.SecurityContext;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.SynchronousTransactionListener;
+
+/**
+ * Dispatches the modification events of committed transactions to the
+ * registered {@link StructrTransactionListener}s.
+ *
+ * Listeners implementing {@link SynchronousTransactionListener} are called
+ * on the committing thread. Every other listener gets its own bounded queue
+ * and worker thread, so a slow listener neither delays the committing
+ * thread nor the other listeners. The worker coalesces the events of
+ * consecutive commits with the same security context into a single
+ * notification. If a queue is full, the events of the commit are dropped
+ * for that listener and counted.
+ */
+public class TransactionListenerDispatcher {
+
+	private static final Logger logger = Logger.getLogger(TransactionListenerDispatcher.class.getName());
+
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private final List<StructrTransactionListener> synchronousListeners = new CopyOnWriteArrayList<>();
+	private final List<ListenerWorker> workers                           = new CopyOnWriteArrayList<>();
+	private volatile int queueSize                                       = DEFAULT_QUEUE_SIZE;
+	private volatile int batchSize                                       = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Sets the queue and batch size of the asynchronous listeners. Workers
+	 * that are already running are replaced by new workers with the new
+	 * settings, their pending commits are moved to the new queue as far
+	 * as they fit.
+	 *
+	 * @param queueSize
+	 * @param batchSize
+	 */
+	public synchronized void configure(final int queueSize, final int batchSize) {
+
+		this.queueSize = Math.max(1, queueSize);
+		this.batchSize = Math.max(1, batchSize);
+
+		for (int i=0; i<workers.size(); i++) {
+
+			final ListenerWorker oldWorker = workers.get(i);
+			if (oldWorker.queueSize != this.queueSize || oldWorker.batchSize != this.batchSize) {
+
+				final ListenerWorker newWorker = new ListenerWorker(oldWorker.listener, this.queueSize, this.batchSize, oldWorker.metrics);
+
+				// let the old worker finish its current batch, so that commits are delivered in order
+				oldWorker.shutdown();
+
+				try { oldWorker.join(); } catch (InterruptedException iex) {}
+
+				oldWorker.transferTo(newWorker);
+				workers.set(i, newWorker);
+
+				// commits that were enqueued while the worker was replaced
+				oldWorker.transferTo(newWorker);
+
+				newWorker.start();
+			}
+		}
+	}
+
+	public synchronized void register(final StructrTransactionListener listener) {
+
+		if (listener instanceof SynchronousTransactionListener) {
+
+			if (!synchronousListeners.contains(listener)) {
+				synchronousListeners.add(listener);
+			}
+
+		} else if (getWorker(listener) == null) {
+
+			final ListenerWorker worker = new ListenerWorker(listener, queueSize, batchSize, new ListenerMetrics());
+
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	public synchronized void remove(final StructrTransactionListener listener) {
+
+		synchronousListeners.remove(listener);
+
+		final ListenerWorker worker = getWorker(listener);
+		if (worker != null) {
+
+			workers.remove(worker);
+			worker.shutdown();
+		}
+	}
+
+	public void dispatch(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+
+		for (final StructrTransactionListener listener : synchronousListeners) {
+
+			try {
+				listener.transactionCommited(securityContext, modificationEvents);
+
+			} catch (Throwable t) {
+
+				logger.log(Level.WARNING, "Error in transaction listener " + listener, t);
+			}
+		}
+
+		if (!workers.isEmpty()) {
+
+			final Commit commit = new Commit(securityContext, modificationEvents);
+
+			for (final ListenerWorker worker : workers) {
+				worker.enqueue(commit);
+			}
+		}
+	}
+
+	/**
+	 * Stops all worker threads, pending events are discarded.
+	 */
+	public synchronized void shutdown() {
+
+		for (final ListenerWorker worker : workers) {
+			worker.shutdown();
+		}
+
+		workers.clear();
+		synchronousListeners.clear();
+	}
+
+	/**
+	 * Returns the delivery statistics of all asynchronous listeners,
+	 * keyed by the listener's class name.
+	 *
+	 * @return the metrics
+	 */
+	public Map<String, ListenerMetrics> getMetrics() {
+
+		final Map<String, ListenerMetrics> metrics = new LinkedHashMap<>();
+
+		for (final ListenerWorker worker : workers) {
+			metrics.put(worker.listener.getClass().getName(), worker.metrics);
+		}
+
+		return Collections.unmodifiableMap(metrics);
+	}
+
+	private ListenerWorker getWorker(final StructrTransactionListener listener) {
+
+		for (final ListenerWorker worker : workers) {
+
+			if (worker.listener == listener) {
+				return worker;
+			}
+		}
+
+		return null;
+	}
+
+	// ----- nested classes -----
+	public static class ListenerMetrics {
+
+		private final AtomicLong commits             = new AtomicLong();
+		private final AtomicLong batches             = new AtomicLong();
+		private final AtomicLong dropped             = new AtomicLong();
+		private final AtomicLong lastLag             = new AtomicLong();
+		private final AtomicLong maxLag              = new AtomicLong();
+		private volatile BlockingQueue<Commit> queue = null;
+
+		/**
+		 * @return the number of commits delivered to the listener
+		 */
+		public long getDeliveredCommits() {
+			return commits.get();
+		}
+
+		/**
+		 * @return the number of notifications the delivered commits were coalesced into
+		 */
+		public long getBatches() {
+			return batches.get();
+		}
+
+		/**
+		 * @return the number of commits that were dropped because the queue was full
+		 */
+		public long getDroppedCommits() {
+			return dropped.get();
+		}
+
+		/**
+		 * @return the time between commit and delivery of the last batch in milliseconds
+		 */
+		public long getLastLag() {
+			return lastLag.get();
+		}
+
+		/**
+		 * @return the maximum time between commit and delivery in milliseconds
+		 */
+		public long getMaxLag() {
+			return maxLag.get();
+		}
+
+		public int getQueueSize() {
+			return queue != null ? queue.size() : 0;
+		}
+
+		@Override
+		public String toString() {
+			return getDeliveredCommits() + " commits in " + getBatches() + " batches, " + getDroppedCommits() + " dropped, lag " + getLastLag() + " ms (max " + getMaxLag() + " ms), " + getQueueSize() + " queued";
+		}
+
+		private void delivered(final int commitCount, final long lag) {
+
+			commits.addAndGet(commitCount);
+			batches.incrementAndGet();
+			lastLag.set(lag);
+
+			long max = maxLag.get();
+			while (lag > max && !maxLag.compareAndSet(max, lag)) {
+				max = maxLag.get();
+			}
+		}
+	}
+
+	private static class Commit {
+
+		private final List<ModificationEvent> modificationEvents;
+		private final SecurityContext securityContext;
+		private final long timestamp;
+
+		public Commit(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+
+			this.securityContext    = securityContext;
+			this.modificationEvents = modificationEvents;
+			this.timestamp          = System.currentTimeMillis();
+		}
+	}
+
+	private static class ListenerWorker extends Thread {
+
+		private final ListenerMetrics metrics;
+		private final StructrTransactionListener listener;
+		private final BlockingQueue<Commit> queue;
+		private final int queueSize;
+		private final int batchSize;
+		private volatile boolean running = true;
+
+		public ListenerWorker(final StructrTransactionListener listener, final int queueSize, final int batchSize, final ListenerMetrics metrics) {
+
+			super("TransactionListener-" + listener.getClass().getSimpleName());
+
+			this.listener      = listener;
+			this.metrics       = metrics;
+			this.queue         = new ArrayBlockingQueue<>(queueSize);
+			this.queueSize     = queueSize;
+			this.batchSize     = batchSize;
+			this.metrics.queue = queue;
+
+			setDaemon(true);
+		}
+
+		public void enqueue(final Commit commit) {
+
+			if (!queue.offer(commit)) {
+
+				if (metrics.dropped.incrementAndGet() % 1000 == 1) {
+
+					logger.log(Level.WARNING, "Event queue of transaction listener {0} is full, {1} commits dropped so far", new Object[] { listener, metrics.dropped.get() });
+				}
+			}
+		}
+
+		public void shutdown() {
+
+			running = false;
+			interrupt();
+		}
+
+		/**
+		 * Moves the pending commits of this worker to the given worker.
+		 *
+		 * @param worker
+		 */
+		public void transferTo(final ListenerWorker worker) {
+
+			Commit commit = queue.poll();
+			while (commit != null) {
+
+				worker.enqueue(commit);
+				commit = queue.poll();
+			}
+		}
+
+		@Override
+		public void run() {
+
+			final List<Commit> commits = new ArrayList<>(batchSize);
+
+			while (running) {
+
+				try {
+					final Commit first = queue.poll(1, TimeUnit.SECONDS);
+					if (first == null) {
+						continue;
+					}
+
+					commits.add(first);
+					queue.drainTo(commits, batchSize - 1);
+
+					deliver(commits);
+
+				} catch (InterruptedException iex) {
+
+					// shutdown() was called
+
+				} finally {
+
+					commits.clear();
+				}
+			}
+		}
+
+		private void deliver(final List<Commit> commits) {
+
+			final int size = commits.size();
+			int start      = 0;
+
+			// coalesce consecutive commits of the same security context
+			while (start < size) {
+
+				final SecurityContext securityContext = commits.get(start).securityContext;
+				final List<ModificationEvent> events  = new ArrayList<>();
+				long oldest                           = commits.get(start).timestamp;
+				int end                               = start;
+
+				while (end < size && commits.get(end).securityContext == securityContext) {
+
+					final Commit commit = commits.get(end++);
+
+					events.addAll(commit.modificationEvents);
+					oldest = Math.min(oldest, commit.timestamp);
+				}
+
+				try {
+					listener.transactionCommited(securityContext, events);
+
+				} catch (Throwable t) {
+
+					logger.log(Level.WARNING, "Error in transaction listener " + listener, t);
+				}
+
+				metrics.delivered(end - start, System.currentTimeMillis() - oldest);
+
+				start = end;
+			}
+		}
+	}
+}
@@ -18,9 +18,14 @@
  */
 package org.structr.core.graph.search;
 
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.structr.core.GraphObject;
+import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
 
 /**
@@ -33,8 +38,34 @@ public class NotBlankSearchAttribute<T> extends EmptySearchAttribute<T> {
 		super(key, null);
 	}
 	
+	/**
+	 * Returns an index query for keys that are indexed when empty, so
+	 * that the search does not need to evaluate {@link #includeInResult}
+	 * for every candidate. Every indexed entity has a term for such a
+	 * key, and blank values are stored as the empty field value, so
+	 * "not blank" means "any term except the empty field value".
+	 * 
+	 * @return the query, or null if this attribute must be filtered
+	 */
 	@Override
 	public Query getQuery() {
+
+		final PropertyKey<T> key = getKey();
+
+		if (BooleanClause.Occur.MUST.equals(getOccur()) && key instanceof Property && key.isIndexed() && key.isIndexedWhenEmpty()) {
+
+			final Object emptyValue = ((Property)key).getValueForEmptyFields();
+			if (emptyValue instanceof String) {
+
+				final BooleanQuery query = new BooleanQuery();
+
+				query.add(new TermRangeQuery(key.dbName(), null, null, true, true), BooleanClause.Occur.MUST);
+				query.add(new TermQuery(new Term(key.dbName(), (String)emptyValue)), BooleanClause.Occur.MUST_NOT);
+
+				return query;
+			}
+		}
+
 		return null;
 	}
 
@@ -20,6 +20,7 @@ package org.structr.core.graph.search;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -27,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,6 +54,7 @@ import org.structr.core.Result;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.Factory;
+import org.structr.core.graph.IndexAccess;
 import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
@@ -83,6 +86,12 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	public static final String CITY_SEARCH_KEYWORD        = "city";
 	public static final String STREET_SEARCH_KEYWORD      = "street";
 
+	/**
+	 * Up to this number of objects (page * pageSize), filtered results
+	 * are sorted with a bounded heap instead of sorting the whole list.
+	 */
+	public static final int TOP_K_LIMIT                   = 100000;
+
 	static {
 
 		specialChars.add('\\');
@@ -185,7 +194,9 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				hasGraphSources = true;
 			}
 			
-			if (attr instanceof EmptySearchAttribute) {
+			// empty search attributes that cannot be expressed
+			// as an index query must be evaluated in Java
+			if (attr instanceof EmptySearchAttribute && attr.getQuery() == null) {
 				hasEmptySearchFields = true;
 			}
 		}
@@ -244,10 +255,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 					LayerNodeIndex spatialIndex = this.getSpatialIndex();
 					if (spatialIndex != null) {
 
-						synchronized (spatialIndex) {
-
-							hits = spatialIndex.query(LayerNodeIndex.WITHIN_DISTANCE_QUERY, params);
-						}
+						hits = IndexAccess.querySpatial(spatialIndex, LayerNodeIndex.WITHIN_DISTANCE_QUERY, params);
 					}
 				}
 					
@@ -259,50 +267,44 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 				index = getKeywordIndex();
 
-				synchronized (index) {
+				try {
+					hits = IndexAccess.query(index, queryContext);
 
-					try {
-						hits = index.query(queryContext);
+				} catch (NumberFormatException nfe) {
 
-					} catch (NumberFormatException nfe) {
+					logger.log(Level.SEVERE, "Could not sort results", nfe);
 
-						logger.log(Level.SEVERE, "Could not sort results", nfe);
+					// retry without sorting
+					queryContext.sort(null);
+					hits = IndexAccess.query(index, queryContext);
 
-						// retry without sorting
-						queryContext.sort(null);
-						hits = index.query(queryContext);
-
-					}
 				}
 
 				// all luecene query, do not filter results
 				filterResults = hasEmptySearchFields;
-				intermediateResult = factory.instantiate(hits);
+				intermediateResult = instantiate(factory, hits, filterResults);
 
 			} else {
 
 				// Default: Mixed or fulltext-only search: Use fulltext index
 				index = getFulltextIndex();
 
-				synchronized (index) {
-
-					try {
-						hits = index.query(queryContext);
+				try {
+					hits = IndexAccess.query(index, queryContext);
 
-					} catch (NumberFormatException nfe) {
+				} catch (NumberFormatException nfe) {
 
-						logger.log(Level.SEVERE, "Could not sort results", nfe);
+					logger.log(Level.SEVERE, "Could not sort results", nfe);
 
-						// retry without sorting
-						queryContext.sort(null);
-						hits = index.query(queryContext);
+					// retry without sorting
+					queryContext.sort(null);
+					hits = IndexAccess.query(index, queryContext);
 
-					}
 				}
 
 				// all luecene query, do not filter results
 				filterResults = hasEmptySearchFields;
-				intermediateResult = factory.instantiate(hits);
+				intermediateResult = instantiate(factory, hits, filterResults);
 			}
 
 			if (hits != null) {
@@ -310,12 +312,15 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			}
 		}
 
-		if (filterResults) {
+		if (filterResults && !hasGraphSources && distanceSearch == null) {
+
+			// index results have already been filtered and paged
+			return intermediateResult;
+
+		} else if (filterResults) {
 
 			// sorted result set
 			Set<GraphObject> intermediateResultSet = new LinkedHashSet<>(intermediateResult.getResults());
-			List<GraphObject> finalResult          = new LinkedList<>();
-			int resultCount                        = 0;
 
 			// We need to find out whether there was a source for any of the possible sets that we want to merge.
 			// If there was only a single source, the final result is the result of that source. If there are
@@ -351,42 +356,101 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 //				intermediateResultSet.retainAll(mergeSources(sources));
 //			}
 
-			// Filter intermediate result
-			for (GraphObject obj : intermediateResultSet) {
+			// CHM 2014-02-24: sort only if not result of a spatial search!
+			return filterAndPage(intermediateResultSet, distanceSearch == null);
 
-				boolean addToResult = true;
+		} else {
 
-				// check all attributes before adding a node
-				for (SearchAttribute attr : rootGroup.getSearchAttributes()) {
+			// no filtering
+			return intermediateResult;
+		}
+	}
+	
+	/**
+	 * Instantiates the given index hits. If the hits need to be filtered
+	 * in Java, they are instantiated lazily while filtering, so that the
+	 * factory's paging is not applied before the filter is.
+	 */
+	private Result<T> instantiate(final Factory<S, T> factory, final IndexHits<S> hits, final boolean filter) throws FrameworkException {
 
-					// check all search attributes
-					addToResult &= attr.includeInResult(obj);
-				}
+		if (filter) {
+
+			final Factory<S, T> unpagedFactory = getFactory(securityContext, includeDeletedAndHidden, publicOnly, Integer.MAX_VALUE, 1, null);
+
+			return filterAndPage(unpagedFactory.instantiateLazily(hits), true);
+		}
+
+		return factory.instantiate(hits);
+	}
 
-				if (addToResult) {
+	/**
+	 * Filters the given candidates with the search attributes of the root
+	 * group and returns the requested page.
+	 * 
+	 * For positive pages without an offset id, only the first page * pageSize
+	 * matching objects (in sort order) are kept in a bounded heap, so memory
+	 * usage and sorting cost do not grow with the number of candidates.
+	 */
+	private Result<T> filterAndPage(final Iterable<? extends GraphObject> candidates, final boolean sort) {
 
-					finalResult.add(obj);
+		final List<SearchAttribute> attributes   = rootGroup.getSearchAttributes();
+		final Comparator<GraphObject> comparator = sort && sortKey != null ? new GraphObjectComparator(sortKey, sortDescending) : null;
+		final long limit                         = (long)page * (long)pageSize;
+		int resultCount                          = 0;
+
+		if (page > 0 && offsetId == null && limit <= TOP_K_LIMIT) {
+
+			final TopK topK = new TopK((int)limit, comparator);
+
+			for (GraphObject obj : candidates) {
+
+				if (includeInResult(obj, attributes)) {
+
+					topK.add(obj);
 					resultCount++;
 				}
 			}
 
-			// CHM 2014-02-24: sort only if not result of a spatial search!
-			if (distanceSearch == null) {
-				
-				// sort list
-				Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
+			final List<GraphObject> sorted = topK.toList();
+			final int fromIndex            = Math.min(sorted.size(), (page - 1) * pageSize);
+
+			return new Result(new ArrayList<>(sorted.subList(fromIndex, sorted.size())), resultCount, true, false);
+		}
+
+		// negative pages and offset ids need the complete result
+		final List<GraphObject> finalResult = new ArrayList<>();
+
+		for (GraphObject obj : candidates) {
+
+			if (includeInResult(obj, attributes)) {
+
+				finalResult.add(obj);
+				resultCount++;
 			}
-			
-			// return paged final result
-			return new Result(PagingHelper.subList(finalResult, pageSize, page, offsetId), resultCount, true, false);
+		}
 
-		} else {
+		if (comparator != null) {
 
-			// no filtering
-			return intermediateResult;
+			Collections.sort(finalResult, comparator);
 		}
+
+		// return paged final result
+		return new Result(PagingHelper.subList(finalResult, pageSize, page, offsetId), resultCount, true, false);
 	}
-	
+
+	private boolean includeInResult(final GraphObject obj, final List<SearchAttribute> attributes) {
+
+		// check all attributes before adding a node
+		for (SearchAttribute attr : attributes) {
+
+			if (!attr.includeInResult(obj)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	private Set<GraphObject> mergeSources(List<SourceSearchAttribute> sources) {
 		
 		Set<GraphObject> mergedResult = new LinkedHashSet<>();
@@ -860,4 +924,93 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		}
 		
 	}
+
+	/**
+	 * Bounded collector that keeps the first k objects according to the
+	 * given comparator, or in encounter order if no comparator is set.
+	 * Objects that compare equal retain their encounter order.
+	 */
+	private static class TopK {
+
+		private PriorityQueue<Entry> heap          = null;
+		private Comparator<GraphObject> comparator = null;
+		private int limit                          = 0;
+		private int sequence                       = 0;
+
+		public TopK(final int limit, final Comparator<GraphObject> comparator) {
+
+			this.comparator = comparator;
+			this.limit      = limit;
+
+			// reverse order, so the head of the queue is the last element
+			this.heap = new PriorityQueue<>(Math.max(1, Math.min(limit, 1000)), new Comparator<Entry>() {
+
+				@Override
+				public int compare(final Entry e1, final Entry e2) {
+					return compareEntries(e2, e1);
+				}
+			});
+		}
+
+		public void add(final GraphObject obj) {
+
+			final Entry entry = new Entry(obj, sequence++);
+
+			if (heap.size() < limit) {
+
+				heap.add(entry);
+
+			} else if (limit > 0 && compareEntries(entry, heap.peek()) < 0) {
+
+				heap.poll();
+				heap.add(entry);
+			}
+		}
+
+		public List<GraphObject> toList() {
+
+			final List<Entry> entries    = new ArrayList<>(heap);
+			final List<GraphObject> list = new ArrayList<>(entries.size());
+
+			Collections.sort(entries, new Comparator<Entry>() {
+
+				@Override
+				public int compare(final Entry e1, final Entry e2) {
+					return compareEntries(e1, e2);
+				}
+			});
+
+			for (Entry entry : entries) {
+				list.add(entry.obj);
+			}
+
+			return list;
+		}
+
+		private int compareEntries(final Entry e1, final Entry e2) {
+
+			if (comparator != null) {
+
+				final int result = comparator.compare(e1.obj, e2.obj);
+				if (result != 0) {
+
+					return result;
+				}
+			}
+
+			return Integer.compare(e1.sequence, e2.sequence);
+		}
+
+		private static class Entry {
+
+			private GraphObject obj = null;
+			private int sequence    = 0;
+
+			public Entry(final GraphObject obj, final int sequence) {
+
+				this.obj      = obj;
+				this.sequence = sequence;
+			}
+		}
+	}
 }
@@ -29,6 +29,7 @@ import org.structr.core.graph.NodeService.NodeIndex;
 import org.structr.core.graph.NodeServiceCommand;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.entity.Principal;
+import org.structr.core.graph.IndexAccess;
 import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 
@@ -55,7 +56,7 @@ public class SearchUserCommand extends NodeServiceCommand {
 
 					final String userName = (String) parameters[0];
 
-					for (final Node n : index.get(AbstractNode.name.dbName(), userName)) {
+					for (final Node n : IndexAccess.get(index, AbstractNode.name.dbName(), userName)) {
 
 						final NodeInterface s = nodeFactory.instantiate(n);
 
@@ -76,14 +77,9 @@ public class SearchUserCommand extends NodeServiceCommand {
 				final PropertyKey key = (PropertyKey) parameters[1];
 				final NodeIndex idx = (NodeIndex) parameters[2];
 				final Index<Node> index = getIndexFromArguments(idx, arguments);
-				IndexHits<Node> indexHits = null;
 
-				synchronized (index) {
-
-					// see: http://docs.neo4j.org/chunked/milestone/indexing-create-advanced.html
-					indexHits = index.query( key.dbName(), "\"" + userNickName + "\"" );
-					
-				}
+				// see: http://docs.neo4j.org/chunked/milestone/indexing-create-advanced.html
+				final IndexHits<Node> indexHits = IndexAccess.query(index, key.dbName(), "\"" + userNickName + "\"");
 				
 				try {
 					for (final Node n : indexHits) {
@@ -43,6 +43,7 @@ import org.structr.core.app.Query;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
+import org.structr.core.graph.IndexAccess;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeService;
 import org.structr.core.graph.NodeService.NodeIndex;
@@ -368,21 +369,18 @@ public abstract class Property<T> implements PropertyKey<T> {
 
 					try {
 
-						synchronized (index) {
+						if (value != null && !StringUtils.isBlank(value.toString())) {
 
-							index.remove(dbNode, dbName);
+							IndexAccess.replace(index, dbNode, dbName, value);
 
-							if (value != null && !StringUtils.isBlank(value.toString())) {
-									index.add(dbNode, dbName, value);
+						} else if (isIndexedWhenEmpty()) {
 
-							} else if (isIndexedWhenEmpty()) {
+							value = getValueForEmptyFields();
+							IndexAccess.replace(index, dbNode, dbName, value);
 
-								value = getValueForEmptyFields();
-								if (value != null) {
+						} else {
 
-									index.add(dbNode, dbName, value);
-								}
-							}
+							IndexAccess.remove(index, dbNode, dbName);
 						}
 
 					} catch (Throwable t) {
@@ -405,22 +403,18 @@ public abstract class Property<T> implements PropertyKey<T> {
 
 					try {
 
-						synchronized (index) {
+						if (value != null && !StringUtils.isBlank(value.toString())) {
 
-							index.remove(dbRel, dbName);
+							IndexAccess.replace(index, dbRel, dbName, value);
 
-							if (value != null && !StringUtils.isBlank(value.toString())) {
+						} else if (isIndexedWhenEmpty()) {
 
-								index.add(dbRel, dbName, value);
+							value = getValueForEmptyFields();
+							IndexAccess.replace(index, dbRel, dbName, value);
 
-							} else if (isIndexedWhenEmpty()) {
+						} else {
 
-								value = getValueForEmptyFields();
-								if (value != null) {
-
-									index.add(dbRel, dbName, value);
-								}
-							}
+							IndexAccess.remove(index, dbRel, dbName);
 						}
 
 					} catch (Throwable t) {
@@ -27,8 +27,10 @@ import org.structr.core.PropertyValidator;
 import org.structr.core.entity.AbstractNode;
 import java.util.logging.Logger;
 import org.structr.common.error.FrameworkException;
+import org.structr.common.error.ReservedValueToken;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.TransactionCommand;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -61,6 +63,14 @@ public class GlobalPropertyUniquenessValidator<T> implements PropertyValidator<T
 			String id			= null;
 			GraphObject existingNode	= null;
 
+			// make sure that no concurrent transaction commits the same value
+			if (!TransactionCommand.reserveUniqueValue(GraphObject.class, key, value)) {
+
+				errorBuffer.add(object.getType(), new ReservedValueToken(key, value));
+
+				return false;
+			}
+
 			try {
 
 				// UUID is globally unique
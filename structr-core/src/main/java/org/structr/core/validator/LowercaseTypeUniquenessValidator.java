@@ -23,11 +23,13 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.LowercaseUniqueToken;
+import org.structr.common.error.ReservedValueToken;
 import org.structr.core.GraphObject;
 import org.structr.core.PropertyValidator;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeService.NodeIndex;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.graph.search.SearchUserCommand;
 
 
@@ -58,6 +60,14 @@ public class LowercaseTypeUniquenessValidator implements PropertyValidator<Strin
 			return true;
 		}
 
+		// make sure that no concurrent transaction commits the same value
+		if (value != null && !TransactionCommand.reserveUniqueValue(type, key, value.toLowerCase())) {
+
+			errorBuffer.add(object.getType(), new ReservedValueToken(key, value));
+
+			return false;
+		}
+
 		final AbstractNode result = lookup(nodeIndex, key, value);
 		if (result != null && result.getId() != object.getId()) {
 
@@ -22,6 +22,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.EmptyPropertyToken;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
+import org.structr.common.error.ReservedValueToken;
 import org.structr.common.error.UniqueToken;
 import org.structr.core.GraphObject;
 import org.structr.core.PropertyValidator;
@@ -30,6 +31,7 @@ import java.util.logging.Logger;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.Result;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.TransactionCommand;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -75,6 +77,14 @@ public class TypeUniquenessValidator<T> implements PropertyValidator<T> {
 		
 		if (key != null) {
 
+			// make sure that no concurrent transaction commits the same value
+			if (!TransactionCommand.reserveUniqueValue(type, key, value)) {
+
+				errorBuffer.add(object.getType(), new ReservedValueToken(key, value));
+
+				return false;
+			}
+
 			boolean nodeExists               = false;
 			String id                        = null;
 
@@ -77,13 +77,18 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	private static final Logger logger                                                             = Logger.getLogger(JarConfigurationProvider.class.getName());
 	
 	public static final String DYNAMIC_TYPES_PACKAGE                                               = "org.structr.dynamic";
+	public static final int MAX_UNKNOWN_ENTITY_NAMES                                               = 10000;
 	
 	private final Map<String, Class<? extends RelationshipInterface>> relationshipEntityClassCache = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Map<String, Class<? extends NodeInterface>> nodeEntityClassCache                 = new ConcurrentHashMap(100, 0.9f, 8);
 	private final Map<String, Class<? extends Agent>> agentClassCache	                       = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Set<String> nodeEntityPackages				                       = new LinkedHashSet<>();
 	private final Set<String> relationshipPackages				                       = new LinkedHashSet<>();
+	private final Set<String> unknownNodeEntityNames			                       = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final Set<String> unknownRelationshipEntityNames		                       = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private volatile long unknownEntityNamesGeneration			                       = 0L;
 	private final Map<String, Class> combinedTypeRelationClassCache		                       = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<TypeTriple, Class> relationClassResolutionCache		                       = new ConcurrentHashMap<>(100, 0.9f, 8);
 	private final Map<String, Set<Class>> interfaceCache			                       = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Set<String> agentPackages					                       = new LinkedHashSet<>();
 	private final String fileSep						                       = System.getProperty("file.separator");
@@ -92,19 +97,24 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	private final String testClassesDir					                       = fileSep.concat("test-classes");
 	private final String classesDir						                       = fileSep.concat("classes");
 	 
+	// registration side of the type metadata, only modified while holding the lock of this instance
 	private final Map<String, Map<String, Set<PropertyKey>>> globalPropertyViewMap                 = new LinkedHashMap<>();
 	private final Map<String, Map<PropertyKey, Set<PropertyValidator>>> globalValidatorMap         = new LinkedHashMap<>();
 	private final Map<String, Map<String, PropertyKey>> globalClassDBNamePropertyMap               = new LinkedHashMap<>();
 	private final Map<String, Map<String, PropertyKey>> globalClassJSNamePropertyMap               = new LinkedHashMap<>();
-	private final Map<String, Map<String, PropertyGroup>> globalAggregatedPropertyGroupMap         = new LinkedHashMap<>();
 	private final Map<String, Map<String, PropertyGroup>> globalPropertyGroupMap                   = new LinkedHashMap<>();
-	private final Map<String, Map<String, ViewTransformation>> viewTransformations                 = new LinkedHashMap<>();
-	private final Map<String, Set<Transformation<GraphObject>>> globalTransformationMap            = new LinkedHashMap<>();
-	private final Map<String, Set<Method>> exportedMethodMap                                       = new LinkedHashMap<>();
-	private final Map<Class, Set<Class>> interfaceMap                                              = new LinkedHashMap<>();
-	private final Map<String, Class> reverseInterfaceMap                                           = new LinkedHashMap<>();
-	private final Set<PropertyKey> globalKnownPropertyKeys                                         = new LinkedHashSet<>();
-	private final Set<String> dynamicViews                                                         = new LinkedHashSet<>();
+	private final Set<String> modifiedTypes                                                        = new LinkedHashSet<>();
+
+	// immutable per-class snapshot of the above, replaced atomically after each registration
+	private volatile Map<String, TypeMetadata> typeMetadata                                        = Collections.emptyMap();
+
+	private final Map<String, Map<String, ViewTransformation>> viewTransformations                 = new ConcurrentHashMap<>();
+	private final Map<String, Set<Transformation<GraphObject>>> globalTransformationMap            = new ConcurrentHashMap<>();
+	private final Map<String, Set<Method>> exportedMethodMap                                       = new ConcurrentHashMap<>();
+	private final Map<Class, Set<Class>> interfaceMap                                              = new ConcurrentHashMap<>();
+	private final Map<String, Class> reverseInterfaceMap                                           = new ConcurrentHashMap<>();
+	private final Set<PropertyKey> globalKnownPropertyKeys                                         = Collections.newSetFromMap(new ConcurrentHashMap<PropertyKey, Boolean>());
+	private volatile Set<String> dynamicViews                                                      = Collections.emptySet();
         
 	private FactoryDefinition factoryDefinition                                                    = new DefaultFactoryDefinition();
 
@@ -148,42 +158,26 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Class getNodeEntityClass(final String name) {
 
-		Class nodeEntityClass = GenericNode.class;
-
-		if ((name != null) && (!name.isEmpty())) {
-
-			nodeEntityClass = nodeEntityClassCache.get(name);
-
-			if (nodeEntityClass == null) {
-
-				for (String possiblePath : nodeEntityPackages) {
-
-					if (possiblePath != null) {
-
-						try {
-
-							Class nodeClass = Class.forName(possiblePath + "." + name);
+		if ((name == null) || (name.isEmpty())) {
+			return GenericNode.class;
+		}
 
-							if (!Modifier.isAbstract(nodeClass.getModifiers())) {
+		Class nodeEntityClass = nodeEntityClassCache.get(name);
 
-								nodeEntityClassCache.put(name, nodeClass);
+		if (nodeEntityClass == null && !unknownNodeEntityNames.contains(name)) {
 
-								// first match wins
-								break;
+			final long generation = unknownEntityNamesGeneration;
 
-							}
+			nodeEntityClass = findEntityClass(name, nodeEntityPackages);
 
-						} catch (ClassNotFoundException ex) {
+			if (nodeEntityClass != null) {
 
-							// ignore
-						}
+				nodeEntityClassCache.put(name, nodeEntityClass);
 
-					}
-
-				}
+			} else {
 
+				addUnknownName(unknownNodeEntityNames, name, generation);
 			}
-
 		}
 
 		return nodeEntityClass;
@@ -193,42 +187,26 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Class getRelationshipEntityClass(final String name) {
 
-		Class relationClass = AbstractNode.class;
-
-		if ((name != null) && (name.length() > 0)) {
-
-			relationClass = relationshipEntityClassCache.get(name);
-
-			if (relationClass == null) {
-
-				for (String possiblePath : relationshipPackages) {
-
-					if (possiblePath != null) {
-
-						try {
+		if ((name == null) || (name.isEmpty())) {
+			return AbstractNode.class;
+		}
 
-							Class nodeClass = Class.forName(possiblePath + "." + name);
+		Class relationClass = relationshipEntityClassCache.get(name);
 
-							if (!Modifier.isAbstract(nodeClass.getModifiers())) {
+		if (relationClass == null && !unknownRelationshipEntityNames.contains(name)) {
 
-								relationshipEntityClassCache.put(name, nodeClass);
+			final long generation = unknownEntityNamesGeneration;
 
-								// first match wins
-								return nodeClass;
+			relationClass = findEntityClass(name, relationshipPackages);
 
-							}
+			if (relationClass != null) {
 
-						} catch (ClassNotFoundException ex) {
+				relationshipEntityClassCache.put(name, relationClass);
 
-							// ignore
-						}
-
-					}
-
-				}
+			} else {
 
+				addUnknownName(unknownRelationshipEntityNames, name, generation);
 			}
-
 		}
 
 		return relationClass;
@@ -282,12 +260,21 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 	@Override
 	public void setRelationClassForCombinedType(final String combinedType, final Class clazz) {
+
 		combinedTypeRelationClassCache.put(combinedType, clazz);
+
+		// resolution may have been cached as a negative entry
+		relationClassResolutionCache.clear();
 	}
 	
 	@Override
 	public void setRelationClassForCombinedType(final String sourceType, final String relType, final String targetType, final Class clazz) {
+
 		combinedTypeRelationClassCache.put(getCombinedType(sourceType, relType, targetType), clazz);
+
+		if (sourceType != null && relType != null && targetType != null) {
+			relationClassResolutionCache.put(new TypeTriple(sourceType, relType, targetType).intern(), clazz);
+		}
 	}
 
 	public Class getRelationClassForCombinedType(final String combinedType) {
@@ -307,22 +294,24 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		if (sourceTypeName == null || relType == null || targetTypeName == null) {
 			return null;
 		}
-		
-		String combinedType =
-			
-			sourceTypeName
-			.concat(DefaultFactoryDefinition.COMBINED_RELATIONSHIP_KEY_SEP)
-			.concat(relType)
-			.concat(DefaultFactoryDefinition.COMBINED_RELATIONSHIP_KEY_SEP)
-			.concat(targetTypeName);
-		
-		Class cachedRelationClass = getRelationClassForCombinedType(combinedType);
-		
-		if (cachedRelationClass != null) {
-			return cachedRelationClass;
+
+		final TypeTriple key = new TypeTriple(sourceTypeName, relType, targetTypeName);
+		Class relationClass  = relationClassResolutionCache.get(key);
+
+		if (relationClass != null) {
+			return relationClass != NoRelationClass.class ? relationClass : null;
 		}
-		
-		return findNearestMatchingRelationClass(sourceTypeName, relType, targetTypeName);
+
+		relationClass = getRelationClassForCombinedType(getCombinedType(sourceTypeName, relType, targetTypeName));
+		if (relationClass == null) {
+
+			relationClass = findNearestMatchingRelationClass(sourceTypeName, relType, targetTypeName);
+		}
+
+		// cache negative results as well, the resolution cache is cleared when new types are registered
+		relationClassResolutionCache.put(key.intern(), relationClass != null ? relationClass : NoRelationClass.class);
+
+		return relationClass;
 	}
 	
 	/**
@@ -503,7 +492,11 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	}
 	
 	@Override
-	public void unregisterEntityType(final String typeName) {
+	public synchronized void unregisterEntityType(final String typeName) {
+
+		unknownNodeEntityNames.clear();
+		unknownRelationshipEntityNames.clear();
+		unknownEntityNamesGeneration++;
 
 		nodeEntityClassCache.remove(typeName);
 		nodeEntityPackages.remove(JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE + typeName);
@@ -517,50 +510,74 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public void registerEntityType(final Class type) {
 
-		// moved here from scanEntity, no reason to have this in a separate
-		// method requiring two different calls instead of one
-		int modifiers = type.getModifiers();
-		if (!Modifier.isAbstract(modifiers) && !Modifier.isInterface(modifiers)) {
-			
-			String simpleName = type.getSimpleName();
-			String fullName   = type.getName();
+		final Map<Field, PropertyKey> allProperties = new LinkedHashMap<>();
+		final Map<Field, View> views                = new LinkedHashMap<>();
+		final int modifiers                         = type.getModifiers();
+		final boolean isConcrete                    = !Modifier.isAbstract(modifiers) && !Modifier.isInterface(modifiers);
 
-			if (AbstractNode.class.isAssignableFrom(type)) {
-				nodeEntityClassCache.put(simpleName, type);
-				nodeEntityPackages.add(fullName.substring(0, fullName.lastIndexOf(".")));
-				globalPropertyViewMap.remove(type.getName());
-			}
-			
-			if (AbstractRelationship.class.isAssignableFrom(type)) {
+		if (isConcrete) {
+
+			// instantiate outside of the lock, static initializers can register metadata as well
+			try {
+				
+				Object entity = type.newInstance();
 
-				relationshipEntityClassCache.put(simpleName, type);
-				relationshipPackages.add(fullName.substring(0, fullName.lastIndexOf(".")));
-				globalPropertyViewMap.remove(type.getName());
+				allProperties.putAll(getFieldValuesOfType(PropertyKey.class, entity));
+				views.putAll(getFieldValuesOfType(View.class, entity));
+				
+			} catch (Throwable t) {
+//				ignore
+//				t.printStackTrace();
+//				logger.log(Level.WARNING, "Unable to instantiate {0}: {1}", new Object[] { type, t.getMessage() } );
 			}
+		}
 
-			for (Class interfaceClass : type.getInterfaces()) {
+		synchronized (this) {
 
-				String interfaceName           = interfaceClass.getSimpleName();
-				Set<Class> classesForInterface = interfaceCache.get(interfaceName);
+			// new types can change the outcome of entity and relation class resolution
+			relationClassResolutionCache.clear();
+			unknownNodeEntityNames.clear();
+			unknownRelationshipEntityNames.clear();
+			unknownEntityNamesGeneration++;
 
-				if (classesForInterface == null) {
+			// moved here from scanEntity, no reason to have this in a separate
+			// method requiring two different calls instead of one
+			if (isConcrete) {
 
-					classesForInterface = new LinkedHashSet<>();
+				String simpleName = type.getSimpleName();
+				String fullName   = type.getName();
 
-					interfaceCache.put(interfaceName, classesForInterface);
+				if (AbstractNode.class.isAssignableFrom(type)) {
+					nodeEntityClassCache.put(simpleName, type);
+					nodeEntityPackages.add(fullName.substring(0, fullName.lastIndexOf(".")));
+					globalPropertyViewMap.remove(type.getName());
+					modifiedTypes.add(type.getName());
+				}
 
+				if (AbstractRelationship.class.isAssignableFrom(type)) {
+
+					relationshipEntityClassCache.put(simpleName, type);
+					relationshipPackages.add(fullName.substring(0, fullName.lastIndexOf(".")));
+					globalPropertyViewMap.remove(type.getName());
+					modifiedTypes.add(type.getName());
 				}
 
-				classesForInterface.add(type);
+				for (Class interfaceClass : type.getInterfaces()) {
 
-			}
+					String interfaceName           = interfaceClass.getSimpleName();
+					Set<Class> classesForInterface = interfaceCache.get(interfaceName);
 
-			try {
-				
-				Object entity                         = type.newInstance();
-				Map<Field, PropertyKey> allProperties = getFieldValuesOfType(PropertyKey.class, entity);
-				Map<Field, View> views                = getFieldValuesOfType(View.class, entity);
-				Class entityType                      = entity.getClass();
+					if (classesForInterface == null) {
+
+						classesForInterface = new LinkedHashSet<>();
+
+						interfaceCache.put(interfaceName, classesForInterface);
+
+					}
+
+					classesForInterface.add(type);
+
+				}
 
 				for (Map.Entry<Field, PropertyKey> entry : allProperties.entrySet()) {
 
@@ -575,7 +592,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 					}
 
-					registerProperty(entityType, propertyKey);
+					registerProperty(type, propertyKey);
 				}
 
 				for (Map.Entry<Field, View> entry : views.entrySet()) {
@@ -586,28 +603,28 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 					for (PropertyKey propertyKey : view.properties()) {
 
 						// register field in view for entity class and declaring superclass
-						registerPropertySet(field.getDeclaringClass(), view.name(), propertyKey);
-						registerPropertySet(entityType, view.name(), propertyKey);
+						addPropertySet(field.getDeclaringClass(), view.name(), propertyKey);
+						addPropertySet(type, view.name(), propertyKey);
 					}
 				}
-				
-			} catch (Throwable t) {
-//				ignore
-//				t.printStackTrace();
-//				logger.log(Level.WARNING, "Unable to instantiate {0}: {1}", new Object[] { type, t.getMessage() } );
 			}
-		}
-		
-		Set<Method> typeMethods = exportedMethodMap.get(type.getName());
-		if (typeMethods == null) {
-			typeMethods = new LinkedHashSet<>();
+
+			// replace instead of modifying the set, it is read without locking
+			final Set<Method> typeMethods     = new LinkedHashSet<>();
+			final Set<Method> existingMethods = exportedMethodMap.get(type.getName());
+
+			if (existingMethods != null) {
+				typeMethods.addAll(existingMethods);
+			}
+
+			typeMethods.addAll(getAnnotatedMethods(type, Export.class));
 			exportedMethodMap.put(type.getName(), typeMethods);
+
+			// extract interfaces for later use
+			getInterfacesForType(type);
+
+			publishTypeMetadata();
 		}
-		
-		typeMethods.addAll(getAnnotatedMethods(type, Export.class));
-		
-		// extract interfaces for later use
-		getInterfacesForType(type);
 	}
 	
 	/**
@@ -617,7 +634,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	 * @param transformation the transformation to apply on every entity
 	 */
 	@Override
-	public void registerEntityCreationTransformation(Class type, Transformation<GraphObject> transformation) {
+	public synchronized void registerEntityCreationTransformation(Class type, Transformation<GraphObject> transformation) {
 		
 		final Set<Transformation<GraphObject>> transformations = getEntityCreationTransformationsForType(type);
 		if (!transformations.contains(transformation)) {
@@ -632,14 +649,17 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		Set<Class> interfaces = interfaceMap.get(type);
 		if(interfaces == null) {
 			
-			interfaces = new LinkedHashSet<>();
-			interfaceMap.put(type, interfaces);
+			final Set<Class> newInterfaces = new LinkedHashSet<>();
 			
 			for(Class iface : type.getInterfaces()) {
 
 				reverseInterfaceMap.put(iface.getSimpleName(), iface);
-				interfaces.add(iface);
+				newInterfaces.add(iface);
 			}
+
+			// publish fully populated set only
+			interfaces = Collections.unmodifiableSet(newInterfaces);
+			interfaceMap.put(type, interfaces);
 		}
 		
 		return interfaces;
@@ -674,8 +694,12 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	 * @param propertyGroup the property group
 	 */
 	@Override
-	public void registerPropertyGroup(Class type, PropertyKey key, PropertyGroup propertyGroup) {
+	public synchronized void registerPropertyGroup(Class type, PropertyKey key, PropertyGroup propertyGroup) {
+
 		getPropertyGroupMapForType(type).put(key.dbName(), propertyGroup);
+		modifiedTypes.add(type.getName());
+
+		publishTypeMetadata();
 	}
 	
 	@Override
@@ -692,7 +716,11 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		// collect for all superclasses
 		while (localType != null && !localType.equals(Object.class)) {
 
-			transformations.addAll(getEntityCreationTransformationsForType(localType));
+			final Set<Transformation<GraphObject>> typeTransformations = globalTransformationMap.get(localType.getName());
+			if (typeTransformations != null) {
+
+				transformations.addAll(typeTransformations);
+			}
 
 			localType = localType.getSuperclass();
 
@@ -709,44 +737,47 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public PropertyGroup getPropertyGroup(Class type, String key) {
 
-		PropertyGroup group = getAggregatedPropertyGroupMapForType(type).get(key);
-		if(group == null) {
-			
-			Class localType     = type;
+		final Map<String, TypeMetadata> metadata = typeMetadata;
+		PropertyGroup group                      = null;
+		Class localType                          = type;
 
-			while(group == null && localType != null && !localType.equals(Object.class)) {
+		while(group == null && localType != null && !localType.equals(Object.class)) {
 
-				group = getPropertyGroupMapForType(localType).get(key);
+			group = getPropertyGroup(metadata, localType, key);
 
-				if(group == null) {
+			if(group == null) {
 
-					// try interfaces as well
-					for(Class interfaceClass : getInterfacesForType(localType)) {
+				// try interfaces as well
+				for(Class interfaceClass : getInterfacesForType(localType)) {
 
-						group = getPropertyGroupMapForType(interfaceClass).get(key);
-						if(group != null) {
-							break;
-						}
+					group = getPropertyGroup(metadata, interfaceClass, key);
+					if(group != null) {
+						break;
 					}
 				}
-
-				localType = localType.getSuperclass();
 			}
-			
-			getAggregatedPropertyGroupMapForType(type).put(key, group);
+
+			localType = localType.getSuperclass();
 		}
 		
 		return group;
 	}
 
 	@Override
-	public void registerViewTransformation(Class type, String view, ViewTransformation transformation) {
+	public synchronized void registerViewTransformation(Class type, String view, ViewTransformation transformation) {
 		getViewTransformationMapForType(type).put(view, transformation);
 	}
 	
 	@Override
 	public ViewTransformation getViewTransformation(Class type, String view) {
-		return getViewTransformationMapForType(type).get(view);
+
+		final Map<String, ViewTransformation> viewTransformationMap = viewTransformations.get(type.getName());
+		if (viewTransformationMap != null) {
+
+			return viewTransformationMap.get(view);
+		}
+
+		return null;
 	}
 
 	@Override
@@ -755,8 +786,8 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		Set<String> views = new LinkedHashSet<>();
 		
 		// add all existing views
-		for (Map<String, Set<PropertyKey>> view : globalPropertyViewMap.values()) {
-			views.addAll(view.keySet());
+		for (TypeMetadata metadata : typeMetadata.values()) {
+			views.addAll(metadata.views.keySet());
 		}
 		
 		// merge dynamic views in as well
@@ -767,22 +798,24 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	
 	@Override
 	public void registerDynamicViews(final Set<String> dynamicViews) {
-		this.dynamicViews.clear();
-		this.dynamicViews.addAll(dynamicViews);
+		this.dynamicViews = Collections.unmodifiableSet(new LinkedHashSet<>(dynamicViews));
 	}
 	
 	@Override
 	public Set<PropertyKey> getPropertySet(Class type, String propertyView) {
 
-		Map<String, Set<PropertyKey>> propertyViewMap = getPropertyViewMapForType(type);
-		Set<PropertyKey> properties                   = propertyViewMap.get(propertyView);
+		final TypeMetadata metadata = typeMetadata.get(type.getName());
+		if (metadata != null) {
 
-		if (properties == null) {
-			properties = new LinkedHashSet<>();
+			final Set<PropertyKey> properties = metadata.views.get(propertyView);
+			if (properties != null) {
+
+				// read-only
+				return properties;
+			}
 		}
-		
-		// read-only
-		return Collections.unmodifiableSet(properties);
+
+		return Collections.emptySet();
 	}
 
 	/**
@@ -794,18 +827,10 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	 * @param propertySet the set of property keys to register for the given view
 	 */
 	@Override
-	public void registerPropertySet(Class type, String propertyView, PropertyKey... propertySet) {
+	public synchronized void registerPropertySet(Class type, String propertyView, PropertyKey... propertySet) {
 
-		Map<String, Set<PropertyKey>> propertyViewMap = getPropertyViewMapForType(type);
-		Set<PropertyKey> properties                   = propertyViewMap.get(propertyView);
-		
-		if (properties == null) {
-			properties = new LinkedHashSet<>();
-			propertyViewMap.put(propertyView, properties);
-		}
-
-		// add all properties from set
-		properties.addAll(Arrays.asList(propertySet));
+		addPropertySet(type, propertyView, propertySet);
+		publishTypeMetadata();
 	}
 
 	@Override
@@ -816,8 +841,8 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public PropertyKey getPropertyKeyForDatabaseName(Class type, String dbName, boolean createGeneric) {
 
-		Map<String, PropertyKey> classDBNamePropertyMap = getClassDBNamePropertyMapForType(type);
-		PropertyKey key                                 = classDBNamePropertyMap.get(dbName);
+		final TypeMetadata metadata = typeMetadata.get(type.getName());
+		PropertyKey key             = metadata != null ? metadata.dbNameKeys.get(dbName) : null;
 		
 		if (key == null) {
 			
@@ -846,8 +871,8 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 			return null;
 		}
 
-		Map<String, PropertyKey> classJSNamePropertyMap = getClassJSNamePropertyMapForType(type);
-		PropertyKey key                                 = classJSNamePropertyMap.get(jsonName);
+		final TypeMetadata metadata = typeMetadata.get(type.getName());
+		PropertyKey key             = metadata != null ? metadata.jsonNameKeys.get(jsonName) : null;
 		
 		if (key == null) {
 			
@@ -869,38 +894,158 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Set<PropertyValidator> getPropertyValidators(final SecurityContext securityContext, Class type, PropertyKey propertyKey) {
 
-		Set<PropertyValidator> validators                     = new LinkedHashSet<>();
-		Map<PropertyKey, Set<PropertyValidator>> validatorMap = null;
-		Class localType                                       = type;
+		final Map<String, TypeMetadata> metadata = typeMetadata;
+		Set<PropertyValidator> validators        = null;
+		Class localType                          = type;
 
 		// try all superclasses
 		while (localType != null && !localType.equals(Object.class)) {
 
-			validatorMap = getPropertyValidatorMapForType(localType);
-			
-			Set<PropertyValidator> classValidators = validatorMap.get(propertyKey);
-			if(classValidators != null) {
-				validators.addAll(validatorMap.get(propertyKey));
-			}
+			validators = addValidators(validators, metadata, localType, propertyKey);
 
 			// try converters from interfaces as well
 			for(Class interfaceClass : getInterfacesForType(localType)) {
-				Set<PropertyValidator> interfaceValidators = getPropertyValidatorMapForType(interfaceClass).get(propertyKey);
-				if(interfaceValidators != null) {
-					validators.addAll(interfaceValidators);
-				}
+				validators = addValidators(validators, metadata, interfaceClass, propertyKey);
 			}
 			
-//                      logger.log(Level.INFO, "Validator class {0} found for type {1}", new Object[] { clazz != null ? clazz.getSimpleName() : "null", localType } );
 			// one level up :)
 			localType = localType.getSuperclass();
 
 		}
 
+		if (validators == null) {
+			return Collections.emptySet();
+		}
+
 		return validators;
 	}
-	
+
 	// ----- private methods -----
+	private void addPropertySet(Class type, String propertyView, PropertyKey... propertySet) {
+
+		Map<String, Set<PropertyKey>> propertyViewMap = getPropertyViewMapForType(type);
+		Set<PropertyKey> properties                   = propertyViewMap.get(propertyView);
+		
+		if (properties == null) {
+			properties = new LinkedHashSet<>();
+			propertyViewMap.put(propertyView, properties);
+		}
+
+		// add all properties from set
+		properties.addAll(Arrays.asList(propertySet));
+	}
+
+	/**
+	 * Replaces the metadata snapshot of all types that were modified since
+	 * the last call. Must be called while holding the lock of this instance.
+	 */
+	private void publishTypeMetadata() {
+
+		if (modifiedTypes.isEmpty()) {
+			return;
+		}
+
+		final Map<String, TypeMetadata> newMetadata = new LinkedHashMap<>(typeMetadata);
+
+		for (final String typeName : modifiedTypes) {
+
+			newMetadata.put(typeName, new TypeMetadata(
+				globalPropertyViewMap.get(typeName),
+				globalClassDBNamePropertyMap.get(typeName),
+				globalClassJSNamePropertyMap.get(typeName),
+				globalValidatorMap.get(typeName),
+				globalPropertyGroupMap.get(typeName)
+			));
+		}
+
+		modifiedTypes.clear();
+
+		typeMetadata = newMetadata;
+	}
+
+	private PropertyGroup getPropertyGroup(final Map<String, TypeMetadata> metadata, final Class type, final String key) {
+
+		final TypeMetadata typeMetadata = metadata.get(type.getName());
+		if (typeMetadata != null) {
+
+			return typeMetadata.propertyGroups.get(key);
+		}
+
+		return null;
+	}
+
+	private Set<PropertyValidator> addValidators(Set<PropertyValidator> validators, final Map<String, TypeMetadata> metadata, final Class type, final PropertyKey propertyKey) {
+
+		final TypeMetadata typeMetadata = metadata.get(type.getName());
+		if (typeMetadata != null) {
+
+			final Set<PropertyValidator> typeValidators = typeMetadata.validators.get(propertyKey);
+			if (typeValidators != null) {
+
+				if (validators == null) {
+					validators = new LinkedHashSet<>();
+				}
+
+				validators.addAll(typeValidators);
+			}
+		}
+
+		return validators;
+	}
+
+	/**
+	 * Tries to load a non-abstract class with the given simple name from
+	 * the given packages, first match wins.
+	 */
+	private Class findEntityClass(final String name, final Set<String> packages) {
+
+		final List<String> possiblePaths;
+
+		synchronized (this) {
+			possiblePaths = new ArrayList<>(packages);
+		}
+
+		for (String possiblePath : possiblePaths) {
+
+			if (possiblePath != null) {
+
+				try {
+
+					Class entityClass = Class.forName(possiblePath + "." + name);
+
+					if (!Modifier.isAbstract(entityClass.getModifiers())) {
+
+						return entityClass;
+					}
+
+				} catch (ClassNotFoundException | LinkageError ex) {
+
+					// ignore
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Records the given name as unknown, unless a type was registered or
+	 * unregistered since the lookup that read the given generation began.
+	 */
+	private synchronized void addUnknownName(final Set<String> unknownNames, final String name, final long generation) {
+
+		if (generation != unknownEntityNamesGeneration) {
+			return;
+		}
+
+		// names can come from requests or foreign data, so the set must not grow without limit
+		if (unknownNames.size() >= MAX_UNKNOWN_ENTITY_NAMES) {
+			unknownNames.clear();
+		}
+
+		unknownNames.add(name);
+	}
+
 	private void scanResources() {
 
 		Set<String> resourcePaths = getResourcesToScan();
@@ -1224,6 +1369,9 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		}
 
+		// callers modify the returned map
+		modifiedTypes.add(type.getName());
+
 		return propertyViewMap;
 	}
 
@@ -1239,6 +1387,8 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		}
 
+		modifiedTypes.add(type.getName());
+
 		return classDBNamePropertyMap;
 	}
 
@@ -1254,37 +1404,9 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		}
 
-		return classJSNamePropertyMap;
-	}
-
-	private Map<PropertyKey, Set<PropertyValidator>> getPropertyValidatorMapForType(Class type) {
-
-		Map<PropertyKey, Set<PropertyValidator>> validatorMap = globalValidatorMap.get(type.getName());
-
-		if (validatorMap == null) {
+		modifiedTypes.add(type.getName());
 
-			validatorMap = new LinkedHashMap<>();
-
-			globalValidatorMap.put(type.getName(), validatorMap);
-
-		}
-
-		return validatorMap;
-	}
-
-	private Map<String, PropertyGroup> getAggregatedPropertyGroupMapForType(Class type) {
-
-		Map<String, PropertyGroup> groupMap = globalAggregatedPropertyGroupMap.get(type.getName());
-
-		if (groupMap == null) {
-
-			groupMap = new LinkedHashMap<>();
-
-			globalAggregatedPropertyGroupMap.put(type.getName(), groupMap);
-
-		}
-
-		return groupMap;
+		return classJSNamePropertyMap;
 	}
 
 	private Map<String, PropertyGroup> getPropertyGroupMapForType(Class type) {
@@ -1322,7 +1444,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		
 		Map<String, ViewTransformation> viewTransformationMap = viewTransformations.get(type.getName());
 		if(viewTransformationMap == null) {
-			viewTransformationMap = new LinkedHashMap<>();
+			viewTransformationMap = new ConcurrentHashMap<>();
 			viewTransformations.put(type.getName(), viewTransformationMap);
 		}
 		
@@ -1334,7 +1456,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		getClassDBNamePropertyMapForType(type).put(propertyKey.dbName(),   propertyKey);
 		getClassJSNamePropertyMapForType(type).put(propertyKey.jsonName(), propertyKey);
 		
-		registerPropertySet(type, PropertyView.All, propertyKey);
+		addPropertySet(type, PropertyView.All, propertyKey);
 		
 		// inform property key of its registration
 		propertyKey.registrationCallback(type);
@@ -1355,4 +1477,105 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		
 		return buf.toString();
 	}
+
+	// ----- nested classes -----
+	/**
+	 * Immutable snapshot of the metadata of a single type.
+	 */
+	private static final class TypeMetadata {
+
+		private final Map<String, Set<PropertyKey>> views;
+		private final Map<String, PropertyKey> dbNameKeys;
+		private final Map<String, PropertyKey> jsonNameKeys;
+		private final Map<PropertyKey, Set<PropertyValidator>> validators;
+		private final Map<String, PropertyGroup> propertyGroups;
+
+		public TypeMetadata(final Map<String, Set<PropertyKey>> views, final Map<String, PropertyKey> dbNameKeys, final Map<String, PropertyKey> jsonNameKeys, final Map<PropertyKey, Set<PropertyValidator>> validators, final Map<String, PropertyGroup> propertyGroups) {
+
+			this.views          = copySets(views);
+			this.dbNameKeys     = copy(dbNameKeys);
+			this.jsonNameKeys   = copy(jsonNameKeys);
+			this.validators     = copySets(validators);
+			this.propertyGroups = copy(propertyGroups);
+		}
+
+		private static <K, V> Map<K, V> copy(final Map<K, V> source) {
+
+			if (source == null || source.isEmpty()) {
+				return Collections.emptyMap();
+			}
+
+			return Collections.unmodifiableMap(new LinkedHashMap<>(source));
+		}
+
+		private static <K, V> Map<K, Set<V>> copySets(final Map<K, Set<V>> source) {
+
+			if (source == null || source.isEmpty()) {
+				return Collections.emptyMap();
+			}
+
+			final Map<K, Set<V>> copy = new LinkedHashMap<>();
+
+			for (final Map.Entry<K, Set<V>> entry : source.entrySet()) {
+
+				// keep registration order of the elements
+				copy.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+			}
+
+			return Collections.unmodifiableMap(copy);
+		}
+	}
+
+	/**
+	 * Marker for (source type, relationship type, target type) combinations
+	 * for which no relation class exists.
+	 */
+	private static final class NoRelationClass {}
+
+	/**
+	 * Key of the relation class resolution cache. Keys that are stored in
+	 * the cache are interned, so that equal type names share one instance
+	 * and the equality checks of lookups are mostly identity checks.
+	 */
+	private static final class TypeTriple {
+
+		private final String sourceType;
+		private final String relType;
+		private final String targetType;
+		private final int hashCode;
+
+		public TypeTriple(final String sourceType, final String relType, final String targetType) {
+
+			this.sourceType = sourceType;
+			this.relType    = relType;
+			this.targetType = targetType;
+			this.hashCode   = (31 * (31 * sourceType.hashCode() + relType.hashCode())) + targetType.hashCode();
+		}
+
+		public TypeTriple intern() {
+			return new TypeTriple(sourceType.intern(), relType.intern(), targetType.intern());
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+
+			if (this == obj) {
+				return true;
+			}
+
+			if (obj instanceof TypeTriple) {
+
+				final TypeTriple other = (TypeTriple)obj;
+
+				return hashCode == other.hashCode && sourceType.equals(other.sourceType) && relType.equals(other.relType) && targetType.equals(other.targetType);
+			}
+
+			return false;
+		}
+	}
 }
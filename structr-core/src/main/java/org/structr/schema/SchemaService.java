@@ -33,6 +33,7 @@ import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.relationship.SchemaRelationship;
+import org.structr.core.graph.EntityCache;
 import org.structr.schema.compiler.NodeExtender;
 
 /**
@@ -75,6 +76,9 @@ public class SchemaService implements Service {
 			}
 
 			success = !errorBuffer.hasError();
+
+			// cached node types may have changed
+			EntityCache.getInstance().clear();
 			
 			// inject views in configuration provider
 			if (success) {
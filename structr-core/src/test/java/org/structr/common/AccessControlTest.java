@@ -43,6 +43,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.Result;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.TestOne;
+import org.structr.core.entity.TestSix;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -384,6 +385,126 @@ public class AccessControlTest extends StructrTest {
 
 	}
 
+	public void test08PermissionCache() {
+
+		try {
+
+			List<NodeInterface> users = createTestNodes(User.class, 2);
+			User user1 = (User) users.get(0);
+			final User user2 = (User) users.get(1);
+
+			final List<NodeInterface> nodes = createTestNodes(TestOne.class, 10);
+
+			try {
+				app.beginTx();
+
+				for (final NodeInterface node : nodes) {
+					user2.grant(Permission.read, (TestOne)node);
+				}
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			final PermissionCache permissionCache = PermissionCache.getInstance();
+
+			// first query resolves permissions
+			Result result = StructrApp.getInstance(SecurityContext.getInstance(user2, AccessMode.Backend)).nodeQuery(TestOne.class).getResult();
+			assertEquals(10, result.size());
+
+			// second query must be answered from the cache
+			final long hits = permissionCache.getHits();
+
+			result = StructrApp.getInstance(SecurityContext.getInstance(user2, AccessMode.Backend)).nodeQuery(TestOne.class).getResult();
+			assertEquals(10, result.size());
+			assertTrue(permissionCache.getHits() - hits >= 10);
+
+			// user 1 has no permissions at all
+			result = StructrApp.getInstance(SecurityContext.getInstance(user1, AccessMode.Backend)).nodeQuery(TestOne.class).getResult();
+			assertTrue(result.isEmpty());
+
+			try {
+				app.beginTx();
+				user2.revoke(Permission.read, (TestOne)nodes.get(0));
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			result = StructrApp.getInstance(SecurityContext.getInstance(user2, AccessMode.Backend)).nodeQuery(TestOne.class).getResult();
+			assertEquals(9, result.size());
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
+
+	public void test09SetCollectionKeepsInvisibleRelationships() {
+
+		try {
+
+			final User user         = (User)createTestNodes(User.class, 1).get(0);
+			final TestSix testSix   = createTestNode(TestSix.class, user);
+			final TestOne visible1  = createTestNode(TestOne.class, user);
+			final TestOne visible2  = createTestNode(TestOne.class, user);
+
+			// created by the superuser, not visible to the user
+			final TestOne invisible = createTestNode(TestOne.class);
+
+			try {
+				app.beginTx();
+				testSix.setProperty(TestSix.manyToManyTestOnes, toList(visible1, invisible));
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			final App userApp         = StructrApp.getInstance(SecurityContext.getInstance(user, AccessMode.Backend));
+			final TestSix userTestSix = userApp.get(TestSix.class, testSix.getUuid());
+
+			assertEquals(1, userTestSix.getProperty(TestSix.manyToManyTestOnes).size());
+
+			// the user replaces the collection it can see
+			try {
+				userApp.beginTx();
+				userTestSix.setProperty(TestSix.manyToManyTestOnes, toList(visible2));
+				userApp.commitTx();
+
+			} finally {
+
+				userApp.finishTx();
+			}
+
+			final List<TestOne> userResult = userTestSix.getProperty(TestSix.manyToManyTestOnes);
+
+			assertEquals(1, userResult.size());
+			assertEquals(visible2.getUuid(), userResult.get(0).getUuid());
+
+			// the relationship to the invisible node must not be deleted
+			final List<TestOne> result = app.get(TestSix.class, testSix.getUuid()).getProperty(TestSix.manyToManyTestOnes);
+
+			assertEquals(2, result.size());
+			assertTrue(result.contains(invisible));
+			assertTrue(result.contains(visible2));
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
+
 	protected <T extends AbstractNode> T createTestNode(final Class<T> type, final Principal user) throws FrameworkException {
 		return (T)createTestNode(type, new PropertyMap(), user);
 	}
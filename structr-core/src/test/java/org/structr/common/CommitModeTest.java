@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.ResourceAccess;
+import org.structr.core.entity.TestOne;
+import org.structr.core.graph.CommitMetrics;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.TransactionCommand;
+
+/**
+ * Test optimistic commits and value reservations.
+ */
+public class CommitModeTest extends StructrTest {
+
+	private static final Logger logger = Logger.getLogger(CommitModeTest.class.getName());
+
+	@Override
+	public void test00DbAvailable() {
+		super.test00DbAvailable();
+	}
+
+	public void test01ConflictingReservationWaitsForOtherTransaction() {
+
+		final CountDownLatch reserved   = new CountDownLatch(1);
+		final CountDownLatch finished   = new CountDownLatch(1);
+		final AtomicLong releaseTime    = new AtomicLong();
+		final AtomicBoolean firstResult = new AtomicBoolean();
+
+		final Thread first = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				final App app = StructrApp.getInstance(securityContext);
+
+				try {
+					app.beginTx();
+
+					firstResult.set(TransactionCommand.reserveUniqueValue(TestOne.class, AbstractNode.name, "unique"));
+					reserved.countDown();
+
+					Thread.sleep(200);
+
+					app.commitTx();
+
+				} catch (Throwable t) {
+
+					logger.log(Level.WARNING, "", t);
+
+				} finally {
+
+					releaseTime.set(System.currentTimeMillis());
+					app.finishTx();
+					finished.countDown();
+				}
+			}
+		});
+
+		TransactionCommand.configure(true, TransactionCommand.DEFAULT_RESERVATION_TIMEOUT);
+
+		try {
+
+			final long conflicts = getConflicts();
+
+			first.start();
+			assertTrue(reserved.await(10, TimeUnit.SECONDS));
+			assertTrue(firstResult.get());
+
+			try {
+				app.beginTx();
+
+				// must wait until the first transaction is finished
+				assertTrue(TransactionCommand.reserveUniqueValue(TestOne.class, AbstractNode.name, "unique"));
+				assertTrue(System.currentTimeMillis() >= releaseTime.get());
+				assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+				// different values do not conflict
+				assertTrue(TransactionCommand.reserveUniqueValue(TestOne.class, AbstractNode.name, "other"));
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(conflicts + 1, getConflicts());
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.configure(false, TransactionCommand.DEFAULT_RESERVATION_TIMEOUT);
+		}
+	}
+
+	public void test02OptimisticCommit() {
+
+		try {
+
+			TransactionCommand.configure(true, TransactionCommand.DEFAULT_RESERVATION_TIMEOUT);
+
+			final CommitMetrics.TypeMetrics before = CommitMetrics.getInstance().get("TestOne");
+			final long commits                     = before != null ? before.getCommits() : 0L;
+
+			createTestNodes(TestOne.class, 5);
+
+			assertEquals(5, app.nodeQuery(TestOne.class).getResult().size());
+			assertTrue(CommitMetrics.getInstance().get("TestOne").getCommits() > commits);
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.configure(false, TransactionCommand.DEFAULT_RESERVATION_TIMEOUT);
+		}
+	}
+
+	public void test03ConcurrentDuplicateUniqueValue() {
+
+		final CyclicBarrier barrier      = new CyclicBarrier(2);
+		final AtomicInteger successful   = new AtomicInteger();
+		final AtomicInteger failed       = new AtomicInteger();
+		final Thread[] threads           = new Thread[2];
+
+		TransactionCommand.configure(true, TransactionCommand.DEFAULT_RESERVATION_TIMEOUT);
+
+		try {
+
+			for (int i=0; i<threads.length; i++) {
+
+				threads[i] = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+
+						final App app = StructrApp.getInstance(securityContext);
+
+						try {
+							barrier.await(10, TimeUnit.SECONDS);
+
+							app.beginTx();
+							app.create(ResourceAccess.class,
+								new NodeAttribute(ResourceAccess.signature, "duplicate"),
+								new NodeAttribute(ResourceAccess.flags, 6L)
+							);
+							app.commitTx();
+
+							successful.incrementAndGet();
+
+						} catch (FrameworkException fex) {
+
+							failed.incrementAndGet();
+
+						} catch (Throwable t) {
+
+							logger.log(Level.WARNING, "", t);
+
+						} finally {
+
+							app.finishTx();
+						}
+					}
+				});
+
+				threads[i].start();
+			}
+
+			for (final Thread thread : threads) {
+				thread.join(30000);
+			}
+
+			// exactly one of the two transactions must win
+			assertEquals(1, successful.get());
+			assertEquals(1, failed.get());
+			assertEquals(1, app.nodeQuery(ResourceAccess.class).and(ResourceAccess.signature, "duplicate").getResult().size());
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.configure(false, TransactionCommand.DEFAULT_RESERVATION_TIMEOUT);
+		}
+	}
+
+	public void test04NoReservationsInPessimisticMode() {
+
+		try {
+			app.beginTx();
+
+			assertTrue(TransactionCommand.reserveUniqueValue(TestOne.class, AbstractNode.name, "pessimistic"));
+			app.commitTx();
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		} finally {
+
+			app.finishTx();
+		}
+	}
+
+	private long getConflicts() {
+
+		final CommitMetrics.TypeMetrics metrics = CommitMetrics.getInstance().get("TestOne");
+
+		return metrics != null ? metrics.getConflicts() : 0L;
+	}
+}
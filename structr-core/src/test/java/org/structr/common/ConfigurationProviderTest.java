@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.TestOne;
+import org.structr.core.entity.TestTwo;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
+import org.structr.schema.ConfigurationProvider;
+
+/**
+ * Tests the type metadata snapshot of the configuration provider.
+ */
+public class ConfigurationProviderTest extends StructrTest {
+
+	public void test01PropertySetSnapshot() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+		final Set<PropertyKey> first       = config.getPropertySet(TestOne.class, PropertyView.Public);
+		final Set<PropertyKey> second      = config.getPropertySet(TestOne.class, PropertyView.Public);
+
+		// lookups must not allocate new sets
+		assertSame(first, second);
+		assertTrue(first.contains(TestOne.anInt));
+
+		try {
+			first.add(TestOne.aLong);
+			fail("Property sets must be read-only");
+
+		} catch (UnsupportedOperationException expected) {}
+
+		// unknown views and types return an empty set
+		assertTrue(config.getPropertySet(TestOne.class, "nonexistingView").isEmpty());
+		assertTrue(config.getPropertySet(String.class, PropertyView.Public).isEmpty());
+	}
+
+	public void test02RegistrationReplacesSnapshot() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+		final PropertyKey<String> key      = new StringProperty("snapshotTestKey");
+		final Set<PropertyKey> before      = config.getPropertySet(SnapshotTestType.class, "snapshotTestView");
+
+		config.registerPropertySet(SnapshotTestType.class, "snapshotTestView", key);
+
+		final Set<PropertyKey> after = config.getPropertySet(SnapshotTestType.class, "snapshotTestView");
+
+		assertFalse(before.contains(key));
+		assertTrue(after.contains(key));
+		assertTrue(config.getPropertyViews().contains("snapshotTestView"));
+	}
+
+	public void test03ConcurrentReadsDuringRegistration() {
+
+		final ConfigurationProvider config        = StructrApp.getConfiguration();
+		final AtomicReference<Throwable> failure  = new AtomicReference<>();
+		final int count                           = 1000;
+
+		final Thread writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				for (int i=0; i<count; i++) {
+					config.registerPropertySet(SnapshotTestType.class, "concurrentView", new StringProperty("concurrentKey" + i));
+				}
+			}
+		});
+
+		final Thread reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try {
+					while (config.getPropertySet(SnapshotTestType.class, "concurrentView").size() < count) {
+
+						for (final PropertyKey key : config.getPropertySet(SnapshotTestType.class, "concurrentView")) {
+							assertNotNull(key);
+						}
+
+						config.getPropertyKeyForJSONName(SnapshotTestType.class, "name");
+					}
+
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		});
+
+		reader.setDaemon(true);
+		reader.start();
+		writer.start();
+
+		try {
+			writer.join();
+			reader.join(10000);
+
+		} catch (InterruptedException iex) {}
+
+		assertNull(failure.get());
+		assertEquals(count, config.getPropertySet(SnapshotTestType.class, "concurrentView").size());
+	}
+
+	public void test04EntityClassResolution() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+
+		// known types resolve to their class on every call
+		assertEquals(TestOne.class, config.getNodeEntityClass("TestOne"));
+		assertEquals(TestOne.class, config.getNodeEntityClass("TestOne"));
+
+		// unknown types resolve to null, repeatedly
+		assertNull(config.getNodeEntityClass("NonExistingType"));
+		assertNull(config.getNodeEntityClass("NonExistingType"));
+		assertNull(config.getRelationshipEntityClass("NonExistingRelationship"));
+		assertNull(config.getRelationshipEntityClass("NonExistingRelationship"));
+
+		// registering a type invalidates negative results
+		config.registerEntityType(TestTwo.class);
+		assertEquals(TestTwo.class, config.getNodeEntityClass("TestTwo"));
+	}
+
+	public void test05ViewOrder() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+
+		config.registerPropertySet(SnapshotTestType.class, "orderTestViewB", new StringProperty("orderTestKeyB"));
+		config.registerPropertySet(SnapshotTestType.class, "orderTestViewA", new StringProperty("orderTestKeyA"));
+
+		// views are listed in registration order
+		final List<String> views = new ArrayList<>(config.getPropertyViews());
+
+		assertTrue(views.indexOf("orderTestViewB") < views.indexOf("orderTestViewA"));
+		assertTrue(views.indexOf(PropertyView.Public) < views.indexOf("orderTestViewB"));
+	}
+
+	/**
+	 * Property sets cannot be unregistered, so the tests register them
+	 * for this type only, which keeps them out of the entity types that
+	 * are used by other tests.
+	 */
+	private static class SnapshotTestType {}
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.neo4j.graphdb.Node;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.TestOne;
+import org.structr.core.graph.CypherExecutor;
+import org.structr.core.graph.NodeInterface;
+
+/**
+ * Tests query statistics and result memoization of the shared
+ * {@link CypherExecutor}.
+ */
+public class CypherExecutorTest extends StructrTest {
+
+	public void test01SharedPlans() {
+
+		try {
+
+			final CypherExecutor executor = CypherExecutor.getInstance();
+			final String query            = "START n=node(*) RETURN count(n)";
+
+			createTestNodes(TestOne.class, 3);
+
+			executor.execute(query, null);
+			executor.execute(query, null);
+			app.cypher(query, null);
+
+			assertEquals(3, executor.getQueryStatistics().get(query).getExecutions());
+
+		} catch (FrameworkException fex) {
+
+			fail("Unexpected exception");
+		}
+	}
+
+	public void test02ResultMemoization() {
+
+		final CypherExecutor executor = CypherExecutor.getInstance();
+
+		try {
+
+			final TestOne testOne               = createTestNode(TestOne.class);
+			final String uuid                   = testOne.getUuid();
+			final String query                  = "START n=node:uuidAllNodes(uuid={uuid}) RETURN n";
+			final Map<String, Object> params    = new LinkedHashMap<>();
+
+			params.put("uuid", uuid);
+
+			executor.configure(10);
+
+			final long resultHits = executor.getResultCacheHits();
+
+			final List<Map<String, Object>> first  = executor.execute(query, params, uuid);
+			final List<Map<String, Object>> second = executor.execute(query, params, uuid);
+
+			assertEquals(1, first.size());
+			assertSame(first, second);
+			assertEquals(resultHits + 1, executor.getResultCacheHits());
+			assertEquals(1, executor.getResultCacheSize());
+
+			// a successful commit must discard all memoized results
+			createTestNode(TestOne.class);
+
+			assertEquals(0, executor.getResultCacheSize());
+
+			final List<Map<String, Object>> third = executor.execute(query, params, uuid);
+
+			assertNotSame(first, third);
+			assertEquals(1, third.size());
+
+		} catch (FrameworkException fex) {
+
+			fail("Unexpected exception");
+
+		} finally {
+
+			executor.configure(CypherExecutor.DEFAULT_RESULT_CACHE_SIZE);
+		}
+	}
+
+	public void test03MemoizationRespectsParameters() {
+
+		final CypherExecutor executor = CypherExecutor.getInstance();
+
+		try {
+
+			final List<NodeInterface> nodes     = createTestNodes(TestOne.class, 2);
+			final String query                  = "START n=node:uuidAllNodes(uuid={uuid}) RETURN n";
+			final String uuid                   = nodes.get(0).getUuid();
+			final Map<String, Object> params0   = new LinkedHashMap<>();
+			final Map<String, Object> params1   = new LinkedHashMap<>();
+
+			params0.put("uuid", nodes.get(0).getUuid());
+			params1.put("uuid", nodes.get(1).getUuid());
+
+			executor.configure(10);
+
+			// same query and entity, but different parameters
+			final List<Map<String, Object>> first  = executor.execute(query, params0, uuid);
+			final List<Map<String, Object>> second = executor.execute(query, params1, uuid);
+
+			assertNotSame(first, second);
+			assertEquals(nodes.get(0).getId(), ((Node)first.get(0).get("n")).getId());
+			assertEquals(nodes.get(1).getId(), ((Node)second.get(0).get("n")).getId());
+			assertEquals(2, executor.getResultCacheSize());
+
+			// parameters that cannot be compared disable memoization
+			final Map<String, Object> params2 = new LinkedHashMap<>();
+			params2.put("uuid", nodes.get(0).getUuid());
+			params2.put("ids", new long[] { 1L });
+
+			executor.execute(query, params2, uuid);
+			assertEquals(2, executor.getResultCacheSize());
+
+		} catch (FrameworkException fex) {
+
+			fail("Unexpected exception");
+
+		} finally {
+
+			executor.configure(CypherExecutor.DEFAULT_RESULT_CACHE_SIZE);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.SixOneOneToOne;
+import org.structr.core.entity.TestOne;
+import org.structr.core.entity.TestSix;
+import org.structr.core.graph.EntityCache;
+
+/**
+ * Test the cross-request entity cache.
+ */
+public class EntityCacheTest extends StructrTest {
+
+	private static final Logger logger = Logger.getLogger(EntityCacheTest.class.getName());
+
+	@Override
+	public void test00DbAvailable() {
+		super.test00DbAvailable();
+	}
+
+	public void test01CacheHitsAcrossSecurityContexts() {
+
+		try {
+
+			final EntityCache cache = EntityCache.getInstance();
+
+			createTestNodes(TestOne.class, 10);
+			cache.clear();
+
+			// first query fills the cache
+			StructrApp.getInstance(SecurityContext.getSuperUserInstance()).nodeQuery(TestOne.class).getResult();
+
+			final long hits = cache.getHits();
+
+			// second query with a fresh security context must be served from the cache
+			final SecurityContext otherContext = SecurityContext.getSuperUserInstance();
+			final List<TestOne> result         = StructrApp.getInstance(otherContext).nodeQuery(TestOne.class).getAsList();
+
+			assertEquals(10, result.size());
+			assertTrue(cache.getHits() - hits >= 10);
+
+			// instances must never be shared between security contexts
+			for (final TestOne node : result) {
+				assertSame(otherContext, node.getSecurityContext());
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+		}
+	}
+
+	public void test02CacheInvalidationOnCommit() {
+
+		try {
+
+			final EntityCache cache = EntityCache.getInstance();
+			final TestOne node      = createTestNode(TestOne.class);
+
+			StructrApp.getInstance(SecurityContext.getSuperUserInstance()).nodeQuery(TestOne.class).getResult();
+			assertNotNull(cache.getType(node.getId()));
+
+			try {
+				app.beginTx();
+				node.setProperty(TestOne.aString, "modified");
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertNull(cache.getType(node.getId()));
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+		}
+	}
+
+	public void test03CacheSizeLimit() {
+
+		final EntityCache cache = EntityCache.getInstance();
+
+		cache.clear();
+		cache.configure(5, EntityCache.DEFAULT_MAX_AGE);
+
+		try {
+
+			for (long i=0; i<10; i++) {
+				cache.putType(i, TestOne.class, cache.getGeneration(i));
+			}
+
+			assertEquals(5, cache.size());
+			assertNull(cache.getType(0));
+			assertNotNull(cache.getType(9));
+
+		} finally {
+
+			cache.configure(EntityCache.DEFAULT_MAX_SIZE, EntityCache.DEFAULT_MAX_AGE);
+		}
+	}
+
+	public void test04TypeNamesForRelationshipResolution() {
+
+		try {
+
+			final EntityCache cache = EntityCache.getInstance();
+			final TestSix testSix   = createTestNode(TestSix.class);
+			final TestOne testOne   = createTestNode(TestOne.class);
+			SixOneOneToOne rel      = null;
+
+			try {
+				app.beginTx();
+				rel = app.create(testSix, testOne, SixOneOneToOne.class);
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			cache.clear();
+
+			// relationship instantiation reads the type names of both nodes
+			final SixOneOneToOne result = app.relationshipQuery(SixOneOneToOne.class).getFirst();
+
+			assertNotNull(result);
+			assertEquals(rel.getUuid(), result.getUuid());
+			assertEquals("TestSix", cache.getTypeName(testSix.getId()));
+			assertEquals("TestOne", cache.getTypeName(testOne.getId()));
+
+			// type names and types are cached independently
+			assertNull(cache.getType(testSix.getId()));
+			cache.putType(testSix.getId(), TestSix.class, cache.getGeneration(testSix.getId()));
+			assertEquals(TestSix.class, cache.getType(testSix.getId()));
+			assertEquals("TestSix", cache.getTypeName(testSix.getId()));
+
+			// unknown combinations are resolved to null, also when served from the cache
+			assertNull(StructrApp.getConfiguration().getRelationClassForCombinedType("TestSix", "UNKNOWN_RELATIONSHIP", "TestOne"));
+			assertNull(StructrApp.getConfiguration().getRelationClassForCombinedType("TestSix", "UNKNOWN_RELATIONSHIP", "TestOne"));
+			assertEquals(SixOneOneToOne.class, StructrApp.getConfiguration().getRelationClassForCombinedType("TestSix", rel.name(), "TestOne"));
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+		}
+	}
+
+	public void test05StalePutAfterInvalidation() {
+
+		final EntityCache cache = EntityCache.getInstance();
+		final long id           = 4711L;
+
+		cache.clear();
+
+		// a reader resolves the type while a commit invalidates the node
+		final long generation = cache.getGeneration(id);
+		cache.invalidate(id);
+		cache.putType(id, TestOne.class, generation);
+		cache.putTypeName(id, "TestOne", generation);
+
+		assertNull(cache.getType(id));
+		assertNull(cache.getTypeName(id));
+
+		// a reader that started after the invalidation may store its value
+		cache.putType(id, TestOne.class, cache.getGeneration(id));
+		assertEquals(TestOne.class, cache.getType(id));
+	}
+}
@@ -25,13 +25,18 @@ import org.structr.common.error.FrameworkException;
 //~--- JDK imports ------------------------------------------------------------
 
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static junit.framework.Assert.assertTrue;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.GenericNode;
+import org.structr.core.entity.TestOne;
+import org.structr.core.entity.TestSix;
 import org.structr.core.entity.relationship.NodeHasLocation;
 import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
 
@@ -176,4 +181,185 @@ public class ModifyGraphObjectsTest extends StructrTest {
 
 	}
 
+	/**
+	 * Test that updateInIndex only touches the keys that were
+	 * modified in the current transaction.
+	 */
+	public void test03UpdateInIndexOnlyModifiedKeys() {
+
+		try {
+
+			final TestOne node = createTestNode(TestOne.class);
+			int deltaOperations = 0;
+			int fullOperations  = 0;
+
+			try {
+				app.beginTx();
+
+				node.setProperty(TestOne.aString, "modified");
+
+				final int before = TransactionCommand.getIndexingCost().getOperations();
+				node.updateInIndex();
+				deltaOperations = TransactionCommand.getIndexingCost().getOperations() - before;
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			try {
+				app.beginTx();
+
+				final int before = TransactionCommand.getIndexingCost().getOperations();
+				node.removeFromIndex();
+				node.addToIndex();
+				fullOperations = TransactionCommand.getIndexingCost().getOperations() - before;
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertTrue("Expected delta index update to be cheaper than a full rebuild", deltaOperations < fullOperations);
+			assertEquals(1, app.nodeQuery(TestOne.class).and(TestOne.aString, "modified").getResult().size());
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
+
+	public void test04ModifyLargeCollections() {
+
+		final int count = 10000;
+
+		try {
+
+			final List<NodeInterface> testOnes = createTestNodes(TestOne.class, count);
+			final List<TestOne> first          = new LinkedList<>();
+			final List<TestOne> second         = new LinkedList<>();
+
+			for (int i = 0; i < count; i++) {
+
+				if (i < count / 2) {
+					first.add((TestOne)testOnes.get(i));
+				} else {
+					second.add((TestOne)testOnes.get(i));
+				}
+			}
+
+			final TestSix testSix1 = createTestNode(TestSix.class);
+			final TestSix testSix2 = createTestNode(TestSix.class);
+
+			// many-to-many, initial set
+			try {
+				app.beginTx();
+				testSix1.setProperty(TestSix.manyToManyTestOnes, toTestOnes(testOnes));
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(count, testSix1.getProperty(TestSix.manyToManyTestOnes).size());
+
+			// many-to-many, replace with overlapping set incl. duplicates
+			final List<TestOne> overlapping = new LinkedList<>(second);
+			overlapping.addAll(second);
+
+			try {
+				app.beginTx();
+				testSix1.setProperty(TestSix.manyToManyTestOnes, overlapping);
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(second.size(), testSix1.getProperty(TestSix.manyToManyTestOnes).size());
+			assertEquals(0, first.get(0).getProperty(TestOne.manyToManyTestSixs).size());
+			assertEquals(1, second.get(0).getProperty(TestOne.manyToManyTestSixs).size());
+
+			// many-to-many, reverse direction
+			final TestOne testOne = first.get(0);
+
+			try {
+				app.beginTx();
+				testOne.setProperty(TestOne.manyToManyTestSixs, toList(testSix1, testSix2));
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(2, testOne.getProperty(TestOne.manyToManyTestSixs).size());
+			assertEquals(second.size() + 1, testSix1.getProperty(TestSix.manyToManyTestOnes).size());
+
+			// one-to-many, targets must be moved from one source to the other
+			try {
+				app.beginTx();
+				testSix1.setProperty(TestSix.oneToManyTestOnes, toTestOnes(testOnes));
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(count, testSix1.getProperty(TestSix.oneToManyTestOnes).size());
+
+			try {
+				app.beginTx();
+				testSix2.setProperty(TestSix.oneToManyTestOnes, first);
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(first.size(), testSix2.getProperty(TestSix.oneToManyTestOnes).size());
+			assertEquals(second.size(), testSix1.getProperty(TestSix.oneToManyTestOnes).size());
+
+			// empty collection removes all relationships
+			try {
+				app.beginTx();
+				testSix1.setProperty(TestSix.manyToManyTestOnes, null);
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			assertEquals(0, testSix1.getProperty(TestSix.manyToManyTestOnes).size());
+			assertEquals(1, testSix2.getProperty(TestSix.manyToManyTestOnes).size());
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
+
+	private List<TestOne> toTestOnes(final List<NodeInterface> nodes) {
+
+		final List<TestOne> testOnes = new LinkedList<>();
+
+		for (final NodeInterface node : nodes) {
+			testOnes.add((TestOne)node);
+		}
+
+		return testOnes;
+	}
 }
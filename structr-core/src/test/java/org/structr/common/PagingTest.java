@@ -48,10 +48,13 @@ import org.structr.core.entity.TestOne;
 //~--- JDK imports ------------------------------------------------------------
 
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.neo4j.graphdb.Node;
+import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 
 //~--- classes ----------------------------------------------------------------
@@ -180,6 +183,79 @@ public class PagingTest extends StructrTest {
 
 	}
 
+	/**
+	 * Test negative pages and lazy instantiation
+	 */
+	public void test02NegativePagingAndLazyInstantiation() {
+
+		try {
+
+			Class type                      = TestOne.class;
+			int number                      = 50;
+			final int offset                = 10;
+			final List<NodeInterface> nodes = this.createTestNodes(type, number);
+
+			try {
+				app.beginTx();
+
+				int i                           = offset;
+				for (NodeInterface node : nodes) {
+
+					node.setProperty(AbstractNode.name, "TestOne-" + i);
+					i++;
+				}
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			PropertyKey sortKey = AbstractNode.name;
+			int pageSize        = 10;
+
+			for (int page = -1; page >= -5; page--) {
+
+				final Result result = app.nodeQuery(type).sort(sortKey).page(page).pageSize(pageSize).getResult();
+
+				assertEquals(number, result.getRawResultCount().intValue());
+				assertEquals(pageSize, result.size());
+
+				final int startIndex = number + (page * pageSize);
+
+				for (int j = 0; j < pageSize; j++) {
+
+					assertEquals("TestOne-" + (offset + startIndex + j), result.get(j).getProperty(AbstractNode.name));
+				}
+			}
+
+			// lazy instantiation must yield all nodes without building a list first
+			final List<Node> dbNodes = new LinkedList<>();
+			for (NodeInterface node : nodes) {
+
+				dbNodes.add(node.getNode());
+			}
+
+			int count = 0;
+			for (NodeInterface node : new NodeFactory<NodeInterface>(securityContext).instantiateLazily(dbNodes)) {
+
+				assertNotNull(node);
+				count++;
+			}
+
+			assertEquals(number, count);
+
+		} catch (FrameworkException ex) {
+
+			ex.printStackTrace();
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+
+	}
+
 	protected void testPaging(final Class type, final int pageSize, final int page, final int number, final int offset, final boolean includeDeletedAndHidden, final boolean publicOnly, final PropertyKey sortKey, final boolean sortDesc) throws FrameworkException {
 
 		Result result = app.nodeQuery(type).sort(sortKey).order(sortDesc).page(page).pageSize(pageSize).getResult();
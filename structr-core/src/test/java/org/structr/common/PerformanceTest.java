@@ -25,11 +25,15 @@ import org.structr.common.error.FrameworkException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.structr.core.Result;
 import org.structr.core.entity.GenericNode;
+import org.structr.core.entity.TestOne;
 import org.structr.core.entity.relationship.NodeHasLocation;
 import org.structr.core.graph.NodeInterface;
 
@@ -129,4 +133,80 @@ public class PerformanceTest extends StructrTest {
 
 	}
 
+	/**
+	 * Tests the throughput of concurrent index queries with an increasing
+	 * number of threads.
+	 *
+	 * Index reads are not serialized, so the aggregate query rate should
+	 * rise with the number of threads (up to the number of available cores).
+	 * As the absolute numbers depend heavily on the hardware, this test only
+	 * logs the rates and asserts that all queries return correct results.
+	 */
+	public void test03ConcurrentSearchThroughput() {
+
+		try {
+
+			final int number  = 500;
+			final int queries = 2000;
+
+			createTestNodes(TestOne.class, number);
+
+			final DecimalFormat decimalFormat = new DecimalFormat("0.000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+			final int maxThreads              = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+			for (int threadCount = 1; threadCount <= maxThreads; threadCount *= 2) {
+
+				final AtomicInteger errors = new AtomicInteger(0);
+				final List<Thread> threads = new LinkedList<>();
+				final int perThread        = queries / threadCount;
+
+				for (int i=0; i<threadCount; i++) {
+
+					threads.add(new Thread(new Runnable() {
+
+						@Override
+						public void run() {
+
+							for (int j=0; j<perThread; j++) {
+
+								try {
+									final Result result = app.nodeQuery(TestOne.class).pageSize(10).page(1).getResult();
+									if (result.getRawResultCount() != number) {
+										errors.incrementAndGet();
+									}
+
+								} catch (FrameworkException fex) {
+
+									errors.incrementAndGet();
+								}
+							}
+						}
+					}));
+				}
+
+				final long t0 = System.nanoTime();
+
+				for (final Thread thread : threads) {
+					thread.start();
+				}
+
+				for (final Thread thread : threads) {
+					thread.join();
+				}
+
+				final long t1     = System.nanoTime();
+				final double rate = (perThread * threadCount) / ((t1 - t0) / 1000000000.0);
+
+				logger.log(Level.INFO, "{0} thread(s): {1} queries per s", new Object[] { threadCount, decimalFormat.format(rate) });
+
+				assertEquals(0, errors.get());
+			}
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
 }
@@ -52,9 +52,11 @@ import org.structr.core.property.StringProperty;
 //~--- JDK imports ------------------------------------------------------------
 
 import java.util.Date;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.core.entity.relationship.NodeHasLocation;
+import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
 
 //~--- classes ----------------------------------------------------------------
@@ -499,4 +501,47 @@ public class SearchResultsTest extends StructrTest {
 		}
 
 	}	
+
+	public void test14SearchNotBlankWithPaging() {
+
+		try {
+
+			final List<NodeInterface> nodes = createTestNodes(TestOne.class, 30);
+
+			try {
+				app.beginTx();
+
+				// set a value on the first 20 nodes only
+				for (int i=0; i<20; i++) {
+
+					nodes.get(i).setProperty(TestOne.aString, "string-" + (i < 10 ? "0" : "") + i);
+				}
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			Result result = app.nodeQuery(TestOne.class).notBlank(TestOne.aString).sort(TestOne.aString).pageSize(5).page(2).getResult();
+
+			assertEquals(20, result.getRawResultCount().intValue());
+			assertEquals(5, result.size());
+
+			for (int i=0; i<5; i++) {
+
+				assertEquals("string-0" + (i + 5), result.get(i).getProperty(TestOne.aString));
+			}
+
+		} catch (FrameworkException ex) {
+
+			ex.printStackTrace();
+			
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+
+	}
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.SynchronousTransactionListener;
+import org.structr.core.entity.TestOne;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.TransactionListenerDispatcher;
+import org.structr.core.graph.TransactionListenerDispatcher.ListenerMetrics;
+
+/**
+ * Test synchronous and asynchronous transaction listeners.
+ */
+public class TransactionListenerTest extends StructrTest {
+
+	private static final Logger logger = Logger.getLogger(TransactionListenerTest.class.getName());
+
+	@Override
+	public void test00DbAvailable() {
+		super.test00DbAvailable();
+	}
+
+	public void test01SynchronousAndAsynchronousListeners() {
+
+		final AtomicInteger syncCommits = new AtomicInteger();
+		final AtomicInteger syncEvents  = new AtomicInteger();
+		final AtomicInteger asyncEvents = new AtomicInteger();
+
+		final StructrTransactionListener syncListener = new SynchronousTransactionListener() {
+
+			@Override
+			public void transactionCommited(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+				syncCommits.incrementAndGet();
+				syncEvents.addAndGet(modificationEvents.size());
+			}
+		};
+
+		final StructrTransactionListener asyncListener = new StructrTransactionListener() {
+
+			@Override
+			public void transactionCommited(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+				asyncEvents.addAndGet(modificationEvents.size());
+			}
+		};
+
+		TransactionCommand.registerTransactionListener(syncListener);
+		TransactionCommand.registerTransactionListener(asyncListener);
+
+		try {
+
+			for (int i=0; i<10; i++) {
+				createTestNodes(TestOne.class, 1);
+			}
+
+			// synchronous listeners are notified before the transaction returns
+			assertEquals(10, syncCommits.get());
+
+			// asynchronous listeners are notified eventually, possibly in batches
+			final long timeout = System.currentTimeMillis() + 10000;
+			while (asyncEvents.get() < syncEvents.get() && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(syncEvents.get(), asyncEvents.get());
+
+			final ListenerMetrics metrics = TransactionCommand.getTransactionListenerDispatcher().getMetrics().get(asyncListener.getClass().getName());
+
+			assertNotNull(metrics);
+			assertEquals(10, metrics.getDeliveredCommits());
+			assertEquals(0, metrics.getDroppedCommits());
+			assertTrue(metrics.getBatches() <= 10);
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.removeTransactionListener(syncListener);
+			TransactionCommand.removeTransactionListener(asyncListener);
+		}
+	}
+
+	public void test02ConfigureAppliesToRunningWorkers() {
+
+		final AtomicInteger asyncEvents = new AtomicInteger();
+		final AtomicInteger syncEvents  = new AtomicInteger();
+
+		final StructrTransactionListener syncListener = new SynchronousTransactionListener() {
+
+			@Override
+			public void transactionCommited(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+				syncEvents.addAndGet(modificationEvents.size());
+			}
+		};
+
+		final StructrTransactionListener asyncListener = new StructrTransactionListener() {
+
+			@Override
+			public void transactionCommited(final SecurityContext securityContext, final List<ModificationEvent> modificationEvents) {
+				asyncEvents.addAndGet(modificationEvents.size());
+			}
+		};
+
+		final TransactionListenerDispatcher dispatcher = TransactionCommand.getTransactionListenerDispatcher();
+
+		TransactionCommand.registerTransactionListener(syncListener);
+		TransactionCommand.registerTransactionListener(asyncListener);
+
+		try {
+
+			createTestNodes(TestOne.class, 1);
+
+			// replaces the running worker, metrics are kept
+			dispatcher.configure(5, 2);
+
+			createTestNodes(TestOne.class, 1);
+
+			final long timeout = System.currentTimeMillis() + 10000;
+			while (asyncEvents.get() < syncEvents.get() && System.currentTimeMillis() < timeout) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(syncEvents.get(), asyncEvents.get());
+			assertEquals(2, dispatcher.getMetrics().get(asyncListener.getClass().getName()).getDeliveredCommits());
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		} finally {
+
+			dispatcher.configure(TransactionListenerDispatcher.DEFAULT_QUEUE_SIZE, TransactionListenerDispatcher.DEFAULT_BATCH_SIZE);
+
+			TransactionCommand.removeTransactionListener(syncListener);
+			TransactionCommand.removeTransactionListener(asyncListener);
+		}
+	}
+}
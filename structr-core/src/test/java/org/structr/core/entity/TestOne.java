@@ -19,6 +19,7 @@
 package org.structr.core.entity;
 
 import java.util.Date;
+import java.util.List;
 import org.structr.core.property.Property;
 import org.structr.common.PropertyView;
 import org.structr.common.View;
@@ -27,6 +28,7 @@ import org.structr.core.property.ISO8601DateProperty;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.LongProperty;
 import org.structr.core.property.EndNode;
+import org.structr.core.property.StartNodes;
 import org.structr.core.property.StringProperty;
 
 /**
@@ -47,6 +49,8 @@ public class TestOne extends AbstractNode {
 	public static final Property<TestThree> testThree = new EndNode<>("testThree", OneThreeOneToOne.class);
 	public static final Property<TestFour>  testFour  = new EndNode<>("testFour",  OneFourOneToOne.class);
 
+	public static final Property<List<TestSix>> manyToManyTestSixs = new StartNodes<>("manyToManyTestSixs", SixOneManyToMany.class);
+
 	public static final View publicView = new View(TestOne.class, PropertyView.Public,
 		name, anInt, aDouble, aLong, aDate, createdDate, aString
 	);
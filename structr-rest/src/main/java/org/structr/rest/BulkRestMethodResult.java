@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletResponse;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * The result of a bulk POST request, i.e. the IDs of all created entities
+ * and an error for every input element that could not be created, keyed by
+ * the position of the element in the input. Errors are reported in input
+ * order.
+ */
+public class BulkRestMethodResult extends RestMethodResult {
+
+	private static final Logger logger = Logger.getLogger(BulkRestMethodResult.class.getName());
+
+	private final Map<Integer, FrameworkException> errors = new TreeMap<>();
+	private final List<String> createdIds                 = new LinkedList<>();
+
+	public BulkRestMethodResult() {
+		super(HttpServletResponse.SC_CREATED);
+	}
+
+	public void addCreated(final String id) {
+		createdIds.add(id);
+	}
+
+	public void addError(final int index, final FrameworkException error) {
+		errors.put(index, error);
+	}
+
+	public List<String> getCreatedIds() {
+		return createdIds;
+	}
+
+	public Map<Integer, FrameworkException> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public void commitResponse(final Gson gson, final HttpServletResponse response) {
+
+		// set headers
+		for (Entry<String, String> header : getHeaders().entrySet()) {
+			response.setHeader(header.getKey(), header.getValue());
+		}
+
+		// the body lists the created IDs in both cases
+		response.setStatus(errors.isEmpty() ? HttpServletResponse.SC_CREATED : 422);
+
+		try {
+
+			final JsonWriter writer = new JsonWriter(response.getWriter());
+
+			writer.beginObject();
+			writer.name("result_count").value(createdIds.size());
+			writer.name("error_count").value(errors.size());
+
+			writer.name("result").beginArray();
+
+			for (final String id : createdIds) {
+				writer.value(id);
+			}
+
+			writer.endArray();
+
+			writer.name("errors").beginArray();
+
+			for (final Entry<Integer, FrameworkException> entry : errors.entrySet()) {
+
+				writer.beginObject();
+				writer.name("index").value(entry.getKey());
+				writer.name("error");
+				gson.toJson(entry.getValue(), FrameworkException.class, writer);
+				writer.endObject();
+			}
+
+			writer.endArray();
+			writer.endObject();
+
+			writer.flush();
+			writer.close();
+
+		} catch (Throwable t) {
+
+			logger.log(Level.WARNING, "Unable to commit HttpServletResponse", t);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.structr.common.DependencyCache;
+import org.structr.common.SecurityContext;
+import org.structr.core.GraphObject;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * A cache for serialized GET responses of REST resources, with support for
+ * conditional requests via ETag and Last-Modified.
+ *
+ * Every entry remembers the entity types it depends on, i.e. the types of
+ * the resource and its results and all types that can be reached through
+ * related properties of the output view. Committed modifications of any of
+ * these types (or their sub- and supertypes) evict the entry. Changes to
+ * principals or to relationships of principals, which can change the
+ * visibility of arbitrary entities, clear the whole cache.
+ */
+public class RestResponseCache extends DependencyCache<RestResponseCache.CachedResponse> {
+
+	private int outputNestingDepth = 3;
+
+	public RestResponseCache(final int size, final int outputNestingDepth) {
+
+		super(size);
+
+		this.outputNestingDepth = outputNestingDepth;
+	}
+
+	/**
+	 * Creates the cache key for the given request. The key consists of
+	 * the request URI, the query string, the property view, the custom
+	 * view of the request content type, the response content type and
+	 * the principal of the request.
+	 */
+	public String getKey(final HttpServletRequest request, final SecurityContext securityContext, final String propertyView, final String contentType) {
+
+		final Principal user     = securityContext.getUser(false);
+		final StringBuilder key  = new StringBuilder(request.getRequestURI());
+
+		key.append("?").append(request.getQueryString());
+		key.append("\u0000").append(propertyView);
+		key.append("\u0000").append(securityContext.hasCustomView() ? securityContext.getCustomView() : "");
+		key.append("\u0000").append(contentType);
+		key.append("\u0000").append(user != null ? user.getUuid() : "anonymous");
+
+		return key.toString();
+	}
+
+	public CachedResponse get(final String key) {
+		return count(getEntry(key));
+	}
+
+	/**
+	 * Creates a cached response for the given result and body. The types
+	 * the response depends on are collected from the resource type, the
+	 * result objects and the related types of the output view.
+	 */
+	public CachedResponse createResponse(final Class resourceType, final List<? extends GraphObject> results, final String propertyView, final String contentType, final int status, final String body) {
+
+		final Set<Class> types = new LinkedHashSet<>();
+
+		if (resourceType != null) {
+			collectTypes(resourceType, propertyView, types, 0);
+		}
+
+		if (results != null) {
+
+			for (final GraphObject obj : results) {
+				collectTypes(obj.getClass(), propertyView, types, 0);
+			}
+		}
+
+		return new CachedResponse(types, contentType, status, body);
+	}
+
+	@Override
+	protected boolean dependsOn(final CachedResponse response, final Set<String> modifiedIds, final Set<Class> modifiedTypes) {
+		return dependsOnTypes(response.types, modifiedTypes);
+	}
+
+	// ----- private methods -----
+	private void collectTypes(final Class type, final String propertyView, final Set<Class> types, final int depth) {
+
+		if (!types.add(type) || depth > outputNestingDepth) {
+			return;
+		}
+
+		for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(type, propertyView)) {
+
+			final Class relatedType = key.relatedType();
+			if (relatedType != null) {
+
+				collectTypes(relatedType, propertyView, types, depth + 1);
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	public static class CachedResponse {
+
+		// the timing values of the result differ between renderings of the same content
+		private static final Pattern TIMING_PATTERN = Pattern.compile("(query_time|serialization_time)([^0-9]{0,64})[0-9]+\\.[0-9]+");
+
+		private Set<Class> types    = null;
+		private String contentType  = null;
+		private String body         = null;
+		private String etag         = null;
+		private long lastModified   = 0L;
+		private int status          = 0;
+
+		public CachedResponse(final Set<Class> types, final String contentType, final int status, final String body) {
+
+			this.types        = types;
+			this.contentType  = contentType;
+			this.status       = status;
+			this.body         = body;
+			this.etag         = "\"" + DigestUtils.md5Hex(TIMING_PATTERN.matcher(body).replaceAll("$1$2")) + "\"";
+
+			// HTTP dates have a resolution of one second
+			this.lastModified = (System.currentTimeMillis() / 1000L) * 1000L;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * Writes this response, or 304 Not Modified if the request
+		 * contains a matching If-None-Match or If-Modified-Since header.
+		 */
+		public void commit(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+
+			response.setHeader("ETag", etag);
+			response.setHeader("Cache-Control", "private, no-cache");
+			response.setDateHeader("Last-Modified", lastModified);
+
+			if (isNotModified(request)) {
+
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+
+			response.setContentType(contentType);
+			response.setStatus(status);
+			response.getWriter().append(body);
+		}
+
+		private boolean isNotModified(final HttpServletRequest request) {
+
+			final String ifNoneMatch = request.getHeader("If-None-Match");
+			if (ifNoneMatch != null) {
+
+				// If-None-Match takes precedence over If-Modified-Since
+				return ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim());
+			}
+
+			try {
+
+				final long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+				if (ifModifiedSince != -1) {
+
+					return lastModified <= ifModifiedSince;
+				}
+
+			} catch (IllegalArgumentException iaex) {
+
+				// ignore malformed header
+			}
+
+			return false;
+		}
+	}
+}
@@ -351,6 +351,10 @@ public class TypeResource extends SortableResource {
 		this.searchCommandType = searchCommand;
 	}
 
+	public boolean isNode() {
+		return isNode;
+	}
+
 	@Override
 	public String getResourceSignature() {
 		return SchemaHelper.normalizeEntityName(getUriPart());
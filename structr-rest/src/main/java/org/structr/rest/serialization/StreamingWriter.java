@@ -19,6 +19,7 @@
 package org.structr.rest.serialization;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.io.Writer;
 import java.text.DecimalFormat;
@@ -35,6 +36,7 @@ import org.structr.common.SecurityContext;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
 import org.structr.core.Value;
+import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
@@ -50,6 +52,7 @@ public abstract class StreamingWriter {
 	private static final Logger logger                   = Logger.getLogger(StreamingWriter.class.getName());
 	private static final long MAX_SERIALIZATION_TIME     = TimeUnit.SECONDS.toMillis(30);
 
+	private final Map<Class, Map<String, SerializationPlan>> plans = new LinkedHashMap<>();
 	private final Map<Class, Serializer> serializerCache = new LinkedHashMap<>();
 	private final Map<Class, Serializer> serializers     = new LinkedHashMap<>();
 	private final Serializer<GraphObject> root           = new RootSerializer();
@@ -61,6 +64,7 @@ public abstract class StreamingWriter {
 	private SecurityContext securityContext              = null;
 	private Value<String> propertyView                   = null;
 	private boolean indent                               = true;
+	private boolean compiled                             = true;
 
 	public abstract RestWriter getRestWriter(final Writer writer);
 	
@@ -91,6 +95,16 @@ public abstract class StreamingWriter {
 		//this.writer.setIndent("   ");
 	}
 	
+	/**
+	 * Enables or disables the use of serialization plans for graph objects,
+	 * enabled by default.
+	 *
+	 * @param compiled
+	 */
+	public void setCompiled(final boolean compiled) {
+		this.compiled = compiled;
+	}
+
 	public void stream(final Writer output, final Result result, final String baseUrl) throws IOException {
 		
 		long t0 = System.nanoTime();
@@ -278,6 +292,51 @@ public abstract class StreamingWriter {
 		return serializer;
 	}
 	
+	/**
+	 * Returns the serialization plan for the given entity and view. Plans
+	 * are cached per type and view as long as the entity returns the
+	 * property set registered in the configuration provider, which is
+	 * replaced by a new instance on every schema change. Entities with
+	 * custom property keys get a plan that is not cached.
+	 */
+	private SerializationPlan getSerializationPlan(final GraphObject source, final String localPropertyView) {
+
+		final Iterable<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
+		if (keys == null) {
+			return null;
+		}
+
+		final Class type                            = source.getClass();
+		Map<String, SerializationPlan> plansForType = plans.get(type);
+		SerializationPlan plan                      = plansForType != null ? plansForType.get(localPropertyView) : null;
+
+		if (plan != null && plan.keys == keys) {
+			return plan;
+		}
+
+		plan = new SerializationPlan(keys);
+
+		if (keys == StructrApp.getConfiguration().getPropertySet(type, localPropertyView)) {
+
+			if (plansForType != null && plansForType.containsKey(localPropertyView)) {
+
+				// the schema has changed, drop all plans, including those of replaced types
+				plans.clear();
+				plansForType = null;
+			}
+
+			if (plansForType == null) {
+
+				plansForType = new LinkedHashMap<>();
+				plans.put(type, plansForType);
+			}
+
+			plansForType.put(localPropertyView, plan);
+		}
+
+		return plan;
+	}
+
 	private void collectAllInterfaces(Class type, Set<Class> interfaces) {
 
 		if (interfaces.contains(type)) {
@@ -398,6 +457,18 @@ public abstract class StreamingWriter {
 				}
 				*/
 				
+				if (compiled) {
+
+					final SerializationPlan plan = getSerializationPlan(source, localPropertyView);
+					if (plan != null) {
+
+						plan.serialize(writer, source, localPropertyView, depth+1);
+					}
+
+					writer.endObject(source);
+					return;
+				}
+
 				// property keys
 				Iterable<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
 				if(keys != null) {
@@ -428,6 +499,111 @@ public abstract class StreamingWriter {
 		}
 	}
 	
+	/**
+	 * The compiled form of a property view: the keys of the view in output
+	 * order, with their JSON names and input converters resolved once.
+	 */
+	private class SerializationPlan {
+
+		private Iterable<PropertyKey> keys = null;
+		private PlanEntry[] entries        = null;
+
+		public SerializationPlan(final Iterable<PropertyKey> keys) {
+
+			final List<PlanEntry> list = new ArrayList<>();
+
+			for (final PropertyKey key : keys) {
+				list.add(new PlanEntry(key));
+			}
+
+			this.entries = list.toArray(new PlanEntry[list.size()]);
+			this.keys    = keys;
+		}
+
+		public void serialize(final RestWriter writer, final GraphObject source, final String localPropertyView, final int depth) throws IOException {
+
+			for (final PlanEntry entry : entries) {
+
+				final Object value = source.getProperty(entry.key);
+
+				writer.name(entry.jsonName);
+
+				if (value != null) {
+
+					entry.serialize(writer, value, localPropertyView, depth);
+
+				} else {
+
+					writer.nullValue();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A single property of a serialization plan. Remembers the serializer
+	 * for the last value type it has seen, which is nearly always the
+	 * type of the next value as well.
+	 */
+	private class PlanEntry {
+
+		private PropertyConverter converter = null;
+		private Serializer serializer       = null;
+		private Class valueType             = null;
+		private PropertyKey key             = null;
+		private String jsonName             = null;
+
+		public PlanEntry(final PropertyKey key) {
+
+			this.converter = key.inputConverter(securityContext);
+			this.jsonName  = key.equals(idProperty) ? id.jsonName() : key.jsonName();
+			this.key       = key;
+		}
+
+		public void serialize(final RestWriter writer, final Object value, final String localPropertyView, final int depth) {
+
+			try {
+
+				Object convertedValue = value;
+
+				if (converter != null) {
+
+					convertedValue = null;
+
+					// ignore conversion errors
+					try { convertedValue = converter.revert(value); } catch (Throwable t) {}
+				}
+
+				if (convertedValue != null) {
+
+					final Class type = convertedValue.getClass();
+					if (type != valueType) {
+
+						serializer = getSerializerForType(type);
+						valueType  = type;
+					}
+
+					if (serializer != null) {
+
+						serializer.serialize(writer, convertedValue, localPropertyView, depth);
+						return;
+					}
+				}
+
+				serializePrimitive(writer, convertedValue);
+
+			} catch (Throwable t) {
+
+				logger.log(Level.WARNING, "Exception while serializing property {0} ({1}) (value {2}) : {3}", new Object[] {
+					key.jsonName(),
+					key.getClass(),
+					value,
+					t.getMessage()
+				});
+			}
+		}
+	}
+
 	public class IterableSerializer extends Serializer<Iterable> {
 
 		@Override
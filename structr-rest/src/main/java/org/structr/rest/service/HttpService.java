@@ -166,6 +166,7 @@ public class HttpService implements RunnableService {
 		finalConfig.setProperty("JsonRestServlet.user.autocreate", "false");
 		finalConfig.setProperty("JsonRestServlet.defaultview", PropertyView.Public);
 		finalConfig.setProperty("JsonRestServlet.outputdepth", "3");
+		finalConfig.setProperty("JsonRestServlet.bulk.batchsize", "1000");
 
 		Services.mergeConfiguration(finalConfig, additionalConfig);
 
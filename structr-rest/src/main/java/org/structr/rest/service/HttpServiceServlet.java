@@ -44,6 +44,8 @@ public class HttpServiceServlet extends HttpServlet {
 	protected Class userClass                     = null;
 	protected boolean userAutoCreate              = false;
 	protected int outputNestingDepth              = 3;
+	protected int bulkBatchSize                   = 1000;
+	protected int responseCacheSize               = 0;
 
 	public void initializeFromProperties(final Properties properties, final String servletName, final Set<ResourceProvider> resourceProviders) {
 
@@ -53,6 +55,8 @@ public class HttpServiceServlet extends HttpServlet {
 		final String userAutoCreateKeyName   = servletName.concat(".user.autocreate");
 		final String defaultPropertyKeyName  = servletName.concat(".defaultview");
 		final String nestingDepthKeyName     = servletName.concat(".outputdepth");
+		final String bulkBatchSizeKeyName    = servletName.concat(".bulk.batchsize");
+		final String responseCacheKeyName    = servletName.concat(".cache.size");
 		
 		final String resourceProviderValue   = properties.getProperty(resourceProviderKeyName);
 		final String authenticatorValue      = properties.getProperty(authenticatorKeyName);
@@ -60,6 +64,8 @@ public class HttpServiceServlet extends HttpServlet {
 		final String userAutoCreateValue     = properties.getProperty(userAutoCreateKeyName);
 		final String defaultPropertyKeyValue = properties.getProperty(defaultPropertyKeyName);
 		final String outputDepthValue        = properties.getProperty(nestingDepthKeyName);
+		final String bulkBatchSizeValue      = properties.getProperty(bulkBatchSizeKeyName);
+		final String responseCacheValue      = properties.getProperty(responseCacheKeyName);
 		
 		if (resourceProviderValue == null) {
 
@@ -116,6 +122,14 @@ public class HttpServiceServlet extends HttpServlet {
 		if (outputDepthValue != null) {
 			this.outputNestingDepth = parseInt(outputDepthValue, 3);
 		}
+
+		if (bulkBatchSizeValue != null) {
+			this.bulkBatchSize = Math.max(1, parseInt(bulkBatchSizeValue, 1000));
+		}
+
+		if (responseCacheValue != null) {
+			this.responseCacheSize = Math.max(0, parseInt(responseCacheValue, 0));
+		}
 	}
 
 	protected Authenticator getAuthenticator() {
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.servlet;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang.StringUtils;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.JsonInput;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.rest.BulkRestMethodResult;
+import org.structr.rest.resource.TypeResource;
+
+/**
+ * Creates nodes from a JSON array or an NDJSON stream (one JSON object per
+ * line) in batches, using one transaction per batch. The request body is
+ * read element by element, so only the current batch is held in memory.
+ *
+ * When a batch fails, it is rolled back and its elements are created one
+ * by one, so that errors can be reported for the individual elements.
+ */
+public class BulkPostHandler {
+
+	private static final Logger logger             = Logger.getLogger(BulkPostHandler.class.getName());
+
+	public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+	private static final int PEEK_LIMIT            = 8192;
+
+	private final BulkRestMethodResult result      = new BulkRestMethodResult();
+	private final List<BulkElement> batch          = new ArrayList<>();
+	private final JsonParser parser                = new JsonParser();
+	private SecurityContext securityContext        = null;
+	private TypeResource resource                  = null;
+	private Gson gson                              = null;
+	private int batchSize                          = 1000;
+
+	public BulkPostHandler(final SecurityContext securityContext, final TypeResource resource, final Gson gson, final int batchSize) {
+
+		this.securityContext = securityContext;
+		this.resource        = resource;
+		this.gson            = gson;
+		this.batchSize       = batchSize;
+	}
+
+	/**
+	 * Indicates whether the given request should be handled as a bulk
+	 * request, i.e. whether it has an NDJSON content type or a body
+	 * that starts with a JSON array. The body is not consumed.
+	 *
+	 * @param request the request
+	 * @param reader the reader of the request body, must support mark/reset
+	 *
+	 * @return whether the request is a bulk request
+	 * @throws IOException
+	 */
+	public static boolean isBulkRequest(final HttpServletRequest request, final BufferedReader reader) throws IOException {
+		return isNdjson(request) || startsWithArray(reader);
+	}
+
+	public BulkRestMethodResult doPost(final HttpServletRequest request, final BufferedReader reader) throws IOException {
+
+		if (isNdjson(request)) {
+
+			readNdjson(reader);
+
+		} else {
+
+			readJsonArray(reader);
+		}
+
+		// create remaining elements
+		flush();
+
+		return result;
+	}
+
+	// ----- private methods -----
+	private void readJsonArray(final BufferedReader reader) {
+
+		final JsonReader jsonReader = new JsonReader(reader);
+		int index                   = 0;
+
+		try {
+
+			jsonReader.beginArray();
+
+			while (jsonReader.hasNext()) {
+
+				add(index++, parser.parse(jsonReader));
+			}
+
+			jsonReader.endArray();
+
+		} catch (JsonParseException | IllegalStateException | IOException ex) {
+
+			// the remaining input can not be read after a syntax error
+			result.addError(index, new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "Unable to parse JSON input: " + ex.getMessage()));
+		}
+	}
+
+	private void readNdjson(final BufferedReader reader) throws IOException {
+
+		int index = 0;
+
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+
+			if (StringUtils.isNotBlank(line)) {
+
+				try {
+
+					add(index, parser.parse(line));
+
+				} catch (JsonParseException ex) {
+
+					result.addError(index, new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "Unable to parse JSON input: " + ex.getMessage()));
+				}
+
+				index++;
+			}
+		}
+	}
+
+	private void add(final int index, final JsonElement element) {
+
+		if (!element.isJsonObject()) {
+
+			result.addError(index, new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "Expected JSON object, found " + element));
+			return;
+		}
+
+		final JsonInput input = gson.fromJson(element, JsonInput.class);
+
+		batch.add(new BulkElement(index, input.getAttributes()));
+
+		if (batch.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	private void flush() {
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		final App app              = StructrApp.getInstance(securityContext);
+		final List<String> created = new ArrayList<>(batch.size());
+		boolean success            = false;
+
+		try {
+
+			app.beginTx();
+
+			for (final BulkElement element : batch) {
+				created.add(resource.createNode(element.properties).getUuid());
+			}
+
+			app.commitTx();
+			success = true;
+
+		} catch (Throwable t) {
+
+			logger.log(Level.FINE, "Bulk batch failed, retrying elements individually: {0}", t.getMessage());
+
+		} finally {
+
+			app.finishTx();
+		}
+
+		if (success) {
+
+			for (final String id : created) {
+				result.addCreated(id);
+			}
+
+		} else {
+
+			for (final BulkElement element : batch) {
+
+				try {
+
+					app.beginTx();
+					final String id = resource.createNode(element.properties).getUuid();
+					app.commitTx();
+
+					result.addCreated(id);
+
+				} catch (FrameworkException fex) {
+
+					result.addError(element.index, fex);
+
+				} catch (Throwable t) {
+
+					result.addError(element.index, new FrameworkException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, t));
+
+				} finally {
+
+					app.finishTx();
+				}
+			}
+		}
+
+		batch.clear();
+	}
+
+	private static boolean isNdjson(final HttpServletRequest request) {
+
+		final String contentType = request.getContentType();
+
+		return contentType != null && contentType.toLowerCase().startsWith(NDJSON_CONTENT_TYPE);
+	}
+
+	private static boolean startsWithArray(final BufferedReader reader) throws IOException {
+
+		reader.mark(PEEK_LIMIT);
+
+		try {
+
+			for (int i = 0; i < PEEK_LIMIT; i++) {
+
+				final int c = reader.read();
+				if (c == -1) {
+					return false;
+				}
+
+				if (!Character.isWhitespace(c)) {
+					return c == '[';
+				}
+			}
+
+			return false;
+
+		} finally {
+
+			reader.reset();
+		}
+	}
+
+	// ----- nested classes -----
+	private static class BulkElement {
+
+		private Map<String, Object> properties = null;
+		private int index                      = 0;
+
+		public BulkElement(final int index, final Map<String, Object> properties) {
+
+			this.properties = properties;
+			this.index      = index;
+		}
+	}
+}
@@ -30,13 +30,20 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.JsonInput;
 import org.structr.rest.RestMethodResult;
+import org.structr.rest.RestResponseCache;
+import org.structr.rest.RestResponseCache.CachedResponse;
 import org.structr.common.PagingHelper;
 import org.structr.rest.resource.Resource;
+import org.structr.rest.resource.StaticRelationshipResource;
+import org.structr.rest.resource.TypeResource;
+import org.structr.rest.resource.UuidResource;
 import org.structr.core.Result;
 
 //~--- JDK imports ------------------------------------------------------------
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 
 import java.text.DecimalFormat;
@@ -56,6 +63,7 @@ import org.structr.core.Value;
 import org.structr.core.app.StructrApp;
 import org.structr.core.auth.Authenticator;
 import org.structr.core.graph.NodeFactory;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.graph.search.SearchCommand;
 import org.structr.rest.serialization.StreamingWriter;
 import org.structr.rest.adapter.FrameworkExceptionGSONAdapter;
@@ -113,6 +121,7 @@ public class JsonRestServlet extends HttpServiceServlet {
 	private ThreadLocalGson gson                                = null;
 	private ThreadLocalJsonWriter jsonWriter                    = null;
 	private ThreadLocalHtmlWriter htmlWriter                    = null;
+	private RestResponseCache responseCache                     = null;
 	private Writer logWriter                                    = null;
 	
 	@Override
@@ -138,11 +147,23 @@ public class JsonRestServlet extends HttpServiceServlet {
 		this.jsonWriter     = new ThreadLocalJsonWriter(propertyView, indentJson, outputNestingDepth);
 		this.htmlWriter     = new ThreadLocalHtmlWriter(propertyView, indentJson, outputNestingDepth);
 
+		// optional response cache, invalidated on commit
+		if (responseCacheSize > 0) {
+
+			this.responseCache = new RestResponseCache(responseCacheSize, outputNestingDepth);
+			TransactionCommand.registerTransactionListener(responseCache);
+		}
 	}
 
 	@Override
 	public void destroy() {
 
+		if (responseCache != null) {
+
+			TransactionCommand.removeTransactionListener(responseCache);
+			responseCache.clear();
+		}
+
 		if (logWriter != null) {
 
 			try {
@@ -281,6 +302,25 @@ public class JsonRestServlet extends HttpServiceServlet {
 				sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName);
 			}
 			
+			String accept            = request.getHeader("Accept");
+			boolean html             = accept != null && accept.contains("text/html");
+			String contentType       = html ? "text/html; charset=utf-8" : "application/json; charset=utf-8";
+			String cacheKey          = null;
+			long cacheGeneration     = 0L;
+
+			if (isCacheable(resource)) {
+
+				cacheKey        = responseCache.getKey(request, securityContext, propertyView.get(securityContext), contentType);
+				cacheGeneration = responseCache.getGeneration();
+
+				final CachedResponse cachedResponse = responseCache.get(cacheKey);
+				if (cachedResponse != null) {
+
+					cachedResponse.commit(request, response);
+					return;
+				}
+			}
+
 			// do action
 			Result result = resource.doGet(sortKey, sortDescending, pageSize, page, offsetId);
 			result.setIsCollection(resource.isCollectionResource());
@@ -300,31 +340,33 @@ public class JsonRestServlet extends HttpServiceServlet {
 			DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
 			result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
 
-			Writer writer = response.getWriter();
-			String accept = request.getHeader("Accept");
+			// render into a buffer if the response is going to be cached
+			Writer writer = cacheKey != null ? new StringWriter() : response.getWriter();
+			int status    = result.hasPartialContent() ? HttpServletResponse.SC_PARTIAL_CONTENT : HttpServletResponse.SC_OK;
+
+			response.setContentType(contentType);
 
-			if (accept != null && accept.contains("text/html")) {
+			if (html) {
 				
-				response.setContentType("text/html; charset=utf-8");
 				htmlWriter.get().stream(writer, result, baseUrl);
 			
 			} else {
 			
-				response.setContentType("application/json; charset=utf-8");
 				jsonWriter.get().stream(writer, result, baseUrl);
 				
 			}
 
-			if (result.hasPartialContent()) {
+			response.setStatus(status);
 
-				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			writer.append("\n");    // useful newline
 
-			} else {
+			if (cacheKey != null) {
 
-				response.setStatus(HttpServletResponse.SC_OK);
-			}
+				final CachedResponse cachedResponse = responseCache.createResponse(resource.getEntityClass(), result.getResults(), result.getPropertyView(), contentType, status, writer.toString());
 
-			writer.append("\n");    // useful newline
+				responseCache.put(cacheKey, cachedResponse, cacheGeneration);
+				cachedResponse.commit(request, response);
+			}
 
 		} catch (FrameworkException frameworkException) {
 
@@ -553,21 +595,32 @@ public class JsonRestServlet extends HttpServiceServlet {
 			response.setCharacterEncoding("UTF-8");
 			response.setContentType("application/json; charset=UTF-8");
 
-			final JsonInput propertySet   = gson.get().fromJson(request.getReader(), JsonInput.class);
+			final BufferedReader reader   = request.getReader();
 
 			if (securityContext != null) {
 
 				// evaluate constraint chain
 				List<Resource> chain            = ResourceHelper.parsePath(securityContext, request, resourceMap, propertyView, defaultIdProperty);
 				Resource resource               = ResourceHelper.optimizeNestedResourceChain(chain, defaultIdProperty);
-				Map<String, Object> properties  = convertPropertySetToMap(propertySet);
 				String resourceSignature        = resource.getResourceSignature();
+				RestMethodResult result         = null;
 
 				// check access rights for this resource
 				authenticator.checkResourceAccess(request, resourceSignature, propertyView.get(securityContext));
-				
-				// do action
-				RestMethodResult result = resource.doPost(properties);
+
+				if (resource instanceof TypeResource && ((TypeResource)resource).isNode() && BulkPostHandler.isBulkRequest(request, reader)) {
+
+					// do bulk action, streaming the request body
+					result = new BulkPostHandler(securityContext, (TypeResource)resource, gson.get(), bulkBatchSize).doPost(request, reader);
+
+				} else {
+
+					final JsonInput propertySet    = gson.get().fromJson(reader, JsonInput.class);
+					Map<String, Object> properties = convertPropertySetToMap(propertySet);
+
+					// do action
+					result = resource.doPost(properties);
+				}
 
 				// set default value for property view
 				propertyView.set(securityContext, defaultPropertyView);
@@ -753,6 +806,9 @@ public class JsonRestServlet extends HttpServiceServlet {
 	// </editor-fold>
 	
 	// <editor-fold defaultstate="collapsed" desc="private methods">
+	private boolean isCacheable(final Resource resource) {
+		return responseCache != null && (resource instanceof TypeResource || resource instanceof UuidResource || resource instanceof StaticRelationshipResource);
+	}
 
 	private String jsonError(final int code, final String message) {
 
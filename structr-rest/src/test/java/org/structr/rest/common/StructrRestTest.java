@@ -313,6 +313,7 @@ public class StructrRestTest extends TestCase {
 		config.setProperty("JsonRestServlet.user.autocreate", "false");
 		config.setProperty("JsonRestServlet.defaultview", PropertyView.Public);
 		config.setProperty("JsonRestServlet.outputdepth", "3");
+		config.setProperty("JsonRestServlet.bulk.batchsize", "100");
 		
 		final Services services = Services.getInstance(config);
 
@@ -150,4 +150,87 @@ public class CollectionResourceBasicTest extends StructrRestTest {
 		    
 	}
 
+
+	/**
+	 * Test the creation of multiple entities from a JSON array.
+	 */
+	public void test030BulkCreateFromJsonArray() {
+
+		final int count          = 1050;
+		final StringBuilder body = new StringBuilder("[");
+
+		for (int i = 0; i < count; i++) {
+
+			if (i > 0) {
+				body.append(",");
+			}
+
+			body.append("{ \"name\" : \"test").append(i).append("\" }");
+		}
+
+		body.append("]");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body(body.toString())
+			.expect()
+				.statusCode(201)
+				.body("result_count",       equalTo(count))
+				.body("error_count",        equalTo(0))
+				.body("result[0]",          notNullValue())
+			.when()
+				.post("/test_objects");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result_count",       equalTo(count))
+			.when()
+				.get("/test_objects");
+	}
+
+	/**
+	 * Test the creation of multiple entities from an NDJSON stream, with
+	 * errors reported for the individual elements.
+	 */
+	public void test040BulkCreateFromNdjsonWithErrors() {
+
+		final StringBuilder body = new StringBuilder();
+
+		body.append("{ \"anInt\" : 1 }\n");
+		body.append("{ \"anInt\" : \"abc\" }\n");
+		body.append("\n");
+		body.append("{ \"anInt\" : 3 \n");
+		body.append("{ \"anInt\" : 4 }\n");
+
+		RestAssured
+
+			.given()
+				.contentType("application/x-ndjson; charset=UTF-8")
+				.body(body.toString())
+			.expect()
+				.statusCode(422)
+				.body("result_count",       equalTo(2))
+				.body("error_count",        equalTo(2))
+				.body("errors[0].index",    equalTo(1))
+				.body("errors[1].index",    equalTo(2))
+				.body("errors[1].error.code", equalTo(400))
+			.when()
+				.post("/test_ones");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result_count",       equalTo(2))
+			.when()
+				.get("/test_ones");
+	}
 }
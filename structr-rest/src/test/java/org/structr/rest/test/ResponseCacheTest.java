@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.test;
+
+import static org.hamcrest.Matchers.*;
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.response.Response;
+import java.util.Collections;
+import org.structr.core.Services;
+import org.structr.rest.RestResponseCache.CachedResponse;
+import org.structr.rest.common.StructrRestTest;
+import org.structr.rest.entity.TestObject;
+
+/**
+ * Tests the response cache of JsonRestServlet and conditional GET requests.
+ */
+public class ResponseCacheTest extends StructrRestTest {
+
+	private static final String CACHE_SIZE_KEY = "JsonRestServlet.cache.size";
+
+	@Override
+	protected void setUp() throws Exception {
+
+		Services.getBaseConfiguration().setProperty(CACHE_SIZE_KEY, "100");
+
+		super.setUp();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		super.tearDown();
+
+		Services.getBaseConfiguration().remove(CACHE_SIZE_KEY);
+	}
+
+	public void test01ConditionalGet() {
+
+		createEntity("/test_objects", "{ \"name\" : \"first\" }");
+
+		final Response first = RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result_count", equalTo(1))
+			.when()
+				.get("/test_objects");
+
+		final String etag = first.getHeader("ETag");
+
+		assertNotNull(etag);
+		assertNotNull(first.getHeader("Last-Modified"));
+
+		// unchanged data
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("If-None-Match", etag)
+			.expect()
+				.statusCode(304)
+			.when()
+				.get("/test_objects");
+
+		// modification via REST
+		createEntity("/test_objects", "{ \"name\" : \"second\" }");
+
+		final String etag2 = RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("If-None-Match", etag)
+			.expect()
+				.statusCode(200)
+				.body("result_count", equalTo(2))
+			.when()
+				.get("/test_objects")
+				.getHeader("ETag");
+
+		assertNotNull(etag2);
+		assertFalse(etag.equals(etag2));
+
+		// modification outside of REST
+		try {
+
+			final TestObject testObject = app.nodeQuery(TestObject.class).getFirst();
+
+			app.beginTx();
+			testObject.setProperty(TestObject.name, "modified");
+			app.commitTx();
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			app.finishTx();
+		}
+
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("If-None-Match", etag2)
+			.expect()
+				.statusCode(200)
+				.body("result.name", hasItem("modified"))
+			.when()
+				.get("/test_objects");
+	}
+
+	public void test02CustomViewIsPartOfKey() {
+
+		createEntity("/test_objects", "{ \"name\" : \"first\" }");
+
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result[0].name", equalTo("first"))
+			.when()
+				.get("/test_objects");
+
+		// same URL, but a different set of properties
+		RestAssured
+			.given()
+				.contentType("application/json; properties=id")
+			.expect()
+				.statusCode(200)
+				.body("result[0].id", notNullValue())
+				.body("result[0].name", nullValue())
+			.when()
+				.get("/test_objects");
+	}
+
+	public void test03ETagIgnoresTimingValues() {
+
+		final String body1 = "{ \"query_time\": \"0.000123456\", \"result\": [], \"serialization_time\": \"0.000001000\" }";
+		final String body2 = "{ \"query_time\": \"0.100000000\", \"result\": [], \"serialization_time\": \"0.000002000\" }";
+		final String body3 = "{ \"query_time\": \"0.100000000\", \"result\": [ 1 ], \"serialization_time\": \"0.000002000\" }";
+
+		final CachedResponse response1 = new CachedResponse(Collections.<Class>emptySet(), "application/json", 200, body1);
+		final CachedResponse response2 = new CachedResponse(Collections.<Class>emptySet(), "application/json", 200, body2);
+		final CachedResponse response3 = new CachedResponse(Collections.<Class>emptySet(), "application/json", 200, body3);
+
+		assertEquals(response1.getETag(), response2.getETag());
+		assertFalse(response2.getETag().equals(response3.getETag()));
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+import org.structr.common.PropertyView;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Result;
+import org.structr.core.StaticValue;
+import org.structr.core.app.StructrApp;
+import org.structr.rest.common.StructrRestTest;
+import org.structr.rest.entity.TestOne;
+import org.structr.rest.serialization.StreamingJsonWriter;
+import org.structr.rest.serialization.StreamingWriter;
+
+/**
+ * Tests that compiled serialization plans produce the same output as the
+ * generic serialization path.
+ */
+public class SerializationTest extends StructrRestTest {
+
+	public void test01CompiledOutputEqualsGenericOutput() {
+
+		try {
+
+			final List<TestOne> testOnes = createTestNodes(TestOne.class, 100);
+
+			try {
+				app.beginTx();
+
+				for (int i = 0; i < testOnes.size(); i++) {
+
+					final TestOne testOne = testOnes.get(i);
+
+					testOne.setProperty(TestOne.name, "test" + i);
+					testOne.setProperty(TestOne.anInt, i);
+
+					// leave some values empty
+					if (i % 2 == 0) {
+						testOne.setProperty(TestOne.aLong, (long)i);
+						testOne.setProperty(TestOne.aDate, new Date(i * 1000L));
+					}
+				}
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			final Result result                   = new Result(testOnes, testOnes.size(), true, false);
+			final StreamingWriter compiledWriter  = createWriter(PropertyView.Public, true);
+			final String compiled                 = serialize(compiledWriter, result);
+			final String generic                  = serialize(createWriter(PropertyView.Public, false), result);
+
+			assertTrue(compiled.contains("\"name\": \"test99\""));
+			assertEquals(generic, compiled);
+
+			// cached plans of the same writer must produce the same output again
+			assertEquals(compiled, serialize(compiledWriter, result));
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	public void test02CachedPlansFollowViewChanges() {
+
+		final String view = "serializationTest";
+
+		try {
+
+			final List<TestOne> testOnes = createTestNodes(TestOne.class, 10);
+
+			try {
+				app.beginTx();
+
+				for (int i = 0; i < testOnes.size(); i++) {
+
+					final TestOne testOne = testOnes.get(i);
+
+					testOne.setProperty(TestOne.name, "test" + i);
+					testOne.setProperty(TestOne.anInt, i);
+					testOne.setProperty(TestOne.aLong, (long)i);
+				}
+
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			StructrApp.getConfiguration().registerPropertySet(TestOne.class, view, TestOne.name, TestOne.anInt);
+
+			final Result result                  = new Result(testOnes, testOnes.size(), true, false);
+			final StreamingWriter compiledWriter = createWriter(view, true);
+
+			// first call compiles and caches the plan, second call uses it
+			final String first  = serialize(compiledWriter, result);
+			final String second = serialize(compiledWriter, result);
+
+			assertEquals(serialize(createWriter(view, false), result), first);
+			assertEquals(first, second);
+			assertTrue(first.contains("\"anInt\": 9"));
+			assertFalse(first.contains("\"aLong\""));
+
+			// changing the view must invalidate the cached plan of the same writer
+			StructrApp.getConfiguration().registerPropertySet(TestOne.class, view, TestOne.aLong);
+
+			final String third = serialize(compiledWriter, result);
+
+			assertEquals(serialize(createWriter(view, false), result), third);
+			assertTrue(third.contains("\"anInt\": 9"));
+			assertTrue(third.contains("\"aLong\": 9"));
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	private StreamingWriter createWriter(final String view, final boolean compiled) {
+
+		final StreamingWriter streamingWriter = new StreamingJsonWriter(new StaticValue<>(view), true, 3);
+
+		streamingWriter.setCompiled(compiled);
+
+		return streamingWriter;
+	}
+
+	private String serialize(final StreamingWriter streamingWriter, final Result result) throws IOException {
+
+		final StringWriter output = new StringWriter();
+
+		streamingWriter.stream(output, result, "");
+
+		// remove serialization time which differs between runs
+		return output.toString().replaceAll("\"serialization_time\": \"[0-9.]+\"", "");
+	}
+}
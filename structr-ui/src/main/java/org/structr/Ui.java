@@ -69,6 +69,7 @@ public class Ui {
 			config.setProperty("JsonRestServlet.user.autocreate", "false");
 			config.setProperty("JsonRestServlet.defaultview", PropertyView.Public);
 			config.setProperty("JsonRestServlet.outputdepth", "3");
+			config.setProperty("JsonRestServlet.bulk.batchsize", "1000");
 			
 			config.setProperty("WebSocketServlet.class", WebSocketServlet.class.getName());
 			config.setProperty("WebSocketServlet.path", "/structr/ws/*");
@@ -104,6 +105,7 @@ public class Ui {
 			config.setProperty("HtmlServlet.user.autocreate", "false");
 			config.setProperty("HtmlServlet.defaultview", PropertyView.Public);
 			config.setProperty("HtmlServlet.outputdepth", "3");
+			config.setProperty("HtmlServlet.render.chunksize", "8192");
 
 			// Configure resource handlers
 			config.setProperty(HttpService.RESOURCE_HANDLERS, "StructrUiHandler");
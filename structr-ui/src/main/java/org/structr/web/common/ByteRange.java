@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A single byte range of an HTTP Range request, resolved against the
+ * length of the requested resource.
+ *
+ * Only single ranges are supported, requests for multiple ranges are
+ * answered with the full content, which is allowed by RFC 2616.
+ */
+public class ByteRange {
+
+	private static final String BYTES_UNIT = "bytes=";
+
+	private long start  = 0;
+	private long end    = 0;
+	private long length = 0;
+
+	private ByteRange(final long start, final long end, final long length) {
+
+		this.start  = start;
+		this.end    = end;
+		this.length = length;
+	}
+
+	/**
+	 * Parse the given Range header value for a resource of the given length.
+	 *
+	 * @param header the value of the Range header
+	 * @param length the length of the resource
+	 * @return the byte range, or null if the header is missing, invalid or requests multiple ranges
+	 */
+	public static ByteRange parse(final String header, final long length) {
+
+		if (StringUtils.isBlank(header) || !header.startsWith(BYTES_UNIT)) {
+			return null;
+		}
+
+		final String spec = header.substring(BYTES_UNIT.length()).trim();
+		final int dash    = spec.indexOf('-');
+
+		if (dash < 0 || spec.indexOf(',') >= 0) {
+			return null;
+		}
+
+		final String first = spec.substring(0, dash).trim();
+		final String last  = spec.substring(dash + 1).trim();
+
+		try {
+
+			if (first.isEmpty()) {
+
+				// suffix range: the last n bytes
+				final long suffix = Long.parseLong(last);
+				if (suffix < 0) {
+					return null;
+				}
+
+				return new ByteRange(Math.max(0, length - suffix), length - 1, length);
+			}
+
+			final long start = Long.parseLong(first);
+			long end         = length - 1;
+
+			if (!last.isEmpty()) {
+
+				end = Long.parseLong(last);
+
+				if (end < start) {
+					return null;
+				}
+
+				end = Math.min(end, length - 1);
+			}
+
+			if (start < 0) {
+				return null;
+			}
+
+			return new ByteRange(start, end, length);
+
+		} catch (NumberFormatException nfex) {
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return true if this range overlaps the content, false if a 416 must be sent
+	 */
+	public boolean isSatisfiable() {
+		return start < length && start <= end;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public long getCount() {
+		return end - start + 1;
+	}
+
+	public String getContentRange() {
+
+		if (isSatisfiable()) {
+			return "bytes " + start + "-" + end + "/" + length;
+		}
+
+		return "bytes */" + length;
+	}
+
+	@Override
+	public String toString() {
+		return getContentRange();
+	}
+}
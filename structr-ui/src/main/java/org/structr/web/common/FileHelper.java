@@ -30,7 +30,12 @@ import org.structr.core.entity.AbstractNode;
 //~--- JDK imports ------------------------------------------------------------
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import java.util.UUID;
@@ -38,6 +43,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.nio.DirectNIOBuffer;
+import org.eclipse.jetty.server.AbstractHttpConnection;
 import org.structr.common.PathHelper;
 import org.structr.common.SecurityContext;
 import org.structr.core.GraphObject;
@@ -450,7 +458,107 @@ public class FileHelper {
 		}
 
 		return -1;
-		
+
+	}
+
+	/**
+	 * Return the file on disk that backs the given file node, or null
+	 * if the node has no path or the file does not exist.
+	 *
+	 * @param file
+	 * @return
+	 */
+	public static File getFileOnDisk(final org.structr.web.entity.File file) {
+
+		final String path = file.getRelativeFilePath();
+
+		if (path != null) {
+
+			final File fileOnDisk = new File(getFilePath(path));
+
+			if (fileOnDisk.isFile()) {
+
+				return fileOnDisk;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Sends <code>count</code> bytes of the given file, starting at
+	 * <code>offset</code>, to the given servlet output stream.
+	 *
+	 * If the stream is the output of a Jetty connection, the file is
+	 * memory-mapped and handed to the connection, which writes the mapped
+	 * buffer directly to the socket channel without copying it into the
+	 * heap. Files larger than 2 GB and other output streams fall back to
+	 * {@link #transferTo}.
+	 *
+	 * @param fileOnDisk
+	 * @param offset
+	 * @param count
+	 * @param out
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	public static long sendFile(final File fileOnDisk, final long offset, final long count, final OutputStream out) throws IOException {
+
+		if (out instanceof AbstractHttpConnection.Output && fileOnDisk.length() <= Integer.MAX_VALUE) {
+
+			final Buffer mapped = new DirectNIOBuffer(fileOnDisk);
+
+			mapped.skip((int)offset);
+
+			// the view shares the mapped buffer, the response is complete afterwards
+			((AbstractHttpConnection.Output)out).sendContent(mapped.get((int)count));
+
+			return count;
+		}
+
+		return transferTo(fileOnDisk, offset, count, out);
+	}
+
+	/**
+	 * Write <code>count</code> bytes of the given file, starting at
+	 * <code>offset</code>, to the output stream. FileChannel.transferTo
+	 * only avoids the copy through a heap buffer if the target is a file
+	 * or socket channel, for other streams it copies in small chunks.
+	 *
+	 * @param fileOnDisk
+	 * @param offset
+	 * @param count
+	 * @param out
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	public static long transferTo(final File fileOnDisk, final long offset, final long count, final OutputStream out) throws IOException {
+
+		final WritableByteChannel target = Channels.newChannel(out);
+		long position                    = offset;
+		long remaining                   = count;
+
+		try (final FileChannel channel = new FileInputStream(fileOnDisk).getChannel()) {
+
+			while (remaining > 0) {
+
+				final long transferred = channel.transferTo(position, remaining, target);
+				if (transferred <= 0) {
+
+					// file was truncated while we were reading it
+					if (position >= channel.size()) {
+						break;
+					}
+
+					continue;
+				}
+
+				position  += transferred;
+				remaining -= transferred;
+			}
+		}
+
+		return count - remaining;
 	}
 
 	/**
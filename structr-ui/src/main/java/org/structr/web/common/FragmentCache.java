@@ -0,0 +1,230 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.lang.StringUtils;
+import org.structr.common.DependencyCache;
+import org.structr.common.SecurityContext;
+import org.structr.core.GraphObject;
+import org.structr.core.Result;
+import org.structr.core.entity.Principal;
+import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.entity.dom.DOMNode;
+
+/**
+ * A cache for rendered DOM subtrees.
+ *
+ * Fragments are keyed by node, render depth, page, locale, principal and
+ * details object. While a fragment is rendered, the render context records
+ * which entities and types it read, which request parameters it used and
+ * whether it ran a query that cannot be attributed to a type. Committed
+ * modifications of any of these entities or types evict the fragment, and
+ * a fragment is only re-used if the request parameters it read still have
+ * the same values. Changes to principals clear the whole cache.
+ */
+public class FragmentCache extends DependencyCache<FragmentCache.Fragment> {
+
+	public FragmentCache(final int size) {
+		super(size);
+	}
+
+	/**
+	 * Creates the cache key for the given node, or returns null if the
+	 * node cannot be cached in the current context, i.e. in edit mode or
+	 * while rendering the data of an enclosing element.
+	 */
+	public String getKey(final DOMNode node, final SecurityContext securityContext, final RenderContext renderContext, final int depth) {
+
+		final Principal user = securityContext.getUser(false);
+
+		if (!EditMode.NONE.equals(renderContext.getEditMode(user)) || renderContext.hasDataContext()) {
+			return null;
+		}
+
+		final GraphObject details = renderContext.getDetailsDataObject();
+		final StringBuilder key   = new StringBuilder(node.getUuid());
+
+		key.append("\u0000").append(depth);
+		key.append("\u0000").append(renderContext.getPageId());
+		key.append("\u0000").append(renderContext.getLocale());
+		key.append("\u0000").append(user != null ? user.getUuid() : "anonymous");
+		key.append("\u0000").append(details != null ? details.getUuid() : "");
+		key.append("\u0000").append(renderContext.appLibRendered());
+
+		return key.toString();
+	}
+
+	/**
+	 * Returns the fragment for the given key if the request parameters
+	 * it was rendered with still have the same values.
+	 */
+	public Fragment get(final String key, final HttpServletRequest request) {
+
+		final Fragment fragment = getEntry(key);
+
+		return count(fragment != null && fragment.matches(request) ? fragment : null);
+	}
+
+	@Override
+	protected boolean dependsOn(final Fragment fragment, final Set<String> modifiedIds, final Set<Class> modifiedTypes) {
+		return fragment.dependsOn(modifiedIds, modifiedTypes);
+	}
+
+	// ----- nested classes -----
+	/**
+	 * A rendered fragment and its dependencies. While the fragment is
+	 * being rendered, it also records the content that has already been
+	 * flushed from the render buffer.
+	 */
+	public static class Fragment {
+
+		private final Set<String> ids             = new LinkedHashSet<>();
+		private final Set<Class> types            = new LinkedHashSet<>();
+		private final Map<String, String> params  = new LinkedHashMap<>();
+		private StringBuilder captured            = null;
+		private String content                    = null;
+		private Result result                     = null;
+		private boolean appLibRendered            = false;
+		private boolean dependsOnAll              = false;
+		private boolean cacheable                 = true;
+		private int start                         = 0;
+
+		public Fragment(final int start) {
+			this.start = start;
+		}
+
+		public String getContent() {
+			return content;
+		}
+
+		public Result getResult() {
+			return result;
+		}
+
+		public boolean isAppLibRendered() {
+			return appLibRendered;
+		}
+
+		public boolean isCacheable() {
+			return cacheable;
+		}
+
+		// ----- recording -----
+		void addId(final String id) {
+			ids.add(id);
+		}
+
+		void addType(final Class type) {
+			types.add(type);
+		}
+
+		void addParameter(final String name, final String value) {
+			params.put(name, value);
+		}
+
+		void setDependsOnAll() {
+			dependsOnAll = true;
+		}
+
+		void setUncacheable() {
+			cacheable = false;
+		}
+
+		void setResult(final Result result) {
+			this.result = result;
+		}
+
+		void setAppLibRendered() {
+			this.appLibRendered = true;
+		}
+
+		void addDependencies(final Fragment other) {
+
+			ids.addAll(other.ids);
+			types.addAll(other.types);
+			params.putAll(other.params);
+
+			dependsOnAll |= other.dependsOnAll;
+		}
+
+		/**
+		 * Captures the part of the given buffer that belongs to this
+		 * fragment before the buffer is flushed.
+		 */
+		void capture(final StringBuilder buffer) {
+
+			if (captured == null) {
+				captured = new StringBuilder(buffer.length() - start + 256);
+			}
+
+			captured.append(buffer, start, buffer.length());
+
+			start = 0;
+		}
+
+		void finish(final StringBuilder buffer) {
+
+			if (captured != null) {
+
+				content = captured.append(buffer, start, buffer.length()).toString();
+				captured = null;
+
+			} else {
+
+				content = buffer.substring(start);
+			}
+		}
+
+		// ----- private methods -----
+		private boolean matches(final HttpServletRequest request) {
+
+			for (final Map.Entry<String, String> param : params.entrySet()) {
+
+				final String value = request != null ? request.getParameter(param.getKey()) : null;
+
+				if (!StringUtils.equals(param.getValue(), value)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private boolean dependsOn(final Set<String> modifiedIds, final Set<Class> modifiedTypes) {
+
+			if (dependsOnAll) {
+				return true;
+			}
+
+			for (final String id : modifiedIds) {
+
+				if (ids.contains(id)) {
+					return true;
+				}
+			}
+
+			return dependsOnTypes(types, modifiedTypes);
+		}
+	}
+}
@@ -18,10 +18,18 @@
  */
 package org.structr.web.common;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -32,6 +40,7 @@ import org.structr.core.entity.Principal;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.property.PropertyKey;
 import org.structr.rest.ResourceProvider;
+import org.structr.web.common.FragmentCache.Fragment;
 import org.structr.web.entity.Component;
 import org.structr.web.entity.dom.Page;
 
@@ -67,6 +76,15 @@ public class RenderContext {
 	private HttpServletResponse response         = null;
 	private ResourceProvider resourceProvider    = null;
 	private Result result                        = null;
+	private Writer writer                        = null;
+	private IOException writeError               = null;
+	private int chunkSize                        = 0;
+	private int chunks                           = 0;
+	private long flushedLength                   = 0L;
+	private long firstChunkTime                  = 0L;
+	private FragmentCache fragmentCache          = null;
+	private final LinkedList<Fragment> fragments = new LinkedList<>();
+	private final Map<String, Result> queryResults = new HashMap<>();
 	
 	public enum EditMode {
 	
@@ -130,6 +148,7 @@ public class RenderContext {
 	
 	public void setDataObject(GraphObject currentDataObject) {
 		this.currentDataObject = currentDataObject;
+		trackData(currentDataObject);
 	}
 	
 	public GraphObject getDataObject() {
@@ -150,6 +169,10 @@ public class RenderContext {
 	
 	public void setResult(Result result) {
 		this.result = result;
+
+		if (!fragments.isEmpty()) {
+			fragments.peek().setResult(result);
+		}
 	}
 	
 	public Iterable<GraphObject> getListSource() {
@@ -228,6 +251,290 @@ public class RenderContext {
 	public StringBuilder getBuffer() {
 		return buffer;
 	}
+
+	/**
+	 * Enables streaming for this render context. Once the buffer holds
+	 * at least chunkSize characters, the next call to {@link #flush}
+	 * writes its content to the given writer and clears it.
+	 * 
+	 * @param writer
+	 * @param chunkSize 
+	 */
+	public void setWriter(final Writer writer, final int chunkSize) {
+		this.writer    = writer;
+		this.chunkSize = chunkSize;
+	}
+	
+	public boolean isStreaming() {
+		return writer != null;
+	}
+
+	/**
+	 * Writes the buffer to the writer if streaming is enabled and the
+	 * buffer has reached the chunk size.
+	 */
+	public void flush() {
+		flush(false);
+	}
+	
+	/**
+	 * Writes the buffer to the writer if streaming is enabled and either
+	 * force is set or the buffer has reached the chunk size.
+	 * 
+	 * Write errors (usually a client that went away) are not thrown
+	 * but stored, so that rendering can stop at the next element, see
+	 * {@link #isAborted}. A {@link PrintWriter} swallows its write
+	 * errors, so its error state is checked after every chunk.
+	 * 
+	 * @param force 
+	 */
+	public void flush(final boolean force) {
+
+		if (writer == null || writeError != null || buffer.length() == 0 || (!force && buffer.length() < chunkSize)) {
+			return;
+		}
+
+		// fragments that are being recorded keep what is flushed
+		for (final Fragment fragment : fragments) {
+			fragment.capture(buffer);
+		}
+
+		try {
+
+			writer.append(buffer);
+			writer.flush();
+
+			if (writer instanceof PrintWriter && ((PrintWriter)writer).checkError()) {
+				throw new IOException("Client closed the connection");
+			}
+
+			if (chunks++ == 0) {
+				firstChunkTime = System.nanoTime();
+			}
+
+			flushedLength += buffer.length();
+
+		} catch (IOException ioex) {
+
+			logger.log(Level.FINE, "Unable to write rendered content: {0}", ioex.getMessage());
+
+			writeError = ioex;
+		}
+
+		buffer.setLength(0);
+	}
+
+	/**
+	 * @return whether any content has already been written to the writer
+	 */
+	public boolean isCommitted() {
+		return chunks > 0;
+	}
+
+	/**
+	 * @return whether streaming failed and rendering can stop
+	 */
+	public boolean isAborted() {
+		return writeError != null;
+	}
+	
+	public IOException getWriteError() {
+		return writeError;
+	}
+
+	public int getChunkCount() {
+		return chunks;
+	}
+
+	/**
+	 * @return the value of System.nanoTime() when the first chunk was written, or 0
+	 */
+	public long getFirstChunkTime() {
+		return firstChunkTime;
+	}
+
+	/**
+	 * @return the number of characters rendered so far, including those already flushed
+	 */
+	public long getLength() {
+		return flushedLength + buffer.length();
+	}
+
+	public void setFragmentCache(final FragmentCache fragmentCache) {
+		this.fragmentCache = fragmentCache;
+	}
+
+	public FragmentCache getFragmentCache() {
+		return fragmentCache;
+	}
+
+	/**
+	 * @return whether the output currently depends on data objects of enclosing elements
+	 */
+	public boolean hasDataContext() {
+		return currentDataObject != null || listSource != null || !dataObjects.isEmpty();
+	}
+
+	/**
+	 * Starts recording a fragment at the current buffer position. Until
+	 * {@link #endFragment} is called, all dependencies are recorded in
+	 * the new fragment.
+	 * 
+	 * @return the new fragment
+	 */
+	public Fragment startFragment() {
+
+		final Fragment fragment = new Fragment(buffer.length());
+
+		fragments.push(fragment);
+
+		return fragment;
+	}
+
+	/**
+	 * Stops recording the given fragment, and passes its dependencies on
+	 * to the enclosing fragment.
+	 * 
+	 * @param fragment 
+	 */
+	public void endFragment(final Fragment fragment) {
+
+		fragments.remove(fragment);
+
+		if (isAborted()) {
+			fragment.setUncacheable();
+		}
+
+		fragment.finish(buffer);
+
+		if (!fragments.isEmpty()) {
+
+			final Fragment parent = fragments.peek();
+
+			parent.addDependencies(fragment);
+
+			if (!fragment.isCacheable()) {
+				parent.setUncacheable();
+			}
+
+			if (fragment.getResult() != null) {
+				parent.setResult(fragment.getResult());
+			}
+
+			if (fragment.isAppLibRendered()) {
+				parent.setAppLibRendered();
+			}
+		}
+	}
+
+	/**
+	 * Appends the content of a cached fragment and restores the state
+	 * its rendering left in this context.
+	 * 
+	 * @param fragment 
+	 */
+	public void appendFragment(final Fragment fragment) {
+
+		buffer.append(fragment.getContent());
+
+		if (!fragments.isEmpty()) {
+			fragments.peek().addDependencies(fragment);
+		}
+
+		if (fragment.getResult() != null) {
+			setResult(fragment.getResult());
+		}
+
+		if (fragment.isAppLibRendered()) {
+			setAppLibRendered(true);
+		}
+
+		flush();
+	}
+
+	/**
+	 * Records that the current fragment contains the given node.
+	 * 
+	 * @param node 
+	 */
+	public void trackNode(final GraphObject node) {
+
+		if (!fragments.isEmpty() && node != null) {
+			fragments.peek().addId(node.getUuid());
+		}
+	}
+
+	/**
+	 * Records that the current fragment read the given object, so it
+	 * depends on the object and on other objects of the same type.
+	 * 
+	 * @param data 
+	 */
+	public void trackData(final GraphObject data) {
+
+		if (!fragments.isEmpty() && data != null) {
+
+			final Fragment fragment = fragments.peek();
+
+			fragment.addId(data.getUuid());
+			fragment.addType(data.getClass());
+		}
+	}
+
+	/**
+	 * Records that the current fragment depends on all objects of the
+	 * given type, or on any modification if the type is unknown.
+	 * 
+	 * @param type 
+	 */
+	public void trackType(final Class type) {
+
+		if (!fragments.isEmpty()) {
+
+			if (type != null) {
+
+				fragments.peek().addType(type);
+
+			} else {
+
+				fragments.peek().setDependsOnAll();
+			}
+		}
+	}
+
+	/**
+	 * Records that the current fragment read the given request parameter.
+	 * 
+	 * @param name
+	 * @param value 
+	 */
+	public void trackParameter(final String name, final String value) {
+
+		if (!fragments.isEmpty()) {
+			fragments.peek().addParameter(name, value);
+		}
+	}
+
+	/**
+	 * Records that the current fragment must be invalidated by any
+	 * modification, f.e. because it contains the results of a query.
+	 */
+	public void trackAll() {
+
+		if (!fragments.isEmpty()) {
+			fragments.peek().setDependsOnAll();
+		}
+	}
+
+	/**
+	 * Records that the current fragment must not be cached at all.
+	 */
+	public void setUncacheable() {
+
+		if (!fragments.isEmpty()) {
+			fragments.peek().setUncacheable();
+		}
+	}
 	
 	public void setInBody(final boolean inBody) {
 		this.inBody = inBody;
@@ -239,6 +546,10 @@ public class RenderContext {
 	
 	public void setAppLibRendered(final boolean appLibRendered) {
 		this.appLibRendered = appLibRendered;
+
+		if (appLibRendered && !fragments.isEmpty()) {
+			fragments.peek().setAppLibRendered();
+		}
 	}
 	
 	public boolean appLibRendered() {
@@ -287,7 +598,51 @@ public class RenderContext {
 	public String getComponentId() {
 		return (component != null ? component.getUuid() : null);
 	}
+	/**
+	 * Returns the current result and records that the current fragment
+	 * depends on the types of its elements, because paging values like
+	 * the result count change with every modification of these types.
+	 * 
+	 * @return the current result
+	 */
 	public Result getResult() {
+
+		if (result != null && !fragments.isEmpty()) {
+
+			final List<GraphObject> results = result.getResults();
+			if (results == null || results.isEmpty()) {
+
+				// the type of an empty result is unknown
+				trackAll();
+
+			} else {
+
+				final Set<Class> types = new LinkedHashSet<>();
+
+				for (final GraphObject obj : results) {
+
+					if (types.add(obj.getClass())) {
+						trackType(obj.getClass());
+					}
+				}
+			}
+		}
+
 		return result;
 	}
+
+	/**
+	 * Returns the result of a REST query that was already executed in this
+	 * rendering, so sibling elements with the same query can share it.
+	 *
+	 * @param query the REST query after variable replacement
+	 * @return the result, or null
+	 */
+	public Result getQueryResult(final String query) {
+		return queryResults.get(query);
+	}
+
+	public void setQueryResult(final String query, final Result result) {
+		queryResults.put(query, result);
+	}
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects render statistics per page: the number of successful and
+ * failed renderings, the total and maximum render time, the time until
+ * the first chunk was written, and the number of characters rendered.
+ */
+public class RenderMetrics {
+
+	private static final RenderMetrics instance = new RenderMetrics();
+
+	private final ConcurrentMap<String, PageMetrics> metrics = new ConcurrentHashMap<>();
+
+	private RenderMetrics() {}
+
+	public static RenderMetrics getInstance() {
+		return instance;
+	}
+
+	public void render(final String page, final long nanos, final long firstChunkNanos, final long length, final boolean success) {
+
+		final PageMetrics pageMetrics = getMetrics(page);
+
+		if (success) {
+
+			pageMetrics.renders.incrementAndGet();
+
+		} else {
+
+			pageMetrics.failures.incrementAndGet();
+		}
+
+		pageMetrics.nanos.addAndGet(nanos);
+		pageMetrics.firstChunkNanos.addAndGet(firstChunkNanos);
+		pageMetrics.length.addAndGet(length);
+
+		long max = pageMetrics.maxNanos.get();
+		while (nanos > max && !pageMetrics.maxNanos.compareAndSet(max, nanos)) {
+			max = pageMetrics.maxNanos.get();
+		}
+	}
+
+	public PageMetrics get(final String page) {
+		return metrics.get(page);
+	}
+
+	/**
+	 * @return a sorted snapshot of the metrics of all pages
+	 */
+	public Map<String, PageMetrics> getAll() {
+		return Collections.unmodifiableMap(new TreeMap<>(metrics));
+	}
+
+	public void clear() {
+		metrics.clear();
+	}
+
+	private PageMetrics getMetrics(final String page) {
+
+		PageMetrics pageMetrics = metrics.get(page);
+		if (pageMetrics == null) {
+
+			pageMetrics = new PageMetrics();
+
+			final PageMetrics existing = metrics.putIfAbsent(page, pageMetrics);
+			if (existing != null) {
+
+				pageMetrics = existing;
+			}
+		}
+
+		return pageMetrics;
+	}
+
+	// ----- nested classes -----
+	public static class PageMetrics {
+
+		private final AtomicLong renders         = new AtomicLong();
+		private final AtomicLong failures        = new AtomicLong();
+		private final AtomicLong nanos           = new AtomicLong();
+		private final AtomicLong maxNanos        = new AtomicLong();
+		private final AtomicLong firstChunkNanos = new AtomicLong();
+		private final AtomicLong length          = new AtomicLong();
+
+		public long getRenders() {
+			return renders.get();
+		}
+
+		public long getFailures() {
+			return failures.get();
+		}
+
+		/**
+		 * @return the average render time per request in milliseconds
+		 */
+		public double getAverageRenderTime() {
+
+			final long count = renders.get() + failures.get();
+
+			return count > 0 ? (nanos.get() / 1000000.0) / count : 0.0;
+		}
+
+		/**
+		 * @return the maximum render time in milliseconds
+		 */
+		public double getMaxRenderTime() {
+			return maxNanos.get() / 1000000.0;
+		}
+
+		/**
+		 * @return the average time until the first chunk was written in milliseconds
+		 */
+		public double getAverageFirstChunkTime() {
+
+			final long count = renders.get() + failures.get();
+
+			return count > 0 ? (firstChunkNanos.get() / 1000000.0) / count : 0.0;
+		}
+
+		/**
+		 * @return the average number of characters rendered per request
+		 */
+		public long getAverageLength() {
+
+			final long count = renders.get() + failures.get();
+
+			return count > 0 ? length.get() / count : 0L;
+		}
+
+		@Override
+		public String toString() {
+			return getRenders() + " renders, " + getFailures() + " failures, " + getAverageRenderTime() + " ms/render, " + getMaxRenderTime() + " ms max, " + getAverageFirstChunkTime() + " ms to first chunk";
+		}
+	}
+}
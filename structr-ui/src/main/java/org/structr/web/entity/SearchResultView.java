@@ -57,6 +57,9 @@ public class SearchResultView extends View {
 	@Override
 	public void render(SecurityContext securityContext, RenderContext renderContext, int depth) throws FrameworkException {
 
+		// query results and request parameters are not tracked
+		renderContext.setUncacheable();
+
 		HttpServletRequest request   = renderContext.getRequest();
 		Page page                    = renderContext.getPage();
 		double startSearchResultView = System.nanoTime();
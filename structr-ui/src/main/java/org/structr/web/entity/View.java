@@ -136,6 +136,9 @@ public class View extends DOMElement {
 	public void render(SecurityContext securityContext, RenderContext renderContext, int depth) throws FrameworkException {
 
 		double startView = System.nanoTime();
+
+		// query results and request parameters are not tracked
+		renderContext.setUncacheable();
 		
 		HttpServletRequest request = renderContext.getRequest();
 
@@ -0,0 +1,401 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.entity.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import org.apache.commons.collections.iterators.IteratorEnumeration;
+import org.apache.commons.lang.StringUtils;
+import org.structr.common.PagingHelper;
+import org.structr.common.PropertyView;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.Result;
+import org.structr.core.Value;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeFactory;
+import org.structr.core.property.PropertyKey;
+import org.structr.rest.ResourceProvider;
+import org.structr.rest.resource.Resource;
+import org.structr.rest.servlet.JsonRestServlet;
+import org.structr.rest.servlet.ResourceHelper;
+import org.structr.web.common.RenderContext;
+import org.structr.web.common.UiResourceProvider;
+
+/**
+ * A REST query of a DOM element, parsed once into path parts, request
+ * parameters and paging settings. The variables of the restQuery property
+ * are replaced before, so the compiled query is cached by the resulting
+ * query string and bound to the current request and security context
+ * on execution.
+ *
+ * The resource types that matched the path parts in the first execution
+ * are remembered, so later executions only instantiate and configure
+ * them instead of matching each part against all resource patterns. If
+ * one of them does not accept its part any more, the path is parsed
+ * again.
+ */
+final class CompiledRestQuery {
+
+	private static final Logger logger          = Logger.getLogger(CompiledRestQuery.class.getName());
+	private static final int MAX_CACHED_QUERIES = 10000;
+
+	private static final ConcurrentMap<String, CompiledRestQuery> queries                           = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<Class, Map<Pattern, Class<? extends Resource>>> resourceMaps = new ConcurrentHashMap<>();
+
+	private volatile List<Class<? extends Resource>> resourceTypes = null;
+	private volatile Class entityClass                             = null;
+	private final Map<String, String[]> parameters;
+	private final List<String> pathParts;
+	private final String query;
+	private final String path;
+	private final String queryString;
+	private final String offsetId;
+	private final String sortKeyName;
+	private final boolean sortDescending;
+	private final int pageSize;
+	private final int page;
+
+	private CompiledRestQuery(final String query) {
+
+		final Map<String, String[]> _parameters = new HashMap<>();
+		final List<String> _pathParts           = new ArrayList<>();
+
+		this.query       = query;
+		this.path        = StringUtils.substringBefore(query, "?");
+		this.queryString = StringUtils.substringAfter(query, "?");
+
+		for (final String part : path.split("[/]+")) {
+
+			final String trimmedPart = part.trim();
+			if (trimmedPart.length() > 0) {
+
+				_pathParts.add(trimmedPart);
+			}
+		}
+
+		for (final String p : StringUtils.split(queryString, "&")) {
+
+			final String[] kv = StringUtils.split(p, "=");
+			if (kv.length > 1) {
+
+				_parameters.put(kv[0], new String[] { kv[1] });
+			}
+		}
+
+		this.parameters = Collections.unmodifiableMap(_parameters);
+		this.pathParts  = Collections.unmodifiableList(_pathParts);
+
+		final String sortOrder = getParameter(JsonRestServlet.REQUEST_PARAMETER_SORT_ORDER);
+
+		pageSize       = parseInt(getParameter(JsonRestServlet.REQUEST_PARAMETER_PAGE_SIZE), NodeFactory.DEFAULT_PAGE_SIZE);
+		page           = parseInt(getParameter(JsonRestServlet.REQUEST_PARAMETER_PAGE_NUMBER), NodeFactory.DEFAULT_PAGE);
+		offsetId       = getParameter(JsonRestServlet.REQUEST_PARAMETER_OFFSET_ID);
+		sortKeyName    = getParameter(JsonRestServlet.REQUEST_PARAMETER_SORT_KEY);
+		sortDescending = (sortOrder != null && "desc".equals(sortOrder.toLowerCase()));
+	}
+
+	/**
+	 * Returns the compiled query for the given query string.
+	 *
+	 * @param query the REST query after variable replacement
+	 * @return the compiled query
+	 */
+	public static CompiledRestQuery get(final String query) {
+
+		CompiledRestQuery compiledQuery = queries.get(query);
+		if (compiledQuery == null) {
+
+			compiledQuery = new CompiledRestQuery(query);
+
+			// query strings contain request parameters, so the cache must not grow without limit
+			if (queries.size() >= MAX_CACHED_QUERIES) {
+				queries.clear();
+			}
+
+			queries.put(query, compiledQuery);
+		}
+
+		return compiledQuery;
+	}
+
+	/**
+	 * Executes this query for the given render context. The result is
+	 * shared with all other elements of the same rendering that execute
+	 * the same query.
+	 *
+	 * @param securityContext
+	 * @param renderContext
+	 * @return the result, or null if no resource provider is available
+	 * @throws FrameworkException
+	 */
+	public Result execute(final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+
+		final Result cachedResult = renderContext.getQueryResult(query);
+		if (cachedResult != null) {
+
+			renderContext.trackType(entityClass);
+
+			return cachedResult;
+		}
+
+		final Map<Pattern, Class<? extends Resource>> resourceMap = getResourceMap(renderContext.getResourceProvider());
+		if (resourceMap == null) {
+
+			return null;
+		}
+
+		final HttpServletRequest originalRequest = securityContext.getRequest();
+		final HttpServletRequest request         = new QueryRequest(renderContext.getRequest());
+		final Value<String> propertyView         = new ThreadLocalPropertyView();
+
+		propertyView.set(securityContext, PropertyView.Ui);
+
+		try {
+
+			// resources expect the request of the query in the security context
+			securityContext.setRequest(request);
+
+			List<Resource> chain = instantiate(securityContext, request, propertyView);
+			if (chain == null) {
+
+				chain = ResourceHelper.parsePath(securityContext, request, resourceMap, propertyView, GraphObject.id);
+
+				final List<Class<? extends Resource>> types = new ArrayList<>(chain.size());
+				for (final Resource resource : chain) {
+
+					types.add(resource.getClass());
+				}
+
+				resourceTypes = types;
+			}
+
+			final Resource resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(chain, GraphObject.id), propertyView);
+			PropertyKey sortKey     = null;
+
+			// TODO: decide if we need to rest the REST request here
+			//securityContext.checkResourceAccess(request, resource.getResourceSignature(), resource.getGrant(request, response), PropertyView.Ui);
+
+			// set sort key
+			if (sortKeyName != null) {
+
+				Class<? extends GraphObject> type = resource.getEntityClass();
+				sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName);
+			}
+
+			// cached fragments depend on all entities of the resource type
+			entityClass = resource.getEntityClass();
+			renderContext.trackType(entityClass);
+
+			// do action
+			final Result result = resource.doGet(sortKey, sortDescending, pageSize, page, offsetId);
+			result.setIsCollection(resource.isCollectionResource());
+			result.setIsPrimitiveArray(resource.isPrimitiveArray());
+
+			PagingHelper.addPagingParameter(result, pageSize, page);
+
+			renderContext.setQueryResult(query, result);
+
+			return result;
+
+		} finally {
+
+			// restore the original request for the rest of the rendering
+			securityContext.setRequest(originalRequest);
+		}
+	}
+
+	/**
+	 * Instantiates and configures the resource types of a previous execution,
+	 * in the same order as {@link ResourceHelper#parsePath} does.
+	 *
+	 * @return the resource chain, or null if the path must be parsed again
+	 */
+	private List<Resource> instantiate(final SecurityContext securityContext, final HttpServletRequest request, final Value<String> propertyView) throws FrameworkException {
+
+		final List<Class<? extends Resource>> types = resourceTypes;
+		if (types == null || types.size() != pathParts.size()) {
+
+			return null;
+		}
+
+		final List<Resource> chain = new ArrayList<>(types.size());
+
+		for (int i = 0; i < types.size(); i++) {
+
+			final Resource resource;
+
+			try {
+				resource = types.get(i).newInstance();
+
+			} catch (Throwable t) {
+
+				logger.log(Level.WARNING, "Error instantiating resource class", t);
+				return null;
+			}
+
+			resource.setSecurityContext(securityContext);
+
+			if (!resource.checkAndConfigure(pathParts.get(i), securityContext, request)) {
+
+				return null;
+			}
+
+			resource.configurePropertyView(propertyView);
+			resource.configureIdProperty(GraphObject.id);
+
+			chain.add(resource);
+		}
+
+		return chain;
+	}
+
+	private String getParameter(final String key) {
+
+		final String[] p = parameters.get(key);
+		return p != null ? p[0] : null;
+	}
+
+	/**
+	 * Returns the resource map of the given provider, which is created only
+	 * once per provider type.
+	 */
+	private static Map<Pattern, Class<? extends Resource>> getResourceMap(final ResourceProvider provider) {
+
+		final Class providerType                            = provider != null ? provider.getClass() : UiResourceProvider.class;
+		Map<Pattern, Class<? extends Resource>> resourceMap = resourceMaps.get(providerType);
+
+		if (resourceMap == null) {
+
+			ResourceProvider resourceProvider = provider;
+			if (resourceProvider == null) {
+
+				try {
+					resourceProvider = UiResourceProvider.class.newInstance();
+
+				} catch (Throwable t) {
+
+					logger.log(Level.SEVERE, "Couldn't establish a resource provider", t);
+					return null;
+				}
+			}
+
+			resourceMap = Collections.unmodifiableMap(new LinkedHashMap<>(resourceProvider.getResources()));
+			resourceMaps.put(providerType, resourceMap);
+		}
+
+		return resourceMap;
+	}
+
+	/**
+	 * Tries to parse the given String to an int value, returning
+	 * defaultValue on error.
+	 *
+	 * @param value the source String to parse
+	 * @param defaultValue the default value that will be returned when parsing fails
+	 * @return the parsed value or the given default value when parsing fails
+	 */
+	private static int parseInt(String value, int defaultValue) {
+
+		if (value == null) {
+
+			return defaultValue;
+
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (Throwable ignore) {}
+
+		return defaultValue;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Mimics an HTTP request for the REST query, based on the parameters
+	 * that were parsed when the query was compiled.
+	 */
+	private class QueryRequest extends HttpServletRequestWrapper {
+
+		public QueryRequest(final HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public Enumeration<String> getParameterNames() {
+			return new IteratorEnumeration(parameters.keySet().iterator());
+		}
+
+		@Override
+		public String getParameter(String key) {
+			return CompiledRestQuery.this.getParameter(key);
+		}
+
+		@Override
+		public Map<String, String[]> getParameterMap() {
+			return parameters;
+		}
+
+		@Override
+		public String getQueryString() {
+			return queryString;
+		}
+
+		@Override
+		public String getPathInfo() {
+			return path;
+		}
+
+		@Override
+		public StringBuffer getRequestURL() {
+			return new StringBuffer(query);
+		}
+	}
+
+	private static class ThreadLocalPropertyView extends ThreadLocal<String> implements Value<String> {
+
+		@Override
+		protected String initialValue() {
+			return PropertyView.Ui;
+		}
+
+		@Override
+		public void set(SecurityContext securityContext, String value) {
+			set(value);
+		}
+
+		@Override
+		public String get(SecurityContext securityContext) {
+			return get();
+		}
+	}
+}
@@ -0,0 +1,399 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.entity.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang.StringUtils;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.web.common.Function;
+import org.structr.web.common.RenderContext;
+
+/**
+ * A template string with ${...} expressions, parsed once into a list of
+ * literal parts and expression trees. Compiled templates are cached by
+ * their source string, so a modified value simply compiles into a new
+ * template.
+ */
+final class CompiledTemplate {
+
+	private static final int MAX_CACHED_TEMPLATES = 10000;
+
+	private static final ConcurrentMap<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Expression> expressions     = new ConcurrentHashMap<>();
+	private static final Pattern functionPattern                           = Pattern.compile("([a-zA-Z0-9_]+)\\((.+)\\)");
+
+	private final String source;
+	private final String[] literals;
+	private final Expression[] parts;
+	private final boolean hasLiterals;
+
+	private CompiledTemplate(final String source, final String[] literals, final Expression[] parts) {
+
+		boolean _hasLiterals = false;
+
+		for (final String literal : literals) {
+			_hasLiterals |= literal.length() > 0;
+		}
+
+		this.source      = source;
+		this.literals    = literals;
+		this.parts       = parts;
+		this.hasLiterals = _hasLiterals;
+	}
+
+	/**
+	 * Returns the compiled template for the given source string.
+	 *
+	 * @param source
+	 * @return the compiled template
+	 */
+	public static CompiledTemplate get(final String source) {
+
+		CompiledTemplate template = templates.get(source);
+		if (template == null) {
+
+			template = compile(source);
+			cache(templates, source, template);
+		}
+
+		return template;
+	}
+
+	/**
+	 * Returns the compiled expression for the given source string, which
+	 * must not contain the surrounding ${ and }.
+	 *
+	 * @param source
+	 * @return the compiled expression
+	 */
+	public static Expression getExpression(final String source) {
+
+		Expression expression = expressions.get(source);
+		if (expression == null) {
+
+			expression = compileExpression(source);
+			cache(expressions, source, expression);
+		}
+
+		return expression;
+	}
+
+	/**
+	 * Evaluates this template in the context of the given node. A template
+	 * that consists of expressions only evaluates to null if none of them
+	 * produced any output and the last one evaluated to null, so that
+	 * HTML attributes with a null value are not rendered.
+	 *
+	 * @param node
+	 * @param securityContext
+	 * @param renderContext
+	 * @return the evaluated template
+	 * @throws FrameworkException
+	 */
+	public String evaluate(final DOMNode node, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+
+		if (parts.length == 0) {
+			return source;
+		}
+
+		if (parts.length == 1 && !hasLiterals) {
+			return parts[0].evaluate(node, securityContext, renderContext);
+		}
+
+		final StringBuilder buffer = new StringBuilder(source.length() + 16 * parts.length);
+		String value               = null;
+
+		for (int i = 0; i < parts.length; i++) {
+
+			buffer.append(literals[i]);
+
+			value = parts[i].evaluate(node, securityContext, renderContext);
+			if (value != null) {
+
+				buffer.append(value);
+			}
+		}
+
+		buffer.append(literals[parts.length]);
+
+		if (value == null && buffer.length() == 0) {
+			return null;
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Splits the given function parameter string at commas that are not
+	 * enclosed in quotes or parentheses.
+	 *
+	 * @param source
+	 * @return the parameters
+	 */
+	public static String[] split(final String source) {
+
+		ArrayList<String> tokens = new ArrayList<>(20);
+		boolean inDoubleQuotes = false;
+		boolean inSingleQuotes = false;
+		int len = source.length();
+		int level = 0;
+		StringBuilder currentToken = new StringBuilder(len);
+
+		for (int i = 0; i < len; i++) {
+
+			char c = source.charAt(i);
+
+			// do not strip away separators in nested functions!
+			if ((level != 0) || (c != ',')) {
+
+				currentToken.append(c);
+			}
+
+			switch (c) {
+
+				case '(':
+					level++;
+
+					break;
+
+				case ')':
+					level--;
+
+					break;
+
+				case '"':
+					if (inDoubleQuotes) {
+
+						inDoubleQuotes = false;
+
+						level--;
+
+					} else {
+
+						inDoubleQuotes = true;
+
+						level++;
+
+					}
+
+					break;
+
+				case '\'':
+					if (inSingleQuotes) {
+
+						inSingleQuotes = false;
+
+						level--;
+
+					} else {
+
+						inSingleQuotes = true;
+
+						level++;
+
+					}
+
+					break;
+
+				case ',':
+					if (level == 0) {
+
+						tokens.add(currentToken.toString().trim());
+						currentToken.setLength(0);
+
+					}
+
+					break;
+
+			}
+
+		}
+
+		if (currentToken.length() > 0) {
+
+			tokens.add(currentToken.toString().trim());
+		}
+
+		return tokens.toArray(new String[0]);
+
+	}
+
+	// ----- private methods -----
+	private static <T> void cache(final ConcurrentMap<String, T> cache, final String source, final T value) {
+
+		// template strings can come from arbitrary data, so the cache must not grow without limit
+		if (cache.size() >= MAX_CACHED_TEMPLATES) {
+			cache.clear();
+		}
+
+		cache.put(source, value);
+	}
+
+	private static CompiledTemplate compile(final String source) {
+
+		final List<String> literals   = new ArrayList<>();
+		final List<Expression> parts  = new ArrayList<>();
+		int pos                       = 0;
+
+		while (pos < source.length()) {
+
+			final int start = source.indexOf("${", pos);
+			if (start < 0) {
+				break;
+			}
+
+			final int end = source.indexOf('}', start + 2);
+			if (end < 0) {
+				break;
+			}
+
+			literals.add(source.substring(pos, start));
+			parts.add(getExpression(source.substring(start + 2, end)));
+
+			pos = end + 1;
+		}
+
+		literals.add(source.substring(pos));
+
+		return new CompiledTemplate(source, literals.toArray(new String[0]), parts.toArray(new Expression[0]));
+	}
+
+	private static Expression compileExpression(final String source) {
+
+		final Expression literal = compileLiteral(source);
+		final Matcher matcher    = functionPattern.matcher(source);
+
+		if (matcher.matches()) {
+
+			final String functionName = matcher.group(1);
+			final String parameter    = matcher.group(2);
+			final String[] parameters = parameter.contains(",") ? split(parameter) : new String[] { parameter };
+			final Expression[] args   = new Expression[parameters.length];
+
+			for (int i = 0; i < parameters.length; i++) {
+
+				args[i] = getExpression(StringUtils.strip(parameters[i]));
+			}
+
+			return new FunctionCall(functionName, args, literal);
+		}
+
+		return literal;
+	}
+
+	private static Expression compileLiteral(final String source) {
+
+		// if any of the following conditions match, the literal source value is returned
+		if (StringUtils.isNotBlank(source) && StringUtils.isNumeric(source)) {
+
+			// return numeric value
+			return new Constant(source);
+
+		} else if (source.startsWith("\"") && source.endsWith("\"")) {
+
+			return new Constant(source.substring(1, source.length() - 1));
+
+		} else if (source.startsWith("'") && source.endsWith("'")) {
+
+			return new Constant(source.substring(1, source.length() - 1));
+
+		}
+
+		// return property key
+		return new Reference(source);
+	}
+
+	// ----- nested classes -----
+	interface Expression {
+
+		String evaluate(final DOMNode node, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException;
+	}
+
+	private static class Constant implements Expression {
+
+		private final String value;
+
+		public Constant(final String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String evaluate(final DOMNode node, final SecurityContext securityContext, final RenderContext renderContext) {
+			return value;
+		}
+	}
+
+	private static class Reference implements Expression {
+
+		private final String key;
+
+		public Reference(final String key) {
+			this.key = key;
+		}
+
+		@Override
+		public String evaluate(final DOMNode node, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+			return node.convertValueForHtml(node.getReferencedProperty(securityContext, renderContext, key));
+		}
+	}
+
+	private static class FunctionCall implements Expression {
+
+		private final String name;
+		private final Expression[] args;
+		private final Expression literal;
+
+		public FunctionCall(final String name, final Expression[] args, final Expression literal) {
+
+			this.name    = name;
+			this.args    = args;
+			this.literal = literal;
+		}
+
+		@Override
+		public String evaluate(final DOMNode node, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+
+			// functions are resolved on evaluation since they can be registered at any time
+			final Function<String, String> function = DOMNode.functions.get(name);
+			if (function == null) {
+
+				return literal.evaluate(node, securityContext, renderContext);
+			}
+
+			if (DOMNode.uncacheableFunctions.contains(name)) {
+				renderContext.setUncacheable();
+			}
+
+			final String[] results = new String[args.length];
+
+			for (int i = 0; i < args.length; i++) {
+
+				results[i] = args[i].evaluate(node, securityContext, renderContext);
+			}
+
+			return function.apply(results);
+		}
+	}
+}
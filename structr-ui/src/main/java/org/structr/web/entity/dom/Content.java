@@ -172,6 +172,9 @@ public class Content extends DOMNode implements Text {
 
 	@Override
 	public void render(SecurityContext securityContext, RenderContext renderContext, int depth) throws FrameworkException {
+
+		// the enclosing fragment depends on this node, even if it is not displayed
+		renderContext.trackNode(this);
 	
 		if (isDeleted() || isHidden() || !displayForLocale(renderContext) || !displayForConditions(securityContext, renderContext)) {
 			return;
@@ -22,9 +22,6 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import org.apache.commons.lang.StringUtils;
 
@@ -35,6 +32,8 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.StringProperty;
+import org.structr.web.common.FragmentCache;
+import org.structr.web.common.FragmentCache.Fragment;
 import org.structr.web.common.HtmlProperty;
 import org.structr.web.common.RenderContext;
 
@@ -49,12 +48,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletRequestWrapper;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathFactory;
-import org.apache.commons.collections.iterators.IteratorEnumeration;
 
 import org.apache.commons.collections.map.LRUMap;
 import org.structr.common.CaseHelper;
@@ -62,28 +57,20 @@ import org.structr.common.error.ErrorBuffer;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
 import org.structr.core.Services;
-import org.structr.core.Value;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
 import org.structr.core.graph.CypherQueryCommand;
-import org.structr.core.graph.NodeFactory;
 import org.structr.core.notion.PropertyNotion;
 import org.structr.core.property.BooleanProperty;
 import org.structr.core.property.EndNodes;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.IntProperty;
-import org.structr.rest.ResourceProvider;
-import org.structr.common.PagingHelper;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.NodeInterface;
-import org.structr.rest.resource.Resource;
-import org.structr.rest.servlet.JsonRestServlet;
-import org.structr.rest.servlet.ResourceHelper;
 import org.structr.web.entity.html.Body;
 import org.structr.web.common.GraphDataSource;
 import org.structr.web.common.RenderContext.EditMode;
-import org.structr.web.common.UiResourceProvider;
 import org.structr.web.entity.dom.relationship.DOMChildren;
 import org.structr.web.entity.relation.RenderNode;
 import org.structr.web.entity.relation.Sync;
@@ -309,7 +296,8 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 	}
 	
 	/**
-	 * Main render method.
+	 * Main render method. Uses the fragment cache of the render context if
+	 * there is one, see {@link FragmentCache}.
 	 * 
 	 * TODO: This method is still way to long!
 	 * 
@@ -320,14 +308,52 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 	 */
 	@Override
 	public void render(SecurityContext securityContext, RenderContext renderContext, int depth) throws FrameworkException {
-		
-		StringBuilder buffer	= renderContext.getBuffer();
-		double start = System.nanoTime();
 
-		if (isDeleted() || isHidden() || !displayForLocale(renderContext) || !displayForConditions(securityContext, renderContext)) {
+		// the enclosing fragment depends on this node, even if it is not displayed
+		renderContext.trackNode(this);
+
+		if (renderContext.isAborted() || isDeleted() || isHidden() || !displayForLocale(renderContext) || !displayForConditions(securityContext, renderContext)) {
+			return;
+		}
+
+		final FragmentCache fragmentCache = renderContext.getFragmentCache();
+		final String key                  = fragmentCache != null ? fragmentCache.getKey(this, securityContext, renderContext, depth) : null;
+
+		if (key == null) {
+
+			renderElement(securityContext, renderContext, depth);
 			return;
 		}
 
+		final Fragment cached = fragmentCache.get(key, renderContext.getRequest());
+		if (cached != null) {
+
+			renderContext.appendFragment(cached);
+			return;
+		}
+
+		final long generation   = fragmentCache.getGeneration();
+		final Fragment fragment = renderContext.startFragment();
+
+		try {
+
+			renderElement(securityContext, renderContext, depth);
+
+		} finally {
+
+			renderContext.endFragment(fragment);
+		}
+
+		if (fragment.isCacheable()) {
+			fragmentCache.put(key, fragment, generation);
+		}
+	}
+
+	private void renderElement(SecurityContext securityContext, RenderContext renderContext, int depth) throws FrameworkException {
+		
+		StringBuilder buffer	= renderContext.getBuffer();
+		double start = System.nanoTime();
+
 		EditMode editMode	= renderContext.getEditMode(securityContext.getUser(false));
 		boolean isVoid		= isVoidElement();
 		String _tag		= getProperty(DOMElement.tag);
@@ -361,6 +387,8 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 					for (Sync syncRel : getIncomingRelationships(Sync.class)) {
 
 						DOMElement syncedNode = (DOMElement)syncRel.getSourceNode();
+						renderContext.trackNode(syncedNode);
+
 						rels.addAll(syncedNode.getChildRelationships());
 					}
 				}
@@ -369,6 +397,9 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 
 					DOMNode subNode = (DOMNode) rel.getTargetNode();
 
+					// the fragment depends on children that are not displayed, too
+					renderContext.trackNode(subNode);
+
 					if (!securityContext.isVisible(subNode)) {
 						continue;
 					}
@@ -496,6 +527,9 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 
 				logger.log(Level.SEVERE, "Error while rendering node {0}: {1}", new java.lang.Object[] { getUuid(), t });
 
+				// don't cache the error message
+				renderContext.setUncacheable();
+
 				buffer.append("Error while rendering node ").append(getUuid()).append(": ").append(t);
 
 			}
@@ -514,6 +548,9 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 			}
 
 		}
+
+		// hand a chunk to the response if streaming is enabled
+		renderContext.flush();
 		
 		double end = System.nanoTime();
 
@@ -1011,51 +1048,7 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 	}
 
 	/**
-	 * Tries to parse the given String to an int value, returning
-	 * defaultValue on error.
-	 *
-	 * @param value the source String to parse
-	 * @param defaultValue the default value that will be returned when parsing fails
-	 * @return the parsed value or the given default value when parsing fails
-	 */
-	private static int parseInt(String value, int defaultValue) {
-
-		if (value == null) {
-
-			return defaultValue;
-
-		}
-
-		try {
-			return Integer.parseInt(value);
-		} catch (Throwable ignore) {}
-
-		return defaultValue;
-	}
-	private static class ThreadLocalPropertyView extends ThreadLocal<String> implements Value<String> {
-
-		@Override
-		protected String initialValue() {
-			return PropertyView.Ui;
-		}
-
-		@Override
-		public void set(SecurityContext securityContext, String value) {
-			set(value);
-		}
-
-		@Override
-		public String get(SecurityContext securityContext) {
-			return get();
-		}
-	}
-	
-	/**
-	 * List data source equivalent to a rest resource.
-	 * 
-	 * TODO: This method uses code from the {@link JsonRestServlet} which should be
-	 * encapsulated and re-used here
-	 * 
+	 * List data source equivalent to a rest resource, see {@link CompiledRestQuery}.
 	 */
 	private static class RestDataSource implements GraphDataSource<List<GraphObject>> {
 
@@ -1065,107 +1058,12 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 			final String restQuery = ((DOMElement) referenceNode).getPropertyWithVariableReplacement(securityContext, renderContext, DOMElement.restQuery);
 			if (restQuery != null && !restQuery.isEmpty()) {
 				
-				Map<Pattern, Class<? extends Resource>> resourceMap = new LinkedHashMap<>();
-				
-				ResourceProvider resourceProvider = renderContext.getResourceProvider();
-				if (resourceProvider == null) {
-					try {
-						resourceProvider = UiResourceProvider.class.newInstance();
-					} catch (Throwable t) {
-						logger.log(Level.SEVERE, "Couldn't establish a resource provider", t);
-						return Collections.EMPTY_LIST;
-					}
-				}
-				
-				// inject resources
-				resourceMap.putAll(resourceProvider.getResources());
-				
-				Value<String> propertyView = new ThreadLocalPropertyView();
-				propertyView.set(securityContext, PropertyView.Ui);
+				final Result result = CompiledRestQuery.get(restQuery).execute(securityContext, renderContext);
+				if (result == null) {
 
-				// initialize variables
-				
-				// mimic HTTP request
-				HttpServletRequest request = new HttpServletRequestWrapper(renderContext.getRequest()) {
-
-					@Override
-					public Enumeration<String> getParameterNames() {
-						return new IteratorEnumeration(getParameterMap().keySet().iterator());
-					}
-					
-					@Override
-					public String getParameter(String key) {
-						String[] p = getParameterMap().get(key);
-						return p != null ? p[0] : null;
-					}
-					
-					@Override
-					public Map<String, String[]> getParameterMap() {
-						String[] parts = StringUtils.split(getQueryString(), "&");
-						Map<String, String[]> parameterMap = new HashMap();
-						for (String p : parts) {
-							String[] kv = StringUtils.split(p, "=");
-							if (kv.length>1) {
-								parameterMap.put(kv[0], new String[]{ kv[1] });
-							}
-						}
-						return parameterMap;
-					}
-					
-					@Override
-					public String getQueryString() {
-						return StringUtils.substringAfter(restQuery, "?");
-					}
-					
-					@Override
-					public String getPathInfo() {
-						return StringUtils.substringBefore(restQuery, "?");
-					}
-					
-					@Override
-					public StringBuffer getRequestURL() {
-					    return new StringBuffer(restQuery);
-					}
-				    };
-				
-				// update request in security context
-				securityContext.setRequest(request);
-
-				//HttpServletResponse response = renderContext.getResponse();
-				
-				
-				Resource resource     = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(ResourceHelper.parsePath(securityContext, request, resourceMap, propertyView, GraphObject.id), GraphObject.id), propertyView);
-
-				// TODO: decide if we need to rest the REST request here
-				//securityContext.checkResourceAccess(request, resource.getResourceSignature(), resource.getGrant(request, response), PropertyView.Ui);
-
-				// add sorting & paging
-				String pageSizeParameter = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_PAGE_SIZE);
-				String pageParameter     = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_PAGE_NUMBER);
-				String offsetId          = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_OFFSET_ID);
-				String sortOrder         = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_SORT_ORDER);
-				String sortKeyName       = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_SORT_KEY);
-				boolean sortDescending   = (sortOrder != null && "desc".equals(sortOrder.toLowerCase()));
-				int pageSize		 = parseInt(pageSizeParameter, NodeFactory.DEFAULT_PAGE_SIZE);
-				int page                 = parseInt(pageParameter, NodeFactory.DEFAULT_PAGE);
-				PropertyKey sortKey      = null;
-
-				// set sort key
-				if (sortKeyName != null) {
-
-					Class<? extends GraphObject> type = resource.getEntityClass();
-					sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName);
+					return Collections.EMPTY_LIST;
 				}
 
-				// do action
-				Result result            = resource.doGet(sortKey, sortDescending, pageSize, page, offsetId);
-				result.setIsCollection(resource.isCollectionResource());
-				result.setIsPrimitiveArray(resource.isPrimitiveArray());
-
-				//Integer rawResultCount = (Integer) Services.getAttribute(NodeFactory.RAW_RESULT_COUNT + Thread.currentThread().getId());
-
-				PagingHelper.addPagingParameter(result, pageSize, page);	
-				
 				List<GraphObject> res = result.getResults();
 				
 				renderContext.setResult(result);
@@ -1187,6 +1085,9 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 			String cypherQuery = ((DOMElement) referenceNode).getPropertyWithVariableReplacement(securityContext, renderContext, DOMElement.cypherQuery);
 			if (cypherQuery != null && !cypherQuery.isEmpty()) {
 				
+				// the types a cypher query reads are unknown
+				renderContext.trackAll();
+
 				return StructrApp.getInstance(securityContext).command(CypherQueryCommand.class).execute(cypherQuery);
 			}
 			
@@ -1201,6 +1102,8 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 			
 			String xpathQuery = referenceNode.getProperty(DOMElement.xpathQuery);
 			if (xpathQuery != null) {
+
+				renderContext.trackType(DOMNode.class);
 				
 				XPathFactory factory            = XPathFactory.newInstance();
 				XPath xpath                     = factory.newXPath();
@@ -1257,6 +1160,17 @@ public class DOMElement extends DOMNode implements Element, NamedNodeMap {
 			if (securityContext != null && securityContext.getRequest() != null) {
 				
 				String nodeId = securityContext.getRequest().getParameter(parameterName);
+
+				if (securityContext.getRequest() == renderContext.getRequest()) {
+
+					renderContext.trackParameter(parameterName, nodeId);
+
+				} else {
+
+					// not the request of this rendering
+					renderContext.setUncacheable();
+				}
+
 				if (nodeId != null) {
 					
 					AbstractNode node = (AbstractNode) StructrApp.getInstance(securityContext).get(nodeId);
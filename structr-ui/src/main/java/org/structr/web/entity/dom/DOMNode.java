@@ -27,7 +27,7 @@ import java.text.DecimalFormat;
 import java.text.Normalizer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -40,7 +40,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
@@ -77,7 +76,6 @@ import org.structr.core.property.StartNode;
 import org.structr.core.property.StringProperty;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
-import org.structr.web.common.ThreadLocalMatcher;
 import org.structr.web.entity.PageData;
 import org.structr.web.entity.Renderable;
 import org.structr.web.entity.dom.relationship.DOMChildren;
@@ -104,8 +102,6 @@ import org.w3c.dom.UserDataHandler;
 public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, DOMNode> implements Node, Renderable, DOMAdoptable, DOMImportable, PageData {
 
 	private static final Logger logger = Logger.getLogger(DOMNode.class.getName());
-	private static final ThreadLocalMatcher threadLocalTemplateMatcher = new ThreadLocalMatcher("\\$\\{[^}]*\\}");
-	private static final ThreadLocalMatcher threadLocalFunctionMatcher = new ThreadLocalMatcher("([a-zA-Z0-9_]+)\\((.+)\\)");
 
 	// ----- error messages for DOMExceptions -----
 	protected static final String NO_MODIFICATION_ALLOWED_MESSAGE = "Permission denied.";
@@ -145,6 +141,7 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 	public static final Property<String> pageId = new EntityIdProperty("pageId", ownerDocument);
 
 	protected static final Map<String, Function<String, String>> functions = new LinkedHashMap<>();
+	protected static final Set<String> uncacheableFunctions = new HashSet<>(Arrays.asList("GET"));
 	private static Set<Page> resultPages = new HashSet<>();
 
 	static {
@@ -1046,6 +1043,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 			if (_data != null) {
 
+				renderContext.trackData(_data);
+
 				Object value = _data.getProperty(StructrApp.getConfiguration().getPropertyKeyForJSONName(_data.getClass(), part));
 
 				if (value instanceof GraphObject) {
@@ -1118,6 +1117,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 				if (request != null) {
 
+					renderContext.trackParameter(referenceKey, request.getParameter(referenceKey));
+
 					if (StringUtils.contains(refKey, "!")) {
 
 						return StringUtils.defaultIfBlank(request.getParameter(referenceKey), defaultValue);
@@ -1133,6 +1134,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 			// special keyword "now":
 			if ("now".equals(lowerCasePart)) {
 
+				renderContext.setUncacheable();
+
 				// Return current date converted in format
 				// Note: We use "createdDate" here only as an arbitrary property key to get the database converter
 				return AbstractNode.createdDate.inputConverter(securityContext).revert(new Date());
@@ -1234,6 +1237,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 				// special keyword "search_result_size"
 				if ("search_result_size".equals(lowerCasePart)) {
 
+					renderContext.setUncacheable();
+
 					Set<Page> pages = getResultPages(securityContext, (Page) _page);
 
 					if (!pages.isEmpty()) {
@@ -1319,6 +1324,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 		if (_data != null) {
 
+			renderContext.trackData(_data);
+
 			PropertyKey referenceKeyProperty = StructrApp.getConfiguration().getPropertyKeyForJSONName(_data.getClass(), referenceKey);
 			//return getEditModeValue(securityContext, renderContext, _data, referenceKeyProperty, defaultValue);
 			Object value = _data.getProperty(referenceKeyProperty);
@@ -1383,33 +1390,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 			if (!(EditMode.RAW.equals(renderContext.getEditMode(securityContext.getUser(false))))) {
 
-				// re-use matcher from previous calls
-				Matcher matcher = threadLocalTemplateMatcher.get();
-
-				matcher.reset(value);
-
-				while (matcher.find()) {
-
-					String group = matcher.group();
-					String source = group.substring(2, group.length() - 1);
-
-					// fetch referenced property
-					String partValue = extractFunctions(securityContext, renderContext, source);
-
-					if (partValue != null) {
-
-						value = value.replace(group, partValue);
-					} else {
-
-						// If the whole expression should be replaced, and partValue is null
-						// replace it by null to make it possible for HTML attributes to not be rendered
-						// and avoid something like ... selected="" ... which is interpreted as selected==true by
-						// all browsers
-						value = value.equals(group) ? null : value.replace(group, "");
-					}
-
-				}
-
+				// templates are parsed once and cached by their source string
+				value = CompiledTemplate.get(value).evaluate(this, securityContext, renderContext);
 			}
 
 		} else if (rawValue instanceof Boolean) {
@@ -1429,62 +1411,7 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 	protected String extractFunctions(SecurityContext securityContext, RenderContext renderContext, String source)
 		throws FrameworkException {
 
-		String pageId = renderContext.getPageId();
-
-		// re-use matcher from previous calls
-		Matcher functionMatcher = threadLocalFunctionMatcher.get();
-
-		functionMatcher.reset(source);
-
-		if (functionMatcher.matches()) {
-
-			String functionGroup = functionMatcher.group(1);
-			String parameter = functionMatcher.group(2);
-			String functionName = functionGroup.substring(0, functionGroup.length());
-			Function<String, String> function = functions.get(functionName);
-
-			if (function != null) {
-
-				if (parameter.contains(",")) {
-
-					String[] parameters = split(parameter);
-					String[] results = new String[parameters.length];
-
-					// collect results from comma-separated function parameter
-					for (int i = 0; i < parameters.length; i++) {
-
-						results[i] = extractFunctions(securityContext, renderContext, StringUtils.strip(parameters[i]));
-					}
-
-					return function.apply(results);
-
-				} else {
-
-					String result = extractFunctions(securityContext, renderContext, StringUtils.strip(parameter));
-
-					return function.apply(new String[]{result});
-
-				}
-			}
-
-		}
-
-		// if any of the following conditions match, the literal source value is returned
-		if (StringUtils.isNotBlank(source) && StringUtils.isNumeric(source)) {
-
-			// return numeric value
-			return source;
-		} else if (source.startsWith("\"") && source.endsWith("\"")) {
-
-			return source.substring(1, source.length() - 1);
-		} else if (source.startsWith("'") && source.endsWith("'")) {
-
-			return source.substring(1, source.length() - 1);
-		} else {
-
-			// return property key
-			return convertValueForHtml(getReferencedProperty(securityContext, renderContext, source));
-		}
+		return CompiledTemplate.getExpression(source).evaluate(this, securityContext, renderContext);
 	}
 
 	/**
@@ -1649,91 +1576,7 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 	}
 
 	protected String[] split(String source) {
-
-		ArrayList<String> tokens = new ArrayList<>(20);
-		boolean inDoubleQuotes = false;
-		boolean inSingleQuotes = false;
-		int len = source.length();
-		int level = 0;
-		StringBuilder currentToken = new StringBuilder(len);
-
-		for (int i = 0; i < len; i++) {
-
-			char c = source.charAt(i);
-
-			// do not strip away separators in nested functions!
-			if ((level != 0) || (c != ',')) {
-
-				currentToken.append(c);
-			}
-
-			switch (c) {
-
-				case '(':
-					level++;
-
-					break;
-
-				case ')':
-					level--;
-
-					break;
-
-				case '"':
-					if (inDoubleQuotes) {
-
-						inDoubleQuotes = false;
-
-						level--;
-
-					} else {
-
-						inDoubleQuotes = true;
-
-						level++;
-
-					}
-
-					break;
-
-				case '\'':
-					if (inSingleQuotes) {
-
-						inSingleQuotes = false;
-
-						level--;
-
-					} else {
-
-						inSingleQuotes = true;
-
-						level++;
-
-					}
-
-					break;
-
-				case ',':
-					if (level == 0) {
-
-						tokens.add(currentToken.toString().trim());
-						currentToken.setLength(0);
-
-					}
-
-					break;
-
-			}
-
-		}
-
-		if (currentToken.length() > 0) {
-
-			tokens.add(currentToken.toString().trim());
-		}
-
-		return tokens.toArray(new String[0]);
-
+		return CompiledTemplate.split(source);
 	}
 
 	protected void collectNodesByPredicate(Node startNode, DOMNodeList results, Predicate<Node> predicate, int depth, boolean stopOnFirstHit) {
@@ -57,10 +57,15 @@ import org.structr.core.app.App;
 import org.structr.core.app.Query;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Principal;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.rest.ResourceProvider;
 import org.structr.rest.service.HttpServiceServlet;
+import org.structr.web.common.ByteRange;
+import org.structr.web.common.FileHelper;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderMetrics;
 import org.structr.web.common.ThreadLocalMatcher;
 import org.structr.web.entity.User;
 import org.structr.web.entity.dom.DOMNode;
@@ -94,17 +99,46 @@ public class HtmlServlet extends HttpServiceServlet {
 	// non-static fields
 	private DecimalFormat decimalFormat              = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
 	private SearchNodeCommand searchNodesAsSuperuser = null;
+	private int renderChunkSize                      = 0;
+	private int fragmentCacheSize                    = 0;
+	private FragmentCache fragmentCache              = null;
 
 	public HtmlServlet() {}
+
+	@Override
+	public void initializeFromProperties(final Properties properties, final String servletName, final Set<ResourceProvider> resourceProviders) {
+
+		super.initializeFromProperties(properties, servletName, resourceProviders);
+
+		// a chunk size > 0 enables streaming of rendered content
+		this.renderChunkSize = Math.max(0, parseInt(properties.getProperty(servletName.concat(".render.chunksize")), 0));
+
+		// a size > 0 enables the cache for rendered DOM fragments
+		this.fragmentCacheSize = Math.max(0, parseInt(properties.getProperty(servletName.concat(".fragmentcache.size")), 0));
+	}
 	
 	@Override
 	public void init() {
 		
 		 searchNodesAsSuperuser = StructrApp.getInstance().command(SearchNodeCommand.class);
+
+		// optional fragment cache, invalidated on commit
+		if (fragmentCacheSize > 0) {
+
+			this.fragmentCache = new FragmentCache(fragmentCacheSize);
+			TransactionCommand.registerTransactionListener(fragmentCache);
+		}
 	}
 
 	@Override
-	public void destroy() {}
+	public void destroy() {
+
+		if (fragmentCache != null) {
+
+			TransactionCommand.removeTransactionListener(fragmentCache);
+			fragmentCache.clear();
+		}
+	}
 
 	@Override
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) {
@@ -146,6 +180,7 @@ public class HtmlServlet extends HttpServiceServlet {
 			RenderContext renderContext = RenderContext.getInstance(request, response, getEffectiveLocale(request));
 			
 			renderContext.setResourceProvider(resourceProvider);
+			renderContext.setFragmentCache(fragmentCache);
 			
 			EditMode edit = renderContext.getEditMode(user);
 			
@@ -292,14 +327,9 @@ public class HtmlServlet extends HttpServiceServlet {
 
 				} else {
 					
-					rootElement.render(securityContext, renderContext, 0);
-
-					String content = renderContext.getBuffer().toString();
-					double end     = System.nanoTime();
-					logger.log(Level.FINE, "Content for path {0} in {1} seconds", new Object[] { path, decimalFormat.format((end - setup) / 1000000000.0)});
-
 					String contentType = rootElement.getProperty(Page.contentType);
 
+					// content type must be set before the first chunk commits the response
 					if (contentType != null && contentType.equals("text/html")) {
 
 						contentType = contentType.concat(";charset=UTF-8");
@@ -311,8 +341,49 @@ public class HtmlServlet extends HttpServiceServlet {
 						response.setContentType("text/html;charset=UTF-8");
 					}
 
+					final boolean streaming = renderChunkSize > 0;
+					boolean success         = false;
+
+					if (streaming) {
+
+						response.setStatus(HttpServletResponse.SC_OK);
+						renderContext.setWriter(out, renderChunkSize);
+					}
+
+					try {
+
+						rootElement.render(securityContext, renderContext, 0);
+
+						success = !renderContext.isAborted();
+
+					} finally {
+
+						double end = System.nanoTime();
+						logger.log(Level.FINE, "Content for path {0} in {1} seconds", new Object[] { path, decimalFormat.format((end - setup) / 1000000000.0)});
+
+						final long firstChunk = renderContext.isCommitted() ? renderContext.getFirstChunkTime() : (long)end;
+						final String pageName = rootElement.getProperty(AbstractNode.name);
+
+						RenderMetrics.getInstance().render(pageName != null ? pageName : rootElement.getUuid(), (long)(end - setup), (long)(firstChunk - setup), renderContext.getLength(), success);
+					}
+
 					// 3: output content
-					HttpAuthenticator.writeContent(content, response);
+					if (streaming) {
+
+						renderContext.flush(true);
+
+						if (renderContext.isAborted()) {
+
+							logger.log(Level.FINE, "Streaming of path {0} aborted: {1}", new Object[] { path, renderContext.getWriteError().getMessage() });
+						}
+
+						out.flush();
+						out.close();
+
+					} else {
+
+						HttpAuthenticator.writeContent(renderContext.getBuffer().toString(), response);
+					}
 
 				}
 
@@ -326,7 +397,12 @@ public class HtmlServlet extends HttpServiceServlet {
 
 			t.printStackTrace();
 			logger.log(Level.SEVERE, "Exception while processing request", t);
-			HttpAuthenticator.writeInternalServerError(response);
+
+			// status and headers of a streamed response have already been sent
+			if (!response.isCommitted()) {
+
+				HttpAuthenticator.writeInternalServerError(response);
+			}
 		}
 	}
 	
@@ -719,17 +795,21 @@ public class HtmlServlet extends HttpServiceServlet {
 			
 		}
 
-		OutputStream out = response.getOutputStream();
+		final java.io.File fileOnDisk = FileHelper.getFileOnDisk(file);
+		final String etag             = getETag(file);
+		OutputStream out              = response.getOutputStream();
+
+		if (etag != null) {
+			response.setHeader("ETag", etag);
+		}
 
-		if (!EditMode.DATA.equals(edit) && notModifiedSince(request, response, file)) {
+		if (!EditMode.DATA.equals(edit) && notModified(request, response, file, etag)) {
 
 			out.flush();
 			out.close();
 
 		} else {
 
-			// 2b: stream file to response
-			InputStream in     = file.getInputStream();
 			String contentType = file.getContentType();
 
 			if (contentType != null) {
@@ -742,31 +822,165 @@ public class HtmlServlet extends HttpServiceServlet {
 				response.setContentType("application/octet-stream");
 			}
 
+			if (fileOnDisk == null) {
+
+				streamFileContent(file, response, out);
+				return;
+			}
+
+			// 2b: send the requested range of the file on disk, or the whole file
+			final long length = fileOnDisk.length();
+			ByteRange range   = null;
+
+			response.setHeader("Accept-Ranges", "bytes");
+
+			if (ifRangeMatches(request, file, etag)) {
+				range = ByteRange.parse(request.getHeader("Range"), length);
+			}
+
+			if (range != null && !range.isSatisfiable()) {
+
+				response.setHeader("Content-Range", range.getContentRange());
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+
+			long offset = 0;
+			long count  = length;
+
+			if (range != null) {
+
+				offset = range.getStart();
+				count  = range.getCount();
+
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", range.getContentRange());
+
+			} else {
+
+				response.setStatus(HttpServletResponse.SC_OK);
+			}
+
+			response.setHeader("Content-Length", Long.toString(count));
+
 			try {
 
-				IOUtils.copy(in, out);
+				FileHelper.sendFile(fileOnDisk, offset, count, out);
 
-			} catch (Throwable t) {
+			} catch (IOException ioex) {
+
+				// client closed the connection, which is normal for media players that seek
+				logger.log(Level.FINE, "Could not stream file {0}: {1}", new Object[] { file.getUuid(), ioex.getMessage() });
 
 			} finally {
 
-				if (out != null) {
+				try {
+					out.flush();
+					out.close();
+
+				} catch(Throwable t) {}
+			}
+		}
+	}
 
-					try {
-						// 3: output content
-						out.flush();
-						out.close();
+	/**
+	 * Stream a file whose content is not available on disk via its input stream.
+	 */
+	private void streamFileContent(final org.structr.web.entity.File file, final HttpServletResponse response, final OutputStream out) throws IOException {
 
-					} catch(Throwable t) {}
-				}
+		final InputStream in = file.getInputStream();
+		if (in == null) {
 
-				if (in != null) {
-					in.close();
-				}
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
 
-				response.setStatus(HttpServletResponse.SC_OK);
+		response.setStatus(HttpServletResponse.SC_OK);
+
+		try {
+
+			IOUtils.copy(in, out);
+
+		} catch (Throwable t) {
+
+		} finally {
+
+			try {
+				// 3: output content
+				out.flush();
+				out.close();
+
+			} catch(Throwable t) {}
+
+			in.close();
+		}
+	}
+
+	/**
+	 * Evaluate If-None-Match and If-Modified-Since, set the caching headers and
+	 * the 304 status if the client's copy is still valid. If-None-Match takes
+	 * precedence over If-Modified-Since, as required by RFC 2616.
+	 */
+	private static boolean notModified(final HttpServletRequest request, final HttpServletResponse response, final AbstractNode node, final String etag) {
+
+		final boolean notModifiedSince = notModifiedSince(request, response, node);
+		final String ifNoneMatch       = request.getHeader("If-None-Match");
+
+		if (etag != null && ifNoneMatch != null) {
+
+			if (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag)) {
+
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return true;
 			}
+
+			return false;
 		}
+
+		return notModifiedSince;
+	}
+
+	/**
+	 * A range request is only valid if the If-Range header is missing or
+	 * still matches the current version of the file.
+	 */
+	private static boolean ifRangeMatches(final HttpServletRequest request, final org.structr.web.entity.File file, final String etag) {
+
+		final String ifRange = request.getHeader("If-Range");
+
+		if (StringUtils.isBlank(ifRange)) {
+			return true;
+		}
+
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(etag);
+		}
+
+		final Date lastModified = file.getLastModifiedDate();
+		if (lastModified != null) {
+
+			try {
+
+				return DateUtils.round(lastModified, Calendar.SECOND).getTime() <= request.getDateHeader("If-Range");
+
+			} catch (IllegalArgumentException iaex) {}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Strong entity tag of the given file, derived from its stored checksum.
+	 */
+	private static String getETag(final org.structr.web.entity.File file) {
+
+		final Long checksum = file.getChecksum();
+		if (checksum != null) {
+
+			return "\"" + Long.toHexString(checksum) + "\"";
+		}
+
+		return null;
 	}
 	
 	/**
@@ -24,9 +24,22 @@ import org.structr.common.SecurityContext;
 import org.structr.core.GraphObject;
 import org.structr.core.StructrTransactionListener;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.Principal;
 import org.structr.websocket.message.WebSocketMessage;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.eclipse.jetty.util.URIUtil;
@@ -45,6 +58,19 @@ import org.structr.web.entity.User;
 import org.structr.web.entity.dom.DOMNode;
 
 /**
+ * Broadcasts the modifications of committed transactions to all connected
+ * websocket clients.
+ *
+ * Each message is serialized only once per visibility class, i.e. once for
+ * anonymous clients and once per principal, and the callback of each client
+ * is added to the serialized message afterwards. Messages are handed to a
+ * bounded outbound queue per client which is drained by a small thread
+ * pool, so a slow client does not delay the broadcast or the other clients.
+ * A client whose queue is full, or whose current message could not be sent
+ * within the send timeout, is considered too slow: the client is
+ * disconnected, the UI reconnects and reloads. Connections are closed by a
+ * separate executor, which also frees the delivery thread that is blocked
+ * sending to the client.
  *
  * @author Christian Morgner
  */
@@ -52,111 +78,259 @@ public class SynchronizationController implements StructrTransactionListener {
 
 	private static final Logger logger                              = Logger.getLogger(SynchronizationController.class.getName());
 
-	private final Set<StructrWebSocket> clients = new LinkedHashSet<>();
-	private Gson gson                           = null;
+	public static final int DEFAULT_QUEUE_SIZE   = 1000;
+	public static final int DEFAULT_THREAD_COUNT = 4;
+	public static final int DEFAULT_BATCH_SIZE   = 16;
+	public static final int DEFAULT_SEND_TIMEOUT = 5000;
+
+	private final ConcurrentMap<StructrWebSocket, ClientQueue> clients = new ConcurrentHashMap<>();
+	private final BroadcastMetrics metrics                             = new BroadcastMetrics();
+	private ScheduledExecutorService watchdog                          = null;
+	private ExecutorService closeExecutor                              = null;
+	private ExecutorService executor                                   = null;
+	private Gson gson                                                  = null;
+	private int queueSize                                              = DEFAULT_QUEUE_SIZE;
+	private long sendTimeout                                           = DEFAULT_SEND_TIMEOUT;
 
 	public SynchronizationController(final Gson gson) {
 
-		this.gson = gson;
+		this(gson, DEFAULT_QUEUE_SIZE, DEFAULT_THREAD_COUNT);
+	}
+
+	public SynchronizationController(final Gson gson, final int queueSize, final int threadCount) {
+
+		this(gson, queueSize, threadCount, DEFAULT_SEND_TIMEOUT);
+	}
+
+	/**
+	 * @param gson
+	 * @param queueSize the maximum number of messages waiting for a single client
+	 * @param threadCount the number of delivery threads
+	 * @param sendTimeout the time in milliseconds a single message may block a delivery thread
+	 */
+	public SynchronizationController(final Gson gson, final int queueSize, final int threadCount, final int sendTimeout) {
+
+		this.gson          = gson;
+		this.queueSize     = Math.max(1, queueSize);
+		this.sendTimeout   = Math.max(1, sendTimeout);
+		this.executor      = Executors.newFixedThreadPool(Math.max(1, threadCount), new DaemonThreadFactory("WebSocketBroadcast-"));
+		this.closeExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("WebSocketClose-"));
+		this.watchdog      = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("WebSocketWatchdog-"));
+
+		final long interval = Math.max(1L, this.sendTimeout / 4);
+
+		watchdog.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				disconnectBlockedClients();
+			}
+
+		}, interval, interval, TimeUnit.MILLISECONDS);
 
+		metrics.clients = clients;
 	}
 
 	public void registerClient(final StructrWebSocket client) {
 
-		synchronized (clients) {
+		final Connection connection = client.getConnection();
+		if (connection != null) {
 
-			clients.add(client);
+			clients.put(client, new ClientQueue(connection, queueSize));
 		}
-
 	}
 
 	public void unregisterClient(final StructrWebSocket client) {
 
-		synchronized (clients) {
+		final ClientQueue queue = clients.remove(client);
+		if (queue != null) {
 
-			clients.remove(client);
+			queue.close();
 		}
+	}
+
+	/**
+	 * Stops the delivery threads, pending messages are discarded.
+	 */
+	public void shutdown() {
 
+		for (final ClientQueue queue : clients.values()) {
+			queue.close();
+		}
+
+		clients.clear();
+		watchdog.shutdownNow();
+		executor.shutdownNow();
+		closeExecutor.shutdown();
 	}
 
-	// ----- private methods -----
-	private void broadcast(final WebSocketMessage webSocketData) {
+	public BroadcastMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sends the given message to all connected clients that are
+	 * interested in it. Returns as soon as the message is queued.
+	 *
+	 * @param webSocketData
+	 */
+	public void broadcast(final WebSocketMessage webSocketData) {
 
 		logger.log(Level.FINE, "Broadcasting message to {0} clients..", clients.size());
 
 		// session must be valid to be received by the client
 		webSocketData.setSessionValid(true);
 
-		String message;
-		String pagePath = (String) webSocketData.getNodeData().get("pagePath");
+		// the callback differs per client and is added after serialization
+		webSocketData.setCallback(null);
 
-		synchronized (clients) {
+		final String pagePath                    = URIUtil.encodePath((String) webSocketData.getNodeData().get("pagePath"));
+		final List<? extends GraphObject> result = webSocketData.getResult();
+		final String command                     = webSocketData.getCommand();
+		final boolean filterResult               = (result != null) && (result.size() > 0) && ("UPDATE".equals(command) || "ADD".equals(command) || "CREATE".equals(command));
+		final Map<String, String> messages       = new HashMap<>();
 
-			// create message
-			for (StructrWebSocket socket : clients) {
-				
-				String clientPagePath = socket.getPagePath();
-				if (clientPagePath != null && !clientPagePath.equals(URIUtil.encodePath(pagePath))) {
-					continue;
-				}
-				
-				Connection socketConnection = socket.getConnection();
-
-				webSocketData.setCallback(socket.getCallback());
-
-				if ((socketConnection != null)) { //&& socket.isAuthenticated()) {
-
-					List<? extends GraphObject> result = webSocketData.getResult();
-
-					if ((result != null) && (result.size() > 0)
-						&& (webSocketData.getCommand().equals("UPDATE") || webSocketData.getCommand().equals("ADD") || webSocketData.getCommand().equals("CREATE"))) {
-
-						WebSocketMessage clientData     = webSocketData.copy();
-						SecurityContext securityContext = socket.getSecurityContext();
-						
-						// For non-authenticated clients, construct a security context without user
-						if (securityContext == null) {
-							
-							try {
-								
-								securityContext = SecurityContext.getInstance(null, AccessMode.Frontend);
-								
-							} catch (FrameworkException ex) {
-								
-								continue;
-							}
-						}
+		for (final Map.Entry<StructrWebSocket, ClientQueue> entry : clients.entrySet()) {
 
-						clientData.setResult(filter(securityContext, result));
+			final StructrWebSocket socket = entry.getKey();
+			final ClientQueue queue       = entry.getValue();
 
-						message = gson.toJson(clientData, WebSocketMessage.class);
+			String clientPagePath = socket.getPagePath();
+			if (clientPagePath != null && !clientPagePath.equals(pagePath)) {
+				continue;
+			}
 
-					} else {
+			SecurityContext securityContext = socket.getSecurityContext();
+			final String visibilityClass    = filterResult ? getVisibilityClass(securityContext) : "";
+			String message                  = messages.get(visibilityClass);
 
-						message = gson.toJson(webSocketData, WebSocketMessage.class);
-					}
+			if (message == null) {
 
-					// logger.log(Level.INFO, "############################################################ SENDING \n{0}", message);
+				if (filterResult) {
 
-					try {
+					WebSocketMessage clientData = webSocketData.copy();
 
-						socketConnection.sendMessage(message);
+					// For non-authenticated clients, construct a security context without user
+					if (securityContext == null) {
 
-					} catch (org.eclipse.jetty.io.EofException eof) {
+						try {
 
-						logger.log(Level.FINE, "EofException irgnored, may occour on SSL connections.", eof);
+							securityContext = SecurityContext.getInstance(null, AccessMode.Frontend);
 
-					} catch (Throwable t) {
-
-						logger.log(Level.WARNING, "Error sending message to client.", t);
+						} catch (FrameworkException ex) {
 
+							continue;
+						}
 					}
 
+					clientData.setResult(filter(securityContext, result));
+
+					message = gson.toJson(clientData, WebSocketMessage.class);
+
+				} else {
+
+					message = gson.toJson(webSocketData, WebSocketMessage.class);
 				}
 
+				messages.put(visibilityClass, message);
+				metrics.serializations.incrementAndGet();
+			}
+
+			if (queue.offer(addCallback(message, socket.getCallback()))) {
+
+				metrics.queued(queue.getDepth());
+
+			} else {
+
+				logger.log(Level.WARNING, "Outbound queue of websocket client is full, disconnecting client.");
+
+				metrics.dropped.incrementAndGet();
+				disconnect(socket, queue);
 			}
 		}
 
+		metrics.broadcasts.incrementAndGet();
+	}
+
+	// ----- private methods -----
+	/**
+	 * Clients with the same visibility class see the same subset of a
+	 * result, so they can share the serialized message.
+	 */
+	private String getVisibilityClass(final SecurityContext securityContext) {
+
+		if (securityContext == null) {
+			return "public";
+		}
+
+		if (securityContext.isSuperUser()) {
+			return "superuser";
+		}
+
+		final Principal user = securityContext.getUser(false);
+
+		return (user != null ? user.getUuid() : "public") + "/" + securityContext.getAccessMode();
+	}
+
+	/**
+	 * Adds the callback property to a serialized message, which must be a
+	 * non-empty JSON object.
+	 */
+	private String addCallback(final String message, final String callback) {
+
+		if (callback == null) {
+			return message;
+		}
+
+		final int pos = message.indexOf('{') + 1;
+
+		return message.substring(0, pos) + "\"callback\":" + gson.toJson(callback) + "," + message.substring(pos);
+	}
+
+	/**
+	 * Disconnects all clients whose current message blocks a delivery
+	 * thread for longer than the send timeout.
+	 */
+	private void disconnectBlockedClients() {
+
+		final long now = System.currentTimeMillis();
+
+		for (final Map.Entry<StructrWebSocket, ClientQueue> entry : clients.entrySet()) {
+
+			final ClientQueue queue = entry.getValue();
+
+			if (queue.isBlocked(now, sendTimeout)) {
+
+				logger.log(Level.WARNING, "Sending to websocket client timed out, disconnecting client.");
+
+				disconnect(entry.getKey(), queue);
+			}
+		}
+	}
+
+	/**
+	 * Disconnects a client that does not keep up with the broadcast. Closing
+	 * the connection may block as well, and the delivery threads may all be
+	 * blocked sending to slow clients, so it is done by a separate executor.
+	 */
+	private void disconnect(final StructrWebSocket socket, final ClientQueue queue) {
+
+		if (clients.remove(socket, queue)) {
+
+			metrics.disconnects.incrementAndGet();
+			queue.close();
+
+			try {
+				closeExecutor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						queue.connection.close();
+					}
+				});
+
+			} catch (RejectedExecutionException ignore) {}
+		}
 	}
 
 	private <T extends GraphObject> List<T> filter(final SecurityContext securityContext, final List<T> all) {
@@ -319,4 +493,230 @@ public class SynchronizationController implements StructrTransactionListener {
 		
 		return newMessage;
 	}
+
+	// ----- nested classes -----
+	public static class BroadcastMetrics {
+
+		private final AtomicLong broadcasts                = new AtomicLong();
+		private final AtomicLong serializations            = new AtomicLong();
+		private final AtomicLong queued                    = new AtomicLong();
+		private final AtomicLong sent                      = new AtomicLong();
+		private final AtomicLong dropped                   = new AtomicLong();
+		private final AtomicLong disconnects               = new AtomicLong();
+		private final AtomicLong maxQueueDepth             = new AtomicLong();
+		private Map<StructrWebSocket, ClientQueue> clients = null;
+
+		/**
+		 * @return the number of broadcast messages
+		 */
+		public long getBroadcasts() {
+			return broadcasts.get();
+		}
+
+		/**
+		 * @return the number of times a message was serialized, at most once per visibility class and broadcast
+		 */
+		public long getSerializations() {
+			return serializations.get();
+		}
+
+		/**
+		 * @return the number of messages queued for delivery to a client
+		 */
+		public long getQueuedMessages() {
+			return queued.get();
+		}
+
+		/**
+		 * @return the number of messages sent to a client
+		 */
+		public long getSentMessages() {
+			return sent.get();
+		}
+
+		/**
+		 * @return the number of messages dropped because the client's queue was full
+		 */
+		public long getDroppedMessages() {
+			return dropped.get();
+		}
+
+		/**
+		 * @return the number of clients that were disconnected because they were too slow
+		 */
+		public long getDisconnects() {
+			return disconnects.get();
+		}
+
+		/**
+		 * @return the number of messages waiting for delivery to any client
+		 */
+		public long getQueueDepth() {
+
+			long depth = 0L;
+
+			for (final ClientQueue queue : clients.values()) {
+				depth += queue.getDepth();
+			}
+
+			return depth;
+		}
+
+		/**
+		 * @return the highest number of messages that waited for delivery to a single client
+		 */
+		public long getMaxQueueDepth() {
+			return maxQueueDepth.get();
+		}
+
+		public int getClients() {
+			return clients.size();
+		}
+
+		@Override
+		public String toString() {
+			return getBroadcasts() + " broadcasts to " + getClients() + " clients, " + getSerializations() + " serializations, " + getSentMessages() + " sent, " + getDroppedMessages() + " dropped, " + getDisconnects() + " disconnects, " + getQueueDepth() + " queued (max " + getMaxQueueDepth() + " per client)";
+		}
+
+		private void queued(final long depth) {
+
+			queued.incrementAndGet();
+
+			long max = maxQueueDepth.get();
+			while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+				max = maxQueueDepth.get();
+			}
+		}
+	}
+
+	/**
+	 * Bounded outbound queue of a single client. At most one delivery
+	 * thread drains the queue at a time, so messages arrive in order.
+	 * After a batch of messages the queue is re-scheduled, so that a
+	 * client with many pending messages does not occupy a delivery
+	 * thread for too long.
+	 */
+	private class ClientQueue implements Runnable {
+
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+		private final BlockingQueue<String> queue;
+		private final Connection connection;
+		private volatile boolean closed = false;
+		private volatile long sendStart = 0L;
+
+		public ClientQueue(final Connection connection, final int queueSize) {
+
+			this.connection = connection;
+			this.queue      = new ArrayBlockingQueue<>(queueSize);
+		}
+
+		public boolean offer(final String message) {
+
+			if (closed) {
+				return true;
+			}
+
+			if (!queue.offer(message)) {
+				return false;
+			}
+
+			schedule();
+
+			return true;
+		}
+
+		public int getDepth() {
+			return queue.size();
+		}
+
+		public boolean isBlocked(final long now, final long timeout) {
+
+			final long start = sendStart;
+
+			return start > 0L && now - start > timeout;
+		}
+
+		public void close() {
+
+			closed = true;
+			queue.clear();
+		}
+
+		@Override
+		public void run() {
+
+			try {
+
+				String message = null;
+				int count      = 0;
+
+				while (!closed && count++ < DEFAULT_BATCH_SIZE && (message = queue.poll()) != null) {
+
+					sendStart = System.currentTimeMillis();
+
+					try {
+
+						connection.sendMessage(message);
+						metrics.sent.incrementAndGet();
+
+					} catch (org.eclipse.jetty.io.EofException eof) {
+
+						logger.log(Level.FINE, "EofException irgnored, may occour on SSL connections.", eof);
+
+					} catch (Throwable t) {
+
+						// sending fails if the client was disconnected meanwhile
+						logger.log(closed ? Level.FINE : Level.WARNING, "Error sending message to client.", t);
+
+					} finally {
+
+						sendStart = 0L;
+					}
+				}
+
+			} finally {
+
+				scheduled.set(false);
+			}
+
+			// messages may have been added after the last poll
+			if (!closed && !queue.isEmpty()) {
+				schedule();
+			}
+		}
+
+		private void schedule() {
+
+			if (scheduled.compareAndSet(false, true)) {
+
+				try {
+					executor.execute(this);
+
+				} catch (RejectedExecutionException rex) {
+
+					scheduled.set(false);
+				}
+			}
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicLong count = new AtomicLong();
+		private final String prefix;
+
+		public DaemonThreadFactory(final String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+
+			final Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
 }
@@ -33,6 +33,8 @@ import org.structr.websocket.message.WebSocketMessage;
 
 import java.io.IOException;
 
+import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +42,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.structr.core.GraphObject;
 import org.structr.core.graph.TransactionCommand;
+import org.structr.rest.ResourceProvider;
 import org.structr.rest.service.HttpServiceServlet;
 import org.structr.websocket.SynchronizationController;
 
@@ -55,6 +58,22 @@ public class WebSocketServlet extends HttpServiceServlet {
 	private static final String STRUCTR_PROTOCOL = "structr";
 	private static WebSocketFactory factory      = null;
 
+	private SynchronizationController syncController = null;
+	private int broadcastQueueSize                   = SynchronizationController.DEFAULT_QUEUE_SIZE;
+	private int broadcastThreads                     = SynchronizationController.DEFAULT_THREAD_COUNT;
+	private int broadcastSendTimeout                 = SynchronizationController.DEFAULT_SEND_TIMEOUT;
+
+	@Override
+	public void initializeFromProperties(final Properties properties, final String servletName, final Set<ResourceProvider> resourceProviders) {
+
+		super.initializeFromProperties(properties, servletName, resourceProviders);
+
+		// size of the outbound queue per client, number of delivery threads and send timeout in milliseconds
+		this.broadcastQueueSize   = Math.max(1, parseInt(properties.getProperty(servletName.concat(".broadcast.queuesize")), SynchronizationController.DEFAULT_QUEUE_SIZE));
+		this.broadcastThreads     = Math.max(1, parseInt(properties.getProperty(servletName.concat(".broadcast.threads")), SynchronizationController.DEFAULT_THREAD_COUNT));
+		this.broadcastSendTimeout = Math.max(1, parseInt(properties.getProperty(servletName.concat(".broadcast.sendtimeout")), SynchronizationController.DEFAULT_SEND_TIMEOUT));
+	}
+
 	@Override
 	public void init() {
 
@@ -64,11 +83,13 @@ public class WebSocketServlet extends HttpServiceServlet {
 			.registerTypeAdapter(WebSocketMessage.class, new WebSocketDataGSONAdapter(GraphObject.id, outputNestingDepth))
 			.create();
 		
-		final SynchronizationController syncController = new SynchronizationController(gson);
+		final SynchronizationController syncController = new SynchronizationController(gson, broadcastQueueSize, broadcastThreads, broadcastSendTimeout);
 		
 		// register (Structr) transaction listener
 		TransactionCommand.registerTransactionListener(syncController);
 
+		this.syncController = syncController;
+
 		// create web socket factory
 		factory = new WebSocketFactory(new Acceptor() {
 
@@ -98,6 +119,16 @@ public class WebSocketServlet extends HttpServiceServlet {
 		});
 	}
 
+	@Override
+	public void destroy() {
+
+		if (syncController != null) {
+
+			TransactionCommand.removeTransactionListener(syncController);
+			syncController.shutdown();
+		}
+	}
+
 	@Override
 	protected void doGet(final HttpServletRequest request, HttpServletResponse response) throws IOException {
 
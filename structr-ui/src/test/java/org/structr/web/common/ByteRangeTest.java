@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import junit.framework.TestCase;
+
+/**
+ * Test parsing of HTTP Range headers.
+ */
+public class ByteRangeTest extends TestCase {
+
+	public void testClosedRange() {
+
+		final ByteRange range = ByteRange.parse("bytes=0-99", 1000);
+
+		assertNotNull(range);
+		assertTrue(range.isSatisfiable());
+		assertEquals(0, range.getStart());
+		assertEquals(99, range.getEnd());
+		assertEquals(100, range.getCount());
+		assertEquals("bytes 0-99/1000", range.getContentRange());
+
+		// end beyond the content length is truncated
+		final ByteRange truncated = ByteRange.parse("bytes=900-2000", 1000);
+
+		assertEquals(999, truncated.getEnd());
+		assertEquals(100, truncated.getCount());
+	}
+
+	public void testOpenRange() {
+
+		final ByteRange range = ByteRange.parse("bytes=500-", 1000);
+
+		assertTrue(range.isSatisfiable());
+		assertEquals(500, range.getStart());
+		assertEquals(999, range.getEnd());
+		assertEquals(500, range.getCount());
+	}
+
+	public void testSuffixRange() {
+
+		final ByteRange range = ByteRange.parse("bytes=-100", 1000);
+
+		assertTrue(range.isSatisfiable());
+		assertEquals(900, range.getStart());
+		assertEquals(999, range.getEnd());
+
+		// suffix longer than the content selects the whole content
+		assertEquals(0, ByteRange.parse("bytes=-5000", 1000).getStart());
+	}
+
+	public void testUnsatisfiableRange() {
+
+		final ByteRange range = ByteRange.parse("bytes=1000-", 1000);
+
+		assertNotNull(range);
+		assertFalse(range.isSatisfiable());
+		assertEquals("bytes */1000", range.getContentRange());
+
+		assertFalse(ByteRange.parse("bytes=-0", 1000).isSatisfiable());
+		assertFalse(ByteRange.parse("bytes=0-", 0).isSatisfiable());
+	}
+
+	public void testIgnoredRange() {
+
+		assertNull(ByteRange.parse(null, 1000));
+		assertNull(ByteRange.parse("", 1000));
+		assertNull(ByteRange.parse("items=0-10", 1000));
+		assertNull(ByteRange.parse("bytes=abc-def", 1000));
+		assertNull(ByteRange.parse("bytes=100-10", 1000));
+		assertNull(ByteRange.parse("bytes=0-10,20-30", 1000));
+	}
+}
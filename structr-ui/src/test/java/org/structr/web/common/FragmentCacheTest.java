@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Arrays;
+import java.util.Locale;
+import javax.servlet.http.HttpServletRequest;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import static org.mockito.Mockito.*;
+import org.structr.common.AccessMode;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.Result;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.web.common.FragmentCache.Fragment;
+import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMElement;
+import org.structr.web.entity.dom.Page;
+import org.w3c.dom.Element;
+
+/**
+ * Test the fragment cache for rendered DOM subtrees.
+ */
+public class FragmentCacheTest extends DOMTest {
+
+	public void testFragmentCache() {
+
+		final FragmentCache cache = new FragmentCache(100);
+
+		TransactionCommand.registerTransactionListener(cache);
+
+		try {
+
+			final Page page       = Page.createNewPage(securityContext, "fragmentPage");
+			final Element html    = page.createElement("html");
+			final Element body    = page.createElement("body");
+			final Element div     = page.createElement("div");
+			final Element p       = page.createElement("p");
+			final Content content = (Content)page.createTextNode("static content");
+			final Content param   = (Content)page.createTextNode("${request.q}");
+
+			page.appendChild(html);
+			html.appendChild(body);
+			body.appendChild(div);
+			div.appendChild(content);
+			body.appendChild(p);
+			p.appendChild(param);
+
+			final HttpServletRequest request = mock(HttpServletRequest.class);
+			when(request.getParameter("q")).thenReturn("first");
+
+			final String first = render(page, cache, request);
+
+			assertTrue(first.contains("static content"));
+			assertTrue(first.contains("first"));
+			assertEquals(0, cache.getHits());
+
+			// second rendering is served from the cache
+			assertEquals(first, render(page, cache, request));
+			assertTrue(cache.getHits() > 0);
+
+			// fragments that read a request parameter must not be re-used for other values
+			when(request.getParameter("q")).thenReturn("second");
+
+			final String second = render(page, cache, request);
+
+			assertTrue(second.contains("static content"));
+			assertTrue(second.contains("second"));
+			assertFalse(second.contains("first"));
+
+			// modification of a node evicts all fragments that contain it
+			try {
+				app.beginTx();
+				content.setProperty(Content.content, "modified content");
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			final String third = render(page, cache, request);
+
+			assertTrue(third.contains("modified content"));
+			assertFalse(third.contains("static content"));
+
+		} catch (FrameworkException fex) {
+
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.removeTransactionListener(cache);
+		}
+	}
+
+	public void testResultDependencies() {
+
+		final FragmentCache cache = new FragmentCache(100);
+
+		TransactionCommand.registerTransactionListener(cache);
+
+		try {
+
+			final Page page         = Page.createNewPage(securityContext, "resultPage");
+			final RenderContext ctx = new RenderContext(mock(HttpServletRequest.class), null, EditMode.NONE, Locale.GERMAN);
+
+			ctx.setResult(new Result(Arrays.asList(page), 1, true, false));
+
+			// a fragment that reads paging values of the current result
+			final Fragment pager = ctx.startFragment();
+			ctx.getBuffer().append(ctx.getResult().getRawResultCount());
+			ctx.endFragment(pager);
+
+			// a fragment that does not
+			final Fragment other = ctx.startFragment();
+			ctx.getBuffer().append("static");
+			ctx.endFragment(other);
+
+			cache.put("pager", pager, cache.getGeneration());
+			cache.put("other", other, cache.getGeneration());
+
+			assertEquals(2, cache.size());
+
+			// a new page changes the result count
+			Page.createNewPage(securityContext, "otherPage");
+
+			assertEquals(1, cache.size());
+			assertNull(cache.get("pager", null));
+			assertNotNull(cache.get("other", null));
+
+		} catch (FrameworkException fex) {
+
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.removeTransactionListener(cache);
+		}
+	}
+
+	public void testHiddenChildDependencies() {
+
+		final FragmentCache cache = new FragmentCache(100);
+
+		TransactionCommand.registerTransactionListener(cache);
+
+		try {
+
+			final SecurityContext publicContext = SecurityContext.getInstance(null, AccessMode.Frontend);
+			final Page page                     = Page.createNewPage(securityContext, "hiddenChildPage");
+			final DOMElement div                = (DOMElement)page.createElement("div");
+			final Content visible               = (Content)page.createTextNode("visible content");
+			final Content hidden                = (Content)page.createTextNode("hidden content");
+
+			div.appendChild(visible);
+			div.appendChild(hidden);
+
+			try {
+				app.beginTx();
+				div.setProperty(GraphObject.visibleToPublicUsers, true);
+				visible.setProperty(GraphObject.visibleToPublicUsers, true);
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			final HttpServletRequest request = mock(HttpServletRequest.class);
+			final String first               = render(div, publicContext, cache, request);
+
+			assertTrue(first.contains("visible content"));
+			assertFalse(first.contains("hidden content"));
+
+			// second rendering is served from the cache
+			assertEquals(first, render(div, publicContext, cache, request));
+			assertTrue(cache.getHits() > 0);
+
+			// making the hidden child public must evict the fragment of its parent
+			try {
+				app.beginTx();
+				hidden.setProperty(GraphObject.visibleToPublicUsers, true);
+				app.commitTx();
+
+			} finally {
+
+				app.finishTx();
+			}
+
+			final String second = render(div, publicContext, cache, request);
+
+			assertTrue(second.contains("visible content"));
+			assertTrue(second.contains("hidden content"));
+
+		} catch (FrameworkException fex) {
+
+			fail("Unexpected exception");
+
+		} finally {
+
+			TransactionCommand.removeTransactionListener(cache);
+		}
+	}
+
+	private String render(final Page page, final FragmentCache cache, final HttpServletRequest request) throws FrameworkException {
+
+		final RenderContext ctx = new RenderContext(request, null, EditMode.NONE, Locale.GERMAN);
+
+		ctx.setFragmentCache(cache);
+		page.render(securityContext, ctx, 0);
+
+		return ctx.getBuffer().toString();
+	}
+
+	private String render(final DOMElement element, final SecurityContext context, final FragmentCache cache, final HttpServletRequest request) throws FrameworkException {
+
+		final RenderContext ctx = new RenderContext(request, null, EditMode.NONE, Locale.GERMAN);
+
+		ctx.setFragmentCache(cache);
+		element.render(context, ctx, 0);
+
+		return ctx.getBuffer().toString();
+	}
+}
@@ -25,6 +25,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.entity.relationship.AbstractChildren;
 import org.structr.web.common.DOMTest;
+import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.relationship.DOMChildren;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
@@ -742,5 +743,36 @@ public class DOMNodeTest extends DOMTest {
 		return list;
 	}
 
+	public void testVariableReplacement() {
+
+		try {
+
+			Page document         = (Page)getDocument();
+			Content content       = (Content)document.createTextNode("content");
+			RenderContext ctx     = new RenderContext();
+			final String constant = "no expressions here";
+
+			assertNotNull(content);
+
+			// strings without expressions are returned unchanged
+			assertSame(constant, content.replaceVariables(securityContext, ctx, constant));
+			assertEquals("unterminated ${upper('a')", content.replaceVariables(securityContext, ctx, "unterminated ${upper('a')"));
+
+			assertEquals("ABC", content.replaceVariables(securityContext, ctx, "${upper('abc')}"));
+			assertEquals("a X b 3.0 c", content.replaceVariables(securityContext, ctx, "a ${upper(\"x\")} b ${add(1, 2)} c"));
+			assertEquals("yes", content.replaceVariables(securityContext, ctx, "${if(equal(1, 1), 'yes', 'no')}"));
+			assertEquals("no", content.replaceVariables(securityContext, ctx, "${if(equal(1, 2), 'yes', 'no')}"));
+			assertEquals("A,B", content.replaceVariables(securityContext, ctx, "${upper('a,b')}"));
+			assertEquals("true", content.extractFunctions(securityContext, ctx, "equal(2, 2)"));
+
+			// templates are compiled once and re-used
+			assertSame(CompiledTemplate.get("${upper('abc')}"), CompiledTemplate.get("${upper('abc')}"));
+			assertEquals("ABC", content.replaceVariables(securityContext, ctx, "${upper('abc')}"));
+
+		} catch (FrameworkException fex) {
+
+			fail("unexpected exception");
+		}
+	}
 }
 
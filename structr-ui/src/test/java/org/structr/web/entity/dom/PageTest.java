@@ -18,7 +18,12 @@
  */
 package org.structr.web.entity.dom;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
@@ -332,6 +337,111 @@ public class PageTest extends StructrUiTest {
 		}
 	}
 	
+	public void testStreamingRender() {
+
+		try {
+			Page page = Page.createNewPage(securityContext, "streamingPage");
+
+			assertTrue(page != null);
+
+			Node html   = page.createElement("html");
+			Node head   = page.createElement("head");
+			Node body   = page.createElement("body");
+
+			try {
+				page.appendChild(html);
+				html.appendChild(head);
+				html.appendChild(body);
+
+				for (int i=0; i<20; i++) {
+
+					Node div = page.createElement("div");
+					Node p   = page.createElement("p");
+
+					body.appendChild(div);
+					div.appendChild(p);
+					p.appendChild(page.createTextNode("Paragraph " + i));
+				}
+
+			} catch (DOMException dex) {
+
+				throw new FrameworkException(422, dex.getMessage());
+			}
+
+			// buffered rendering
+			RenderContext ctx1 = new RenderContext();
+			page.render(securityContext, ctx1, 0);
+
+			// streamed rendering in small chunks
+			final StringWriter writer = new StringWriter();
+			RenderContext ctx2        = new RenderContext();
+
+			ctx2.setWriter(writer, 64);
+			page.render(securityContext, ctx2, 0);
+			ctx2.flush(true);
+
+			assertTrue(ctx2.isCommitted());
+			assertTrue(ctx2.getChunkCount() > 1);
+			assertEquals(0, ctx2.getBuffer().length());
+			assertEquals(ctx1.getBuffer().length(), ctx2.getLength());
+
+			// pages should render exactly identical
+			assertEquals(ctx1.getBuffer().toString(), writer.toString());
+
+			// failing writer aborts rendering
+			RenderContext ctx3 = new RenderContext();
+
+			ctx3.setWriter(new Writer() {
+
+				@Override
+				public void write(char[] cbuf, int off, int len) throws IOException {
+					throw new IOException("Connection reset");
+				}
+
+				@Override
+				public void flush() throws IOException {}
+
+				@Override
+				public void close() throws IOException {}
+
+			}, 64);
+
+			page.render(securityContext, ctx3, 0);
+
+			assertTrue(ctx3.isAborted());
+			assertFalse(ctx3.isCommitted());
+			assertTrue(ctx3.getLength() < ctx1.getBuffer().length());
+
+			// the servlet writes through a PrintWriter, which does not throw
+			RenderContext ctx4 = new RenderContext();
+
+			ctx4.setWriter(new PrintWriter(new Writer() {
+
+				@Override
+				public void write(char[] cbuf, int off, int len) throws IOException {
+					throw new IOException("Broken pipe");
+				}
+
+				@Override
+				public void flush() throws IOException {}
+
+				@Override
+				public void close() throws IOException {}
+
+			}), 64);
+
+			page.render(securityContext, ctx4, 0);
+
+			assertTrue(ctx4.isAborted());
+			assertFalse(ctx4.isCommitted());
+			assertTrue(ctx4.getLength() < ctx1.getBuffer().length());
+
+		} catch (FrameworkException ex) {
+
+			fail("Unexpected exception");
+		}
+	}
+	
 	private boolean isClone(final Node n1, final Node n2) {
 
 		boolean isClone = true;
@@ -252,4 +252,75 @@ public class RenderDataTest extends DOMTest {
 		}
 		
 	}	
+
+	public void testSharedRestQuery() {
+
+		try {
+
+			final Page doc = (Page)getDocument();
+
+			try {
+				app.beginTx();
+
+				final List<File> files = createTestNodes(File.class, 3);
+
+				files.get(0).setProperty(AbstractNode.name, "fileA");
+				files.get(1).setProperty(AbstractNode.name, "fileB");
+				files.get(2).setProperty(AbstractNode.name, "fileC");
+
+				// create dom tree with two siblings that execute the same query
+				Element html     = doc.createElement("html");
+				Element body     = doc.createElement("body");
+				final Element p1 = doc.createElement("p");
+				final Element p2 = doc.createElement("p");
+
+				((DOMElement) p1).setProperty(DOMElement.restQuery, "files?sort=name&order=desc");
+				((DOMElement) p1).setProperty(DOMElement.dataKey, "file");
+				((DOMElement) p2).setProperty(DOMElement.restQuery, "files?sort=name&order=desc");
+				((DOMElement) p2).setProperty(DOMElement.dataKey, "file");
+
+				p1.appendChild(doc.createTextNode("${file.name}"));
+				p2.appendChild(doc.createTextNode("${file.name}"));
+
+				doc.appendChild(html);
+				html.appendChild(body);
+				body.appendChild(p1);
+				body.appendChild(p2);
+
+				app.commitTx();
+
+			} finally {
+				app.finishTx();
+			}
+
+			final HttpServletRequest request = mock(HttpServletRequest.class);
+
+			// render twice, the second rendering re-uses the compiled query
+			for (int i = 0; i < 2; i++) {
+
+				final RenderContext ctx = new RenderContext(request, null, EditMode.NONE, Locale.GERMAN);
+				doc.render(securityContext, ctx, 0);
+
+				org.jsoup.nodes.Document parsedDocument = Jsoup.parse(ctx.getBuffer().toString());
+
+				assertEquals(6, parsedDocument.select("html > body > p").size());
+				assertEquals("fileC", parsedDocument.select("html > body > p").get(0).ownText());
+				assertEquals("fileA", parsedDocument.select("html > body > p").get(2).ownText());
+				assertEquals("fileC", parsedDocument.select("html > body > p").get(3).ownText());
+				assertEquals("fileA", parsedDocument.select("html > body > p").get(5).ownText());
+
+				// the query was executed once and shared with the sibling
+				assertNotNull(ctx.getQueryResult("files?sort=name&order=desc"));
+
+				// the request of the query must not leak into the rest of the rendering
+				assertTrue(securityContext.getRequest() == null || securityContext.getRequest() == request);
+			}
+
+			assertSame(CompiledRestQuery.get("files?sort=name&order=desc"), CompiledRestQuery.get("files?sort=name&order=desc"));
+
+		} catch (FrameworkException fex) {
+
+			fail("unexpected exception");
+		}
+	}
 }
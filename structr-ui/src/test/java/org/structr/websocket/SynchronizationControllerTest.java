@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2010-2014 Morgner UG (haftungsbeschränkt)
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.websocket;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import javax.servlet.http.HttpServletRequest;
+import org.eclipse.jetty.websocket.WebSocket.Connection;
+import static org.mockito.Mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.structr.core.GraphObject;
+import org.structr.web.common.StructrUiTest;
+import org.structr.websocket.message.WebSocketMessage;
+
+/**
+ * Test the asynchronous websocket broadcast.
+ */
+public class SynchronizationControllerTest extends StructrUiTest {
+
+	public void testBroadcast() throws Exception {
+
+		final SynchronizationController controller = new SynchronizationController(getGson(), 10, 2);
+
+		try {
+
+			final Connection first  = mock(Connection.class);
+			final Connection second = mock(Connection.class);
+			final Connection third  = mock(Connection.class);
+
+			connect(controller, first);
+			connect(controller, second);
+			connect(controller, third);
+
+			assertEquals(3, controller.getMetrics().getClients());
+
+			for (int i = 0; i < 5; i++) {
+				controller.broadcast(createMessage("DELETE", "id" + i));
+			}
+
+			verify(first, timeout(5000).times(5)).sendMessage(anyString());
+			verify(second, timeout(5000).times(5)).sendMessage(anyString());
+			verify(third, timeout(5000).times(5)).sendMessage(anyString());
+
+			// one serialization per broadcast, shared by all clients
+			assertEquals(5, controller.getMetrics().getBroadcasts());
+			assertEquals(5, controller.getMetrics().getSerializations());
+			assertEquals(15, controller.getMetrics().getQueuedMessages());
+			assertEquals(0, controller.getMetrics().getDroppedMessages());
+
+		} finally {
+
+			controller.shutdown();
+		}
+	}
+
+	public void testSlowClientIsDisconnected() throws Exception {
+
+		final SynchronizationController controller = new SynchronizationController(getGson(), 1, 2);
+		final CountDownLatch latch                 = new CountDownLatch(1);
+
+		try {
+
+			final Connection fast = mock(Connection.class);
+			final Connection slow = mock(Connection.class);
+
+			// the slow client blocks until the end of the test
+			doAnswer(new Answer() {
+
+				@Override
+				public Object answer(final InvocationOnMock invocation) throws Throwable {
+
+					latch.await();
+					return null;
+				}
+
+			}).when(slow).sendMessage(anyString());
+
+			connect(controller, fast);
+			connect(controller, slow);
+
+			controller.broadcast(createMessage("DELETE", "id1"));
+			verify(fast, timeout(5000).times(1)).sendMessage(anyString());
+
+			controller.broadcast(createMessage("DELETE", "id2"));
+			verify(fast, timeout(5000).times(2)).sendMessage(anyString());
+
+			controller.broadcast(createMessage("DELETE", "id3"));
+			verify(fast, timeout(5000).times(3)).sendMessage(anyString());
+
+			// the slow client must not delay the fast client and is disconnected
+			verify(slow, timeout(5000)).close();
+
+			assertEquals(1, controller.getMetrics().getDisconnects());
+			assertEquals(1, controller.getMetrics().getClients());
+			assertTrue(controller.getMetrics().getDroppedMessages() > 0);
+
+		} finally {
+
+			latch.countDown();
+			controller.shutdown();
+		}
+	}
+
+	public void testBlockedSendsDoNotStallOtherClients() throws Exception {
+
+		final SynchronizationController controller = new SynchronizationController(getGson(), 10, 2, 200);
+
+		try {
+
+			final Connection fast1 = mock(Connection.class);
+			final Connection fast2 = mock(Connection.class);
+			final Connection slow1 = createBlockingConnection();
+			final Connection slow2 = createBlockingConnection();
+
+			// as many slow clients as delivery threads
+			connect(controller, slow1);
+			connect(controller, slow2);
+			connect(controller, fast1);
+			connect(controller, fast2);
+
+			for (int i = 0; i < 3; i++) {
+				controller.broadcast(createMessage("DELETE", "id" + i));
+			}
+
+			// the blocked sends time out and free the delivery threads
+			verify(slow1, timeout(5000)).close();
+			verify(slow2, timeout(5000)).close();
+
+			verify(fast1, timeout(5000).times(3)).sendMessage(anyString());
+			verify(fast2, timeout(5000).times(3)).sendMessage(anyString());
+
+			assertEquals(2, controller.getMetrics().getDisconnects());
+			assertEquals(2, controller.getMetrics().getClients());
+
+		} finally {
+
+			controller.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a connection whose sends block until it is closed, like a
+	 * blocking write to a client that does not read.
+	 */
+	private Connection createBlockingConnection() throws Exception {
+
+		final Connection connection = mock(Connection.class);
+		final CountDownLatch closed = new CountDownLatch(1);
+
+		doAnswer(new Answer() {
+
+			@Override
+			public Object answer(final InvocationOnMock invocation) throws Throwable {
+
+				closed.await();
+				throw new IOException("Connection closed");
+			}
+
+		}).when(connection).sendMessage(anyString());
+
+		doAnswer(new Answer() {
+
+			@Override
+			public Object answer(final InvocationOnMock invocation) throws Throwable {
+
+				closed.countDown();
+				return null;
+			}
+
+		}).when(connection).close();
+
+		return connection;
+	}
+
+	private void connect(final SynchronizationController controller, final Connection connection) {
+
+		final StructrWebSocket socket = new StructrWebSocket(controller, mock(HttpServletRequest.class), getGson(), GraphObject.id, null);
+
+		socket.onOpen(connection);
+	}
+
+	private WebSocketMessage createMessage(final String command, final String id) {
+
+		final WebSocketMessage message = new WebSocketMessage();
+
+		message.setCommand(command);
+		message.setId(id);
+
+		return message;
+	}
+
+	private Gson getGson() {
+
+		return new GsonBuilder()
+			.registerTypeAdapter(WebSocketMessage.class, new WebSocketDataGSONAdapter(GraphObject.id, 3))
+			.create();
+	}
+}